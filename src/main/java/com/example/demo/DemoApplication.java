@@ -1,12 +1,27 @@
 package com.example.demo;
 
 import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+
+import java.util.Arrays;
 
 @SpringBootApplication
 public class DemoApplication {
 
+    private static final String IMPORT_COMMAND = "import";
+
     public static void main(String[] args) {
+        // CLI mode: "import --importer.file=<path> [--importer.target=articles]" imports the file without
+        // starting the web server and exits with a non-zero code if the import fails
+        if (args.length > 0 && IMPORT_COMMAND.equals(args[0])) {
+            String[] importArgs = Arrays.copyOfRange(args, 1, args.length);
+            System.exit(SpringApplication.exit(new SpringApplicationBuilder(DemoApplication.class)
+                    .web(WebApplicationType.NONE)
+                    .run(importArgs)));
+        }
+
         SpringApplication.run(DemoApplication.class, args);
     }
 
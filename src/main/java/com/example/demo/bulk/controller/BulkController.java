@@ -1,19 +1,38 @@
 package com.example.demo.bulk.controller;
 
+import com.example.demo.bulk.dto.BulkIngestOptions;
+import com.example.demo.bulk.dto.BulkJobStatus;
 import com.example.demo.bulk.dto.BulkOperationRequest;
 import com.example.demo.bulk.dto.BulkResponse;
 import com.example.demo.bulk.dto.ProductDto;
+import com.example.demo.bulk.dto.PurgeOptions;
+import com.example.demo.bulk.dto.PurgeStatus;
 import com.example.demo.bulk.model.Product;
+import com.example.demo.bulk.service.AdaptiveBulkController;
+import com.example.demo.bulk.service.BulkJobService;
 import com.example.demo.bulk.service.BulkService;
+import com.example.demo.bulk.service.BulkSpool;
+import com.example.demo.bulk.service.CompressionBenchmarkService;
+import com.example.demo.bulk.service.IdBenchmarkService;
+import com.example.demo.bulk.service.PurgeService;
+import com.example.demo.bulk.service.SerializationBenchmarkService;
+import com.example.demo.bulk.service.UpdateCoalescer;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Supplier;
 
 @RestController
 @RequestMapping("/api/bulk")
@@ -23,62 +42,239 @@ public class BulkController {
 
     private static final Logger log = LoggerFactory.getLogger(BulkController.class);
     private final BulkService bulkService;
+    private final BulkJobService bulkJobService;
+    private final IdBenchmarkService idBenchmarkService;
+    private final CompressionBenchmarkService compressionBenchmarkService;
+    private final SerializationBenchmarkService serializationBenchmarkService;
+    private final UpdateCoalescer updateCoalescer;
+    private final BulkSpool bulkSpool;
+    private final PurgeService purgeService;
+    private final AdaptiveBulkController adaptiveBulkController;
 
     @PostMapping("/products/create")
-    public ResponseEntity<BulkResponse> bulkCreateProducts(@RequestBody List<ProductDto> products) {
+    public ResponseEntity<BulkResponse> bulkCreateProducts(@RequestBody List<ProductDto> products,
+                                                           BulkIngestOptions options) {
         log.info("Bulk creating {} products", products.size());
-        BulkResponse response = bulkService.bulkCreateProducts(products);
-        return ResponseEntity.status(response.isHasErrors() ? HttpStatus.PARTIAL_CONTENT : HttpStatus.CREATED)
+        BulkResponse response = bulkService.bulkCreateProducts(products, options);
+        return ResponseEntity.status(statusFor(response, options, HttpStatus.CREATED))
+                .body(response);
+    }
+
+    @PostMapping(value = "/products/stream", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<BulkResponse> streamCreateProducts(
+            InputStream body,
+            @RequestParam(defaultValue = "1000") int chunkSize,
+            BulkIngestOptions options) throws IOException {
+        if (chunkSize <= 0) {
+            return ResponseEntity.badRequest().build();
+        }
+        log.info("Streaming bulk create with chunk size {}", chunkSize);
+        BulkResponse response = bulkService.streamCreateProducts(body, chunkSize, options);
+        return ResponseEntity.status(statusFor(response, options, HttpStatus.CREATED))
                 .body(response);
     }
 
     @PutMapping("/products/update")
-    public ResponseEntity<BulkResponse> bulkUpdateProducts(@RequestBody List<ProductDto> products) {
+    public ResponseEntity<BulkResponse> bulkUpdateProducts(@RequestBody List<ProductDto> products,
+                                                           BulkIngestOptions options) {
         log.info("Bulk updating {} products", products.size());
-        BulkResponse response = bulkService.bulkUpdateProducts(products);
-        return ResponseEntity.status(response.isHasErrors() ? HttpStatus.PARTIAL_CONTENT : HttpStatus.OK)
+        BulkResponse response = bulkService.bulkUpdateProducts(products, options);
+        return ResponseEntity.status(statusFor(response, options, HttpStatus.OK))
                 .body(response);
     }
 
     @DeleteMapping("/products/delete")
-    public ResponseEntity<BulkResponse> bulkDeleteProducts(@RequestBody List<String> productIds) {
+    public ResponseEntity<BulkResponse> bulkDeleteProducts(@RequestBody List<String> productIds,
+                                                           BulkIngestOptions options) {
         log.info("Bulk deleting {} products", productIds.size());
-        BulkResponse response = bulkService.bulkDeleteProducts(productIds);
-        return ResponseEntity.status(response.isHasErrors() ? HttpStatus.PARTIAL_CONTENT : HttpStatus.OK)
+        BulkResponse response = bulkService.bulkDeleteProducts(productIds, options);
+        return ResponseEntity.status(statusFor(response, options, HttpStatus.OK))
                 .body(response);
     }
 
     @PostMapping("/products/upsert")
-    public ResponseEntity<BulkResponse> bulkUpsertProducts(@RequestBody List<ProductDto> products) {
+    public ResponseEntity<BulkResponse> bulkUpsertProducts(@RequestBody List<ProductDto> products,
+                                                           BulkIngestOptions options) {
         log.info("Bulk upserting {} products", products.size());
-        BulkResponse response = bulkService.bulkUpsertProducts(products);
-        return ResponseEntity.status(response.isHasErrors() ? HttpStatus.PARTIAL_CONTENT : HttpStatus.OK)
+        BulkResponse response = bulkService.bulkUpsertProducts(products, options);
+        return ResponseEntity.status(statusFor(response, options, HttpStatus.OK))
                 .body(response);
     }
 
     @PostMapping("/products/operation")
-    public ResponseEntity<BulkResponse> bulkOperation(@RequestBody BulkOperationRequest request) {
+    public ResponseEntity<BulkResponse> bulkOperation(@RequestBody BulkOperationRequest request,
+                                                      BulkIngestOptions options) {
         log.info("Executing bulk operation: {} for {} products", request.getOperation(), request.getProducts().size());
 
         BulkResponse response;
         switch (request.getOperation().toUpperCase()) {
             case "CREATE":
-                response = bulkService.bulkCreateProducts(request.getProducts());
+                response = bulkService.bulkCreateProducts(request.getProducts(), options);
                 break;
             case "UPDATE":
-                response = bulkService.bulkUpdateProducts(request.getProducts());
+                response = bulkService.bulkUpdateProducts(request.getProducts(), options);
                 break;
             case "UPSERT":
-                response = bulkService.bulkUpsertProducts(request.getProducts());
+                response = bulkService.bulkUpsertProducts(request.getProducts(), options);
                 break;
             default:
                 return ResponseEntity.badRequest().build();
         }
 
-        return ResponseEntity.status(response.isHasErrors() ? HttpStatus.PARTIAL_CONTENT : HttpStatus.OK)
+        return ResponseEntity.status(statusFor(response, options, HttpStatus.OK))
                 .body(response);
     }
 
+    @PostMapping("/products/operation/async")
+    public ResponseEntity<BulkJobStatus> submitBulkOperationJob(@RequestBody BulkOperationRequest request,
+                                                                BulkIngestOptions options) {
+        log.info("Submitting async bulk job: {} for {} products", request.getOperation(), request.getProducts().size());
+        try {
+            BulkJobStatus status = bulkJobService.submit(request.getOperation(), request.getProducts(), options);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(status);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping("/jobs")
+    public ResponseEntity<List<BulkJobStatus>> getAllJobs() {
+        return ResponseEntity.ok(bulkJobService.getAllStatuses());
+    }
+
+    @GetMapping("/jobs/{jobId}")
+    public ResponseEntity<BulkJobStatus> getJobStatus(@PathVariable String jobId) {
+        return bulkJobService.getStatus(jobId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @DeleteMapping("/jobs/{jobId}")
+    public ResponseEntity<BulkJobStatus> cancelJob(@PathVariable String jobId) {
+        return bulkJobService.cancel(jobId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @DeleteMapping("/products/purge/category/{category}")
+    public ResponseEntity<PurgeStatus> purgeCategory(@PathVariable String category, PurgeOptions options) {
+        log.info("Purging products in category {}", category);
+        return submitPurge(() -> purgeService.purgeCategory(category, options));
+    }
+
+    @DeleteMapping("/products/purge/brand/{brand}")
+    public ResponseEntity<PurgeStatus> purgeBrand(@PathVariable String brand, PurgeOptions options) {
+        log.info("Purging products of brand {}", brand);
+        return submitPurge(() -> purgeService.purgeBrand(brand, options));
+    }
+
+    @DeleteMapping("/products/purge/inactive")
+    public ResponseEntity<PurgeStatus> purgeInactive(PurgeOptions options) {
+        log.info("Purging inactive products");
+        return submitPurge(() -> purgeService.purgeInactive(options));
+    }
+
+    @DeleteMapping("/products/purge/updated-before")
+    public ResponseEntity<PurgeStatus> purgeUpdatedBefore(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+            PurgeOptions options) {
+        log.info("Purging products last updated before {}", date);
+        return submitPurge(() -> purgeService.purgeUpdatedBefore(date, options));
+    }
+
+    @DeleteMapping("/products/purge/all")
+    public ResponseEntity<PurgeStatus> purgeAll(PurgeOptions options) {
+        log.info("Purging all products");
+        return submitPurge(() -> purgeService.purgeAll(options));
+    }
+
+    @GetMapping("/purges")
+    public ResponseEntity<List<PurgeStatus>> getAllPurges() {
+        return ResponseEntity.ok(purgeService.getAllStatuses());
+    }
+
+    @GetMapping("/purges/{jobId}")
+    public ResponseEntity<PurgeStatus> getPurgeStatus(@PathVariable String jobId) {
+        return purgeService.getStatus(jobId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @DeleteMapping("/purges/{jobId}")
+    public ResponseEntity<PurgeStatus> cancelPurge(@PathVariable String jobId) {
+        return purgeService.cancel(jobId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @PostMapping("/purges/{jobId}/rethrottle")
+    public ResponseEntity<PurgeStatus> rethrottlePurge(@PathVariable String jobId,
+                                                       @RequestParam float requestsPerSecond) throws IOException {
+        try {
+            return purgeService.rethrottle(jobId, requestsPerSecond)
+                    .map(ResponseEntity::ok)
+                    .orElse(ResponseEntity.notFound().build());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+    }
+
+    // Batch size and in-flight limit chosen by the adaptive controller, with the signals behind them
+    @GetMapping("/adaptive/stats")
+    public ResponseEntity<Map<String, Object>> getAdaptiveStats() {
+        return ResponseEntity.ok(adaptiveBulkController.getStats());
+    }
+
+    @GetMapping("/spool/stats")
+    public ResponseEntity<Map<String, Object>> getSpoolStats() {
+        return ResponseEntity.ok(bulkSpool.getStats());
+    }
+
+    @GetMapping("/coalescer/stats")
+    public ResponseEntity<Map<String, Long>> getCoalescerStats() {
+        return ResponseEntity.ok(Map.of(
+                "receivedUpdates", updateCoalescer.getReceivedUpdates(),
+                "writtenUpdates", updateCoalescer.getWrittenUpdates(),
+                "pendingUpdates", (long) updateCoalescer.getPendingUpdates()));
+    }
+
+    // Indexes the same products once per ID strategy and reports throughput and index size
+    @PostMapping("/benchmark/ids")
+    public ResponseEntity<String> benchmarkIdStrategies(@RequestParam(defaultValue = "20000") int count,
+                                                        @RequestParam(defaultValue = "1000") int batchSize,
+                                                        @RequestParam(defaultValue = "2") int rounds) throws IOException {
+        if (count <= 0 || batchSize <= 0 || rounds <= 0) {
+            return ResponseEntity.badRequest().build();
+        }
+        log.info("Benchmarking ID strategies with {} documents", count);
+        return ResponseEntity.ok(idBenchmarkService.compareStrategies(count, batchSize, rounds));
+    }
+
+    // Sends the same bulk body and match-all search with and without gzip and reports bytes and latency
+    @PostMapping("/benchmark/compression")
+    public ResponseEntity<String> benchmarkCompression(@RequestParam(defaultValue = "5000") int count,
+                                                       @RequestParam(defaultValue = "3") int rounds)
+            throws IOException, InterruptedException {
+        if (count <= 0 || rounds <= 0) {
+            return ResponseEntity.badRequest().build();
+        }
+        log.info("Benchmarking gzip compression with {} documents", count);
+        return ResponseEntity.ok(compressionBenchmarkService.compare(count, rounds));
+    }
+
+    // Serializes the same products through the Spring Data converter and the direct writer
+    @PostMapping("/benchmark/serialization")
+    public ResponseEntity<String> benchmarkSerialization(@RequestParam(defaultValue = "100000") int count,
+                                                         @RequestParam(defaultValue = "5") int rounds) {
+        if (count <= 0 || rounds <= 0) {
+            return ResponseEntity.badRequest().build();
+        }
+        log.info("Benchmarking product serialization with {} products", count);
+        return ResponseEntity.ok(serializationBenchmarkService.compare(count, rounds));
+    }
+
     // Additional endpoints for product management
     @GetMapping("/products")
     public ResponseEntity<List<Product>> getAllProducts() {
@@ -116,4 +312,22 @@ public class BulkController {
         bulkService.deleteAllProducts();
         return ResponseEntity.noContent().build();
     }
+
+    private static ResponseEntity<PurgeStatus> submitPurge(Supplier<PurgeStatus> submit) {
+        try {
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(submit.get());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+    }
+
+    // Spooled writes are only on local disk when the response is sent, so they are reported as accepted
+    private static HttpStatus statusFor(BulkResponse response, BulkIngestOptions options, HttpStatus success) {
+        if (response.isHasErrors()) {
+            return HttpStatus.PARTIAL_CONTENT;
+        }
+        return options.isSpool() ? HttpStatus.ACCEPTED : success;
+    }
 }
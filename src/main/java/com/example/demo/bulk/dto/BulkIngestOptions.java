@@ -0,0 +1,21 @@
+package com.example.demo.bulk.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.elasticsearch.core.RefreshPolicy;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkIngestOptions {
+    private RefreshPolicy refresh = RefreshPolicy.NONE; // NONE, WAIT_UNTIL, IMMEDIATE
+    private boolean bulkLoad;        // refresh_interval=-1 on the index for the duration of the load
+    private boolean disableReplicas; // with bulkLoad: number_of_replicas=0 for the duration of the load
+    private boolean coalesce;        // updates: merge changes to the same product within bulk.ingest.coalesce-window
+    private boolean spool;           // acknowledge once written to the local spool; replayed to Elasticsearch in the background
+
+    public static BulkIngestOptions defaults() {
+        return new BulkIngestOptions();
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.demo.bulk.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkJobStatus {
+    private String jobId;
+    private String operation;
+    private String state; // QUEUED, RUNNING, COMPLETED, FAILED, CANCELLED
+    private long totalDocuments;
+    private long processedDocuments;
+    private long failedDocuments;
+    private long elapsedMs;
+    private double docsPerSecond;
+    private Long etaSeconds;
+    private String error;
+    private BulkResponse result; // only set once the job has finished
+}
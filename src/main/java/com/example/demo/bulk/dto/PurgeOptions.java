@@ -0,0 +1,10 @@
+package com.example.demo.bulk.dto;
+
+import lombok.Data;
+
+@Data
+public class PurgeOptions {
+    private String slices = "auto";           // "auto" (one slice per shard) or a fixed number of slices
+    private Float requestsPerSecond = 1000f;  // delete throttle across all slices; -1 = unthrottled
+    private int batchSize = 1000;             // documents fetched and deleted per scroll batch
+}
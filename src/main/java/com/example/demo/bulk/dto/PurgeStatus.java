@@ -0,0 +1,25 @@
+package com.example.demo.bulk.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PurgeStatus {
+    private String jobId;
+    private String criteria;  // e.g. "category=Electronics", "active=false", "updatedAt<2024-01-01"
+    private String state;     // QUEUED, RUNNING, COMPLETED, FAILED, CANCELLED
+    private String taskId;    // Elasticsearch task running the delete-by-query
+    private Float requestsPerSecond;
+    private long totalDocuments;
+    private long deletedDocuments;
+    private long batches;
+    private long versionConflicts;
+    private long throttledMs;
+    private long elapsedMs;
+    private double docsPerSecond;
+    private Long etaSeconds;
+    private String error;
+}
@@ -50,4 +50,8 @@ public class Product {
 
     @Field(type = FieldType.Date)
     private LocalDate updatedAt;
+
+    // See ProductContentHash; only read back from _source, never searched
+    @Field(type = FieldType.Keyword, index = false, docValues = false)
+    private String contentHash;
 }
@@ -0,0 +1,183 @@
+package com.example.demo.bulk.service;
+
+import com.example.demo.config.BulkProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Chooses the batch size and the number of in-flight bulk requests for {@link BulkWriteBuffer}
+ * with additive increase / multiplicative decrease (AIMD), like TCP congestion control.
+ * <p>
+ * Every completed bulk request is classified as healthy or degraded. It is degraded when it
+ * took longer than {@code bulk.ingest.adaptive-target-latency}, when any item was rejected with
+ * 429/503, or when the request failed outright. After a full round of healthy requests (as many
+ * as may be in flight), the batch size grows by {@code adaptive-actions-step} and one more
+ * request may be in flight. A degraded request cuts both by {@code adaptive-decrease-factor}.
+ * <p>
+ * Each change starts a new epoch. Requests that were sent before the change report the old
+ * epoch and are ignored, so one burst of rejections shrinks the limits once, not once per
+ * request that was already on the wire. Small batches sent by the linger timer say little
+ * about what a full batch would cost, so they do not count towards growth. Neither do requests
+ * sent with {@code refresh=true/wait_for}: their latency includes waiting for a refresh, so it is
+ * reported as {@link #NOT_TIMED} and only their rejections count.
+ * <p>
+ * With {@code bulk.ingest.adaptive=false}, the fixed {@code max-actions} and
+ * {@code max-concurrent-requests} are used and the controller only records statistics.
+ */
+@Slf4j
+@Component
+public class AdaptiveBulkController {
+
+    /**
+     * Latency to report for a request whose duration does not reflect cluster load.
+     */
+    public static final long NOT_TIMED = -1;
+
+    // Weight of the latest request in the latency moving average
+    private static final double LATENCY_EWMA_WEIGHT = 0.2;
+
+    private final BulkProperties properties;
+
+    private int batchActions;
+    private int maxInFlight;
+    private long epoch;
+    private int healthyInRound;
+
+    private long requests;
+    private long timedRequests;
+    private long degradedRequests;
+    private long rejectedActions;
+    private long increases;
+    private long decreases;
+    private long lastLatencyMs;
+    private double averageLatencyMs;
+
+    public AdaptiveBulkController(BulkProperties properties) {
+        this.properties = properties;
+        this.batchActions = clamp(properties.getMaxActions(), minActions(), maxActions());
+        this.maxInFlight = clamp(properties.getMaxConcurrentRequests(), 1, maxConcurrentRequests());
+    }
+
+    /**
+     * Number of buffered actions at which a bulk request is sent.
+     */
+    public synchronized int batchActions() {
+        return properties.isAdaptive() ? batchActions : Math.max(1, properties.getMaxActions());
+    }
+
+    /**
+     * Number of bulk requests allowed in flight at the same time.
+     */
+    public synchronized int maxInFlight() {
+        return properties.isAdaptive() ? maxInFlight : Math.max(1, properties.getMaxConcurrentRequests());
+    }
+
+    /**
+     * Epoch to report back with the outcome of a request sent now.
+     */
+    public synchronized long epoch() {
+        return epoch;
+    }
+
+    /**
+     * Outcome of a bulk request that got a response; {@code rejected} counts items with 429/503
+     * and {@code latencyNanos} may be {@link #NOT_TIMED}.
+     */
+    public synchronized void onCompleted(long requestEpoch, long latencyNanos, int actions, int rejected) {
+        boolean timed = latencyNanos != NOT_TIMED;
+        long latencyMs = latencyNanos / 1_000_000;
+        requests++;
+        rejectedActions += rejected;
+        if (timed) {
+            timedRequests++;
+            lastLatencyMs = latencyMs;
+            averageLatencyMs = timedRequests == 1 ? latencyMs
+                    : averageLatencyMs + LATENCY_EWMA_WEIGHT * (latencyMs - averageLatencyMs);
+        }
+
+        if (rejected > 0 || (timed && latencyMs > properties.getAdaptiveTargetLatency().toMillis())) {
+            degradedRequests++;
+            decrease(requestEpoch, rejected > 0
+                    ? rejected + " of " + actions + " actions rejected"
+                    : "latency " + latencyMs + " ms");
+            return;
+        }
+
+        if (!timed || !properties.isAdaptive() || requestEpoch != epoch || actions < batchActions / 2) {
+            return;
+        }
+        if (++healthyInRound >= maxInFlight) {
+            increase();
+        }
+    }
+
+    /**
+     * A bulk request failed as a whole (cluster unavailable, 429 on the request, I/O error).
+     */
+    public synchronized void onFailed(long requestEpoch, String reason) {
+        requests++;
+        degradedRequests++;
+        decrease(requestEpoch, reason);
+    }
+
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("adaptive", properties.isAdaptive());
+        stats.put("batchActions", batchActions());
+        stats.put("maxInFlight", maxInFlight());
+        stats.put("requests", requests);
+        stats.put("degradedRequests", degradedRequests);
+        stats.put("rejectedActions", rejectedActions);
+        stats.put("increases", increases);
+        stats.put("decreases", decreases);
+        stats.put("lastLatencyMs", lastLatencyMs);
+        stats.put("averageLatencyMs", Math.round(averageLatencyMs));
+        return stats;
+    }
+
+    private void increase() {
+        int nextActions = Math.min(maxActions(), batchActions + Math.max(1, properties.getAdaptiveActionsStep()));
+        int nextInFlight = Math.min(maxConcurrentRequests(), maxInFlight + 1);
+        healthyInRound = 0;
+        if (nextActions == batchActions && nextInFlight == maxInFlight) {
+            return;
+        }
+        batchActions = nextActions;
+        maxInFlight = nextInFlight;
+        epoch++;
+        increases++;
+        log.debug("Bulk limits raised to {} actions, {} in flight", batchActions, maxInFlight);
+    }
+
+    private void decrease(long requestEpoch, String reason) {
+        if (!properties.isAdaptive() || requestEpoch != epoch) {
+            return;
+        }
+        double factor = properties.getAdaptiveDecreaseFactor();
+        batchActions = Math.max(minActions(), (int) (batchActions * factor));
+        maxInFlight = Math.max(1, (int) (maxInFlight * factor));
+        healthyInRound = 0;
+        epoch++;
+        decreases++;
+        log.info("Bulk limits cut to {} actions, {} in flight ({})", batchActions, maxInFlight, reason);
+    }
+
+    private int minActions() {
+        return Math.max(1, properties.getAdaptiveMinActions());
+    }
+
+    private int maxActions() {
+        return Math.max(minActions(), properties.getAdaptiveMaxActions());
+    }
+
+    private int maxConcurrentRequests() {
+        return Math.max(1, properties.getAdaptiveMaxConcurrentRequests());
+    }
+
+    private static int clamp(int value, int min, int max) {
+        return Math.max(min, Math.min(max, value));
+    }
+}
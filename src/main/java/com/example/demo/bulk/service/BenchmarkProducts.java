@@ -0,0 +1,35 @@
+package com.example.demo.bulk.service;
+
+import com.example.demo.bulk.model.Product;
+import org.springframework.data.elasticsearch.core.convert.ElasticsearchConverter;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Deterministic sample products for the benchmark endpoints, serialized the same way
+ * {@link BulkService} serializes real products.
+ */
+final class BenchmarkProducts {
+
+    private static final String[] CATEGORIES = {"Electronics", "Books", "Clothing", "Home", "Sports"};
+
+    private BenchmarkProducts() {
+    }
+
+    static List<byte[]> sources(ElasticsearchConverter converter, int count) {
+        List<byte[]> sources = new ArrayList<>(count);
+        LocalDate today = LocalDate.now();
+        for (int i = 0; i < count; i++) {
+            Product product = new Product(null, "Benchmark product " + i, "Generated for benchmarking",
+                    CATEGORIES[i % CATEGORIES.length], BigDecimal.valueOf(10 + i % 990), i % 500, true,
+                    "Brand " + i % 50, "SKU-" + i, today, today, null);
+            product.setContentHash(ProductContentHash.of(product));
+            sources.add(converter.mapObject(product).toJson().getBytes(StandardCharsets.UTF_8));
+        }
+        return sources;
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.demo.bulk.service;
+
+import com.example.demo.bulk.dto.BulkJobStatus;
+import com.example.demo.bulk.dto.BulkResponse;
+
+/**
+ * Mutable state of one background bulk job. Written by the job thread, read by status polls.
+ */
+class BulkJob {
+
+    enum State { QUEUED, RUNNING, COMPLETED, FAILED, CANCELLED }
+
+    private final String id;
+    private final String operation;
+    private final long total;
+
+    private volatile State state = State.QUEUED;
+    private volatile long startedAt;
+    private volatile long finishedAt;
+    private volatile long processed;
+    private volatile long failed;
+    private volatile boolean cancelRequested;
+    private volatile String error;
+    private volatile BulkResponse result;
+
+    BulkJob(String id, String operation, long total) {
+        this.id = id;
+        this.operation = operation;
+        this.total = total;
+    }
+
+    String getId() {
+        return id;
+    }
+
+    String getOperation() {
+        return operation;
+    }
+
+    long getProcessed() {
+        return processed;
+    }
+
+    long getFailed() {
+        return failed;
+    }
+
+    long getFinishedAt() {
+        return finishedAt;
+    }
+
+    boolean isFinished() {
+        return state == State.COMPLETED || state == State.FAILED || state == State.CANCELLED;
+    }
+
+    boolean isCancelRequested() {
+        return cancelRequested;
+    }
+
+    void requestCancel() {
+        cancelRequested = true;
+    }
+
+    void markRunning() {
+        startedAt = System.currentTimeMillis();
+        state = State.RUNNING;
+    }
+
+    void recordProgress(long processedDelta, long failedDelta) {
+        processed += processedDelta;
+        failed += failedDelta;
+    }
+
+    void finish(State finalState, BulkResponse finalResult, String errorMessage) {
+        result = finalResult;
+        error = errorMessage;
+        finishedAt = System.currentTimeMillis();
+        state = finalState;
+    }
+
+    BulkJobStatus toStatus() {
+        long end = isFinished() ? finishedAt : System.currentTimeMillis();
+        long elapsedMs = startedAt == 0 ? 0 : end - startedAt;
+        double docsPerSecond = elapsedMs > 0 ? processed * 1000.0 / elapsedMs : 0.0;
+        Long etaSeconds = null;
+        if (state == State.RUNNING && docsPerSecond > 0) {
+            etaSeconds = Math.round((total - processed) / docsPerSecond);
+        }
+
+        return new BulkJobStatus(id, operation, state.name(), total, processed, failed,
+                elapsedMs, docsPerSecond, etaSeconds, error, result);
+    }
+}
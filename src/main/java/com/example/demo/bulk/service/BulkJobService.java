@@ -0,0 +1,133 @@
+package com.example.demo.bulk.service;
+
+import com.example.demo.bulk.dto.BulkIngestOptions;
+import com.example.demo.bulk.dto.BulkJobStatus;
+import com.example.demo.bulk.dto.BulkOperationResult;
+import com.example.demo.bulk.dto.BulkResponse;
+import com.example.demo.bulk.dto.ProductDto;
+import com.example.demo.bulk.service.BulkLoadService.BulkLoadSession;
+import com.example.demo.config.BulkProperties;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+/**
+ * Runs large bulk operations in the background so the HTTP request returns immediately.
+ * Each job is processed in chunks of {@code bulk.ingest.max-actions} on its own virtual
+ * thread; progress is updated after every chunk and cancellation is checked between chunks.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class BulkJobService implements DisposableBean {
+
+    // Finished jobs are kept this long so clients can still fetch the final result
+    private static final Duration FINISHED_JOB_RETENTION = Duration.ofHours(1);
+
+    private final BulkService bulkService;
+    private final BulkProperties bulkProperties;
+
+    private final Map<String, BulkJob> jobs = new ConcurrentHashMap<>();
+    private final ExecutorService jobExecutor = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("bulk-job-", 0).factory());
+
+    public BulkJobStatus submit(String operation, List<ProductDto> products, BulkIngestOptions options) {
+        Function<List<ProductDto>, BulkResponse> chunkHandler = switch (operation.toUpperCase()) {
+            case "CREATE" -> chunk -> bulkService.bulkCreateProducts(chunk, options);
+            case "UPDATE" -> chunk -> bulkService.bulkUpdateProducts(chunk, options);
+            case "UPSERT" -> chunk -> bulkService.bulkUpsertProducts(chunk, options);
+            default -> throw new IllegalArgumentException("Unsupported bulk operation: " + operation);
+        };
+
+        evictFinishedJobs();
+
+        BulkJob job = new BulkJob(UUID.randomUUID().toString(), operation.toUpperCase(), products.size());
+        jobs.put(job.getId(), job);
+        jobExecutor.execute(() -> run(job, products, options, chunkHandler));
+
+        log.info("Submitted bulk job {} ({} for {} products)", job.getId(), job.getOperation(), products.size());
+        return job.toStatus();
+    }
+
+    public Optional<BulkJobStatus> getStatus(String jobId) {
+        return Optional.ofNullable(jobs.get(jobId)).map(BulkJob::toStatus);
+    }
+
+    public List<BulkJobStatus> getAllStatuses() {
+        return jobs.values().stream().map(BulkJob::toStatus).toList();
+    }
+
+    public Optional<BulkJobStatus> cancel(String jobId) {
+        BulkJob job = jobs.get(jobId);
+        if (job == null) {
+            return Optional.empty();
+        }
+        job.requestCancel();
+        log.info("Cancellation requested for bulk job {}", jobId);
+        return Optional.of(job.toStatus());
+    }
+
+    private void run(BulkJob job, List<ProductDto> products, BulkIngestOptions options,
+                     Function<List<ProductDto>, BulkResponse> chunkHandler) {
+        long startTime = System.currentTimeMillis();
+        List<BulkOperationResult> results = new ArrayList<>();
+        int chunkSize = Math.max(1, bulkProperties.getMaxActions());
+        job.markRunning();
+
+        BulkJob.State finalState = BulkJob.State.COMPLETED;
+        String error = null;
+
+        // Bulk-load settings stay in place for the whole job and are restored even if it fails
+        try (BulkLoadSession ignored = bulkService.beginIngest(options)) {
+            for (int from = 0; from < products.size(); from += chunkSize) {
+                if (job.isCancelRequested()) {
+                    finalState = BulkJob.State.CANCELLED;
+                    break;
+                }
+
+                List<ProductDto> chunk = products.subList(from, Math.min(from + chunkSize, products.size()));
+                BulkResponse chunkResponse = chunkHandler.apply(chunk);
+                results.addAll(chunkResponse.getResults());
+                job.recordProgress(chunkResponse.getTotalOperations(), chunkResponse.getFailedOperations());
+            }
+        } catch (Exception e) {
+            log.error("Bulk job {} failed: {}", job.getId(), e.getMessage());
+            finalState = BulkJob.State.FAILED;
+            error = e.getMessage();
+        }
+
+        // Finish only after the session has closed, so a COMPLETED job is already searchable
+        job.finish(finalState, buildResponse(results, startTime), error);
+        log.info("Bulk job {} {}: {} products processed, {} failed",
+                job.getId(), finalState, job.getProcessed(), job.getFailed());
+    }
+
+    private BulkResponse buildResponse(List<BulkOperationResult> results, long startTime) {
+        long failed = results.stream().filter(r -> !r.isSuccess()).count();
+        return new BulkResponse(failed > 0, results.size(), results.size() - failed, failed,
+                System.currentTimeMillis() - startTime, results);
+    }
+
+    private void evictFinishedJobs() {
+        long cutoff = System.currentTimeMillis() - FINISHED_JOB_RETENTION.toMillis();
+        jobs.values().removeIf(job -> job.isFinished() && job.getFinishedAt() < cutoff);
+    }
+
+    @Override
+    public void destroy() {
+        jobs.values().forEach(BulkJob::requestCancel);
+        jobExecutor.shutdown();
+    }
+}
@@ -0,0 +1,166 @@
+package com.example.demo.bulk.service;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch.indices.IndexSettings;
+import co.elastic.clients.elasticsearch.indices.IndexState;
+import co.elastic.clients.json.JsonData;
+import com.example.demo.cache.service.QueryCacheInvalidator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Switches an index into bulk-load settings ({@code refresh_interval: -1} and optionally
+ * {@code number_of_replicas: 0}) while ingests run, and restores the original settings
+ * followed by a single refresh when the last concurrent load on that index finishes.
+ * An index without an explicit {@code refresh_interval} gets the setting removed again,
+ * so it goes back to the cluster default.
+ * <p>
+ * With refreshes disabled, the writes of a load only become searchable with that final refresh,
+ * long after the write path cleared the query cache, so the cache of the index is cleared again
+ * once the refresh is done.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class BulkLoadService {
+
+    private static final String DISABLED_REFRESH_INTERVAL = "-1";
+
+    private final ElasticsearchClient elasticsearchClient;
+    private final QueryCacheInvalidator queryCacheInvalidator;
+
+    // Guarded by this; several loads on the same index share one set of saved settings
+    private final Map<String, ActiveLoad> activeLoads = new HashMap<>();
+    // Readable without the lock, which is held during settings calls
+    private final Set<String> loadingIndices = ConcurrentHashMap.newKeySet();
+
+    public interface BulkLoadSession extends AutoCloseable {
+        BulkLoadSession NONE = () -> {
+        };
+
+        @Override
+        void close();
+    }
+
+    public synchronized BulkLoadSession begin(String index, boolean disableReplicas) {
+        ActiveLoad load = activeLoads.get(index);
+        try {
+            if (load == null) {
+                IndexSettings current = currentSettings(index);
+                // null when the index uses the cluster default
+                String refreshInterval = current.refreshInterval() != null && current.refreshInterval().isTime()
+                        ? current.refreshInterval().time()
+                        : null;
+                load = new ActiveLoad(refreshInterval, current.numberOfReplicas());
+
+                elasticsearchClient.indices().putSettings(p -> p
+                        .index(index)
+                        .settings(s -> s.refreshInterval(t -> t.time(DISABLED_REFRESH_INTERVAL))));
+                activeLoads.put(index, load);
+                loadingIndices.add(index);
+                log.info("Bulk-load mode on for {} (refresh_interval was {})", index,
+                        refreshInterval != null ? refreshInterval : "the cluster default");
+            }
+
+            if (disableReplicas && !load.replicasDisabled && load.originalReplicas != null) {
+                elasticsearchClient.indices().putSettings(p -> p
+                        .index(index)
+                        .settings(s -> s.numberOfReplicas("0")));
+                load.replicasDisabled = true;
+                log.info("Replicas disabled for {} (number_of_replicas was {})", index, load.originalReplicas);
+            }
+        } catch (IOException e) {
+            if (load != null && load.holders == 0 && activeLoads.get(index) == load) {
+                // Nobody holds the load yet, so put the partially applied settings back right away
+                load.holders = 1;
+                end(index);
+            }
+            throw new IllegalStateException("Could not apply bulk-load settings to " + index, e);
+        }
+
+        load.holders++;
+        AtomicBoolean closed = new AtomicBoolean();
+        return () -> {
+            if (closed.compareAndSet(false, true)) {
+                end(index);
+            }
+        };
+    }
+
+    /**
+     * Whether the index is in bulk-load mode right now, so nothing written to it becomes
+     * searchable before the load ends.
+     */
+    public boolean isBulkLoading(String index) {
+        return loadingIndices.contains(index);
+    }
+
+    private synchronized void end(String index) {
+        ActiveLoad load = activeLoads.get(index);
+        if (load == null || --load.holders > 0) {
+            return;
+        }
+        activeLoads.remove(index);
+        loadingIndices.remove(index);
+
+        try {
+            elasticsearchClient.indices().putSettings(p -> p
+                    .index(index)
+                    .settings(s -> {
+                        if (load.originalRefreshInterval != null) {
+                            s.refreshInterval(t -> t.time(load.originalRefreshInterval));
+                        } else {
+                            // An explicit null removes the setting
+                            s.otherSettings("refresh_interval", JsonData.fromJson("null"));
+                        }
+                        if (load.replicasDisabled) {
+                            s.numberOfReplicas(load.originalReplicas);
+                        }
+                        return s;
+                    }));
+            log.info("Bulk-load mode off for {}, settings restored", index);
+        } catch (Exception e) {
+            log.error("Failed to restore settings of {}: {}", index, e.getMessage());
+        }
+
+        try {
+            elasticsearchClient.indices().refresh(r -> r.index(index));
+        } catch (Exception e) {
+            log.error("Final refresh of {} failed: {}", index, e.getMessage());
+        }
+        // Searches during the load cached what was visible before the refresh
+        queryCacheInvalidator.invalidate(index);
+    }
+
+    private IndexSettings currentSettings(String index) throws IOException {
+        // The response is keyed by concrete index name, which differs from the requested name for aliases
+        IndexState state = elasticsearchClient.indices()
+                .getSettings(g -> g.index(index))
+                .result()
+                .values()
+                .iterator()
+                .next();
+        IndexSettings settings = state.settings();
+        return settings.index() != null ? settings.index() : settings;
+    }
+
+    private static class ActiveLoad {
+        private final String originalRefreshInterval;
+        private final String originalReplicas;
+        private boolean replicasDisabled;
+        private int holders;
+
+        ActiveLoad(String originalRefreshInterval, String originalReplicas) {
+            this.originalRefreshInterval = originalRefreshInterval;
+            this.originalReplicas = originalReplicas;
+        }
+    }
+}
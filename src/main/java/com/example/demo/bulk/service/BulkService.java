@@ -1,217 +1,348 @@
 package com.example.demo.bulk.service;
 
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.ElasticsearchException;
+import co.elastic.clients.elasticsearch._types.Refresh;
+import co.elastic.clients.elasticsearch.core.bulk.BulkOperation;
+import co.elastic.clients.elasticsearch.core.bulk.BulkResponseItem;
+import co.elastic.clients.elasticsearch.core.bulk.OperationType;
+import co.elastic.clients.elasticsearch.core.get.GetResult;
+import co.elastic.clients.elasticsearch.core.mget.MultiGetResponseItem;
+import co.elastic.clients.json.JsonData;
+import co.elastic.clients.util.BinaryData;
+import co.elastic.clients.util.ContentType;
 import com.example.demo.bulk.dto.*;
 import com.example.demo.bulk.model.Product;
 import com.example.demo.bulk.repository.ProductRepository;
+import com.example.demo.bulk.service.BulkLoadService.BulkLoadSession;
+import com.example.demo.bulk.service.BulkSpool.SpooledAction;
+import com.example.demo.cache.service.QueryCacheInvalidator;
+import com.example.demo.config.BulkProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
-import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
-import org.springframework.data.elasticsearch.core.query.IndexQuery;
-import org.springframework.data.elasticsearch.core.query.IndexQueryBuilder;
+import org.springframework.data.elasticsearch.core.document.Document;
 import org.springframework.stereotype.Service;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
-import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class BulkService {
 
+    private static final String PRODUCT_INDEX = "products";
+
+    // Upsert of a product whose content was looked up: Elasticsearch itself skips it when the stored hash already
+    // matches the merged content, and keeps the new hash only if nothing else wrote the product since the lookup
+    private static final String UPSERT_UNLESS_UNCHANGED = """
+            if (ctx._source.contentHash == params.hash) {
+              ctx.op = 'noop';
+            } else {
+              ctx._source.putAll(params.changes);
+              ctx._source.contentHash = ctx._version == params.version ? params.hash : '';
+            }""";
+
+    @SuppressWarnings("unchecked")
+    private static final Class<Map<String, Object>> SOURCE_MAP = (Class<Map<String, Object>>) (Class<?>) Map.class;
+
     private final ProductRepository productRepository;
+    private final ElasticsearchClient elasticsearchClient;
     private final ElasticsearchOperations elasticsearchOperations;
+    private final ObjectMapper objectMapper;
+    private final BulkWriteBuffer bulkWriteBuffer;
+    private final BulkLoadService bulkLoadService;
+    private final IdGenerators idGenerators;
+    private final UpdateCoalescer updateCoalescer;
+    private final ProductSourceWriter productSourceWriter;
+    private final BulkProperties bulkProperties;
+    private final BulkSpool bulkSpool;
+    private final QueryCacheInvalidator queryCacheInvalidator;
 
     public BulkResponse bulkCreateProducts(List<ProductDto> productDtos) {
+        return bulkCreateProducts(productDtos, BulkIngestOptions.defaults());
+    }
+
+    public BulkResponse bulkCreateProducts(List<ProductDto> productDtos, BulkIngestOptions options) {
         long startTime = System.currentTimeMillis();
         List<BulkOperationResult> results = new ArrayList<>();
+        List<QueuedResult> queued = new ArrayList<>();
 
-        List<IndexQuery> queries = new ArrayList<>();
-
-        for (ProductDto dto : productDtos) {
-            try {
-                Product product = convertToProduct(dto);
-                product.setId(UUID.randomUUID().toString());
-                product.setCreatedAt(LocalDate.now());
-                product.setUpdatedAt(LocalDate.now());
-
-                IndexQuery indexQuery = new IndexQueryBuilder()
-                        .withId(product.getId())
-                        .withObject(product)
-                        .build();
+        try (BulkLoadSession ignored = beginIngest(options)) {
+            WriteMode mode = writeModeFor(options);
 
-                queries.add(indexQuery);
+            for (ProductDto dto : productDtos) {
+                try {
+                    String id = nextProductId();
+                    BulkOperationResult result = new BulkOperationResult(id, "CREATE", true, null, 201);
+                    results.add(result);
+                    queued.add(new QueuedResult(result, queueNewProduct(id, dto, mode)));
 
-                results.add(new BulkOperationResult(product.getId(), "CREATE", true, null, 201));
-
-            } catch (Exception e) {
-                log.error("Error creating product: {}", e.getMessage());
-                results.add(new BulkOperationResult(null, "CREATE", false, e.getMessage(), 400));
+                } catch (Exception e) {
+                    log.error("Error creating product: {}", e.getMessage());
+                    results.add(new BulkOperationResult(null, "CREATE", false, e.getMessage(), 400));
+                }
             }
-        }
 
-        try {
-            elasticsearchOperations.bulkIndex(queries, IndexCoordinates.of("products"));
-        } catch (Exception e) {
-            log.error("Bulk index operation failed: {}", e.getMessage());
-            // Mark all operations as failed
-            results.forEach(result -> {
-                result.setSuccess(false);
-                result.setError(e.getMessage());
-                result.setStatus(500);
-            });
+            awaitQueued(queued);
         }
 
         return buildBulkResponse(results, startTime);
     }
 
-    public BulkResponse bulkUpdateProducts(List<ProductDto> productDtos) {
+    /**
+     * Reads products from an NDJSON stream one line at a time and indexes them in
+     * chunks of {@code chunkSize}, so memory use does not depend on the feed size.
+     * Only failed items are kept in the returned results.
+     */
+    public BulkResponse streamCreateProducts(InputStream inputStream, int chunkSize, BulkIngestOptions options)
+            throws IOException {
         long startTime = System.currentTimeMillis();
-        List<BulkOperationResult> results = new ArrayList<>();
-
-        List<IndexQuery> queries = new ArrayList<>();
-
-        for (ProductDto dto : productDtos) {
-            try {
-                if (dto.getId() == null) {
-                    results.add(new BulkOperationResult(null, "UPDATE", false, "Product ID is required for update", 400));
+        ObjectReader reader = objectMapper.readerFor(ProductDto.class);
+        List<BulkOperationResult> failures = new ArrayList<>();
+        List<QueuedResult> chunk = new ArrayList<>(chunkSize);
+        long total = 0;
+        long lineNumber = 0;
+
+        try (BulkLoadSession ignored = beginIngest(options);
+             BufferedReader lines = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
+            WriteMode mode = writeModeFor(options);
+            String line;
+            while ((line = lines.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
                     continue;
                 }
+                total++;
+                try {
+                    ProductDto dto = reader.readValue(line);
+                    String id = nextProductId();
+                    BulkOperationResult result = new BulkOperationResult(id, "CREATE", true, null, 201);
+                    chunk.add(new QueuedResult(result, queueNewProduct(id, dto, mode)));
+                } catch (Exception e) {
+                    log.error("Error parsing product at line {}: {}", lineNumber, e.getMessage());
+                    failures.add(new BulkOperationResult(null, "CREATE", false,
+                            "Line " + lineNumber + ": " + e.getMessage(), 400));
+                }
 
-                Optional<Product> existingProduct = productRepository.findById(dto.getId());
-                if (existingProduct.isEmpty()) {
-                    results.add(new BulkOperationResult(dto.getId(), "UPDATE", false, "Product not found", 404));
-                    continue;
+                if (chunk.size() >= chunkSize) {
+                    drainChunk(chunk, failures);
                 }
+            }
+            drainChunk(chunk, failures);
+        }
 
-                Product product = existingProduct.get();
-                updateProductFromDto(product, dto);
-                product.setUpdatedAt(LocalDate.now());
+        long processingTime = System.currentTimeMillis() - startTime;
+        return new BulkResponse(!failures.isEmpty(), total, total - failures.size(), failures.size(),
+                processingTime, failures);
+    }
 
-                IndexQuery indexQuery = new IndexQueryBuilder()
-                        .withId(product.getId())
-                        .withObject(product)
-                        .build();
+    private void drainChunk(List<QueuedResult> chunk, List<BulkOperationResult> failures) {
+        awaitQueued(chunk);
+        chunk.stream()
+                .map(QueuedResult::result)
+                .filter(result -> !result.isSuccess())
+                .forEach(failures::add);
+        chunk.clear();
+    }
 
-                queries.add(indexQuery);
-                results.add(new BulkOperationResult(product.getId(), "UPDATE", true, null, 200));
+    public BulkResponse bulkUpdateProducts(List<ProductDto> productDtos) {
+        return bulkUpdateProducts(productDtos, BulkIngestOptions.defaults());
+    }
 
-            } catch (Exception e) {
-                log.error("Error updating product {}: {}", dto.getId(), e.getMessage());
-                results.add(new BulkOperationResult(dto.getId(), "UPDATE", false, e.getMessage(), 400));
-            }
-        }
+    public BulkResponse bulkUpdateProducts(List<ProductDto> productDtos, BulkIngestOptions options) {
+        long startTime = System.currentTimeMillis();
+        List<BulkOperationResult> results = new ArrayList<>();
+        List<QueuedResult> queued = new ArrayList<>();
 
-        try {
-            if (!queries.isEmpty()) {
-                elasticsearchOperations.bulkIndex(queries, IndexCoordinates.of("products"));
+        try (BulkLoadSession ignored = beginIngest(options)) {
+            WriteMode mode = writeModeFor(options);
+            if (!options.isCoalesce()) {
+                flushCoalescedUpdates(productDtos.stream().map(ProductDto::getId).toList());
             }
-        } catch (Exception e) {
-            log.error("Bulk update operation failed: {}", e.getMessage());
-            results.forEach(result -> {
-                if (result.isSuccess()) {
-                    result.setSuccess(false);
-                    result.setError(e.getMessage());
-                    result.setStatus(500);
+
+            for (ProductDto dto : productDtos) {
+                try {
+                    if (dto.getId() == null) {
+                        results.add(new BulkOperationResult(null, "UPDATE", false, "Product ID is required for update", 400));
+                        continue;
+                    }
+
+                    // Partial update: Elasticsearch merges the changed fields and answers 404 for missing products
+                    CompletableFuture<BulkResponseItem> future = options.isCoalesce()
+                            ? updateCoalescer.submit(dto.getId(), dto, mode.refresh(), mode.spool(), (id, merged, refresh) ->
+                                    queueChangedFields(id, merged, new WriteMode(refresh, mode.spool())))
+                            : queueChangedFields(dto.getId(), dto, mode);
+
+                    BulkOperationResult result = new BulkOperationResult(dto.getId(), "UPDATE", true, null, 200);
+                    results.add(result);
+                    queued.add(new QueuedResult(result, future));
+
+                } catch (Exception e) {
+                    log.error("Error updating product {}: {}", dto.getId(), e.getMessage());
+                    results.add(new BulkOperationResult(dto.getId(), "UPDATE", false, e.getMessage(), 400));
                 }
-            });
+            }
+
+            awaitQueued(queued);
         }
 
         return buildBulkResponse(results, startTime);
     }
 
     public BulkResponse bulkDeleteProducts(List<String> productIds) {
+        return bulkDeleteProducts(productIds, BulkIngestOptions.defaults());
+    }
+
+    public BulkResponse bulkDeleteProducts(List<String> productIds, BulkIngestOptions options) {
         long startTime = System.currentTimeMillis();
         List<BulkOperationResult> results = new ArrayList<>();
-
-        for (String productId : productIds) {
-            try {
-                if (productRepository.existsById(productId)) {
-                    productRepository.deleteById(productId);
-                    results.add(new BulkOperationResult(productId, "DELETE", true, null, 200));
-                } else {
-                    results.add(new BulkOperationResult(productId, "DELETE", false, "Product not found", 404));
+        List<QueuedResult> queued = new ArrayList<>();
+
+        try (BulkLoadSession ignored = beginIngest(options)) {
+            WriteMode mode = writeModeFor(options);
+            flushCoalescedUpdates(productIds);
+
+            for (String productId : productIds) {
+                try {
+                    BulkOperationResult result = new BulkOperationResult(productId, "DELETE", true, null, 200);
+                    results.add(result);
+                    queued.add(new QueuedResult(result, queueDelete(productId, mode)));
+                } catch (Exception e) {
+                    log.error("Error deleting product {}: {}", productId, e.getMessage());
+                    results.add(new BulkOperationResult(productId, "DELETE", false, e.getMessage(), 400));
                 }
-            } catch (Exception e) {
-                log.error("Error deleting product {}: {}", productId, e.getMessage());
-                results.add(new BulkOperationResult(productId, "DELETE", false, e.getMessage(), 400));
             }
+
+            awaitQueued(queued);
         }
 
         return buildBulkResponse(results, startTime);
     }
 
     public BulkResponse bulkUpsertProducts(List<ProductDto> productDtos) {
+        return bulkUpsertProducts(productDtos, BulkIngestOptions.defaults());
+    }
+
+    public BulkResponse bulkUpsertProducts(List<ProductDto> productDtos, BulkIngestOptions options) {
         long startTime = System.currentTimeMillis();
         List<BulkOperationResult> results = new ArrayList<>();
-        List<IndexQuery> queries = new ArrayList<>();
-
-        for (ProductDto dto : productDtos) {
-            try {
-                BulkOperationResult result = processUpsertProduct(dto, queries);
-                results.add(result);
-            } catch (Exception e) {
-                log.error("Error upserting product {}: {}", dto.getId(), e.getMessage());
-                results.add(new BulkOperationResult(dto.getId(), "UPSERT", false, e.getMessage(), 400));
+        List<QueuedResult> queued = new ArrayList<>();
+
+        try (BulkLoadSession ignored = beginIngest(options)) {
+            WriteMode mode = writeModeFor(options);
+            // Before the content lookup, so it sees the coalesced changes
+            flushCoalescedUpdates(productDtos.stream().map(ProductDto::getId).toList());
+            // Spooled upserts are meant to work while Elasticsearch is down, so they are never looked up
+            Map<String, StoredContent> stored = bulkProperties.isSkipUnchanged() && !options.isSpool()
+                    ? findStoredContent(productDtos)
+                    : new HashMap<>();
+
+            for (ProductDto dto : productDtos) {
+                try {
+                    BulkOperationResult result = processUpsertProduct(dto, stored, queued, mode);
+                    results.add(result);
+                } catch (Exception e) {
+                    log.error("Error upserting product {}: {}", dto.getId(), e.getMessage());
+                    results.add(new BulkOperationResult(dto.getId(), "UPSERT", false, e.getMessage(), 400));
+                }
             }
-        }
 
-        try {
-            if (!queries.isEmpty()) {
-                elasticsearchOperations.bulkIndex(queries, IndexCoordinates.of("products"));
-            }
-        } catch (Exception e) {
-            log.error("Bulk upsert operation failed: {}", e.getMessage());
-            results.forEach(result -> {
-                if (result.isSuccess()) {
-                    result.setSuccess(false);
-                    result.setError(e.getMessage());
-                    result.setStatus(500);
-                }
-            });
+            awaitQueued(queued);
         }
 
         return buildBulkResponse(results, startTime);
     }
 
-    private BulkOperationResult processUpsertProduct(ProductDto dto, List<IndexQuery> queries) {
-        Product product;
-        String operation;
+    private BulkOperationResult processUpsertProduct(ProductDto dto, Map<String, StoredContent> stored,
+                                                     List<QueuedResult> queued, WriteMode mode) {
+        LocalDate today = LocalDate.now();
 
-        if (dto.getId() != null && productRepository.existsById(dto.getId())) {
-            // Update existing product
-            Optional<Product> existingProduct = productRepository.findById(dto.getId());
-            if (existingProduct.isPresent()) {
-                product = existingProduct.get();
-                updateProductFromDto(product, dto);
-                product.setUpdatedAt(LocalDate.now());
-                operation = "UPDATE";
-            } else {
-                return new BulkOperationResult(dto.getId(), "UPSERT", false, "Product not found", 404);
-            }
+        // Fields merged into an existing product
+        Product changes = new Product();
+        updateProductFromDto(changes, dto);
+        changes.setUpdatedAt(today);
+        changes.setContentHash(ProductContentHash.UNKNOWN);
+
+        // Full document used only when the product does not exist yet, so createdAt is set on insert only
+        Product newProduct = convertToProduct(dto);
+        if (newProduct.getId() == null) {
+            newProduct.setId(nextProductId());
+        }
+        newProduct.setCreatedAt(today);
+        newProduct.setUpdatedAt(today);
+        newProduct.setContentHash(ProductContentHash.of(newProduct));
+
+        // remove(): a later item for the same id must not be compared against content this one replaces
+        StoredContent existing = dto.getId() != null ? stored.remove(dto.getId()) : null;
+        CompletableFuture<BulkResponseItem> future;
+        if (existing != null) {
+            updateProductFromDto(existing.product(), dto);
+            future = queueUpsertUnlessUnchanged(newProduct.getId(), changes, newProduct,
+                    ProductContentHash.of(existing.product()), existing.version(), mode);
         } else {
-            // Create new product
-            product = convertToProduct(dto);
-            if (product.getId() == null) {
-                product.setId(UUID.randomUUID().toString());
-            }
-            product.setCreatedAt(LocalDate.now());
-            product.setUpdatedAt(LocalDate.now());
-            operation = "CREATE";
+            future = queueUpsert(newProduct.getId(), changes, newProduct, mode);
         }
 
-        IndexQuery indexQuery = new IndexQueryBuilder()
-                .withId(product.getId())
-                .withObject(product)
-                .build();
+        BulkOperationResult result = new BulkOperationResult(newProduct.getId(), "UPSERT", true, null, 200);
+        queued.add(new QueuedResult(result, future));
+
+        return result;
+    }
 
-        queries.add(indexQuery);
+    /**
+     * Fetches the content fields, stored hash and version of every product in {@code productDtos}
+     * that has an id, with one multi-get per {@code bulk.ingest.max-actions} ids. If the lookup
+     * fails, the upsert goes ahead without skipping anything.
+     */
+    private Map<String, StoredContent> findStoredContent(List<ProductDto> productDtos) {
+        List<String> ids = productDtos.stream()
+                .map(ProductDto::getId)
+                .filter(Objects::nonNull)
+                .distinct()
+                .toList();
+        Map<String, StoredContent> stored = new HashMap<>();
+        int chunkSize = Math.max(1, bulkProperties.getMaxActions());
 
-        return new BulkOperationResult(product.getId(), operation, true, null, operation.equals("CREATE") ? 201 : 200);
+        try {
+            for (int from = 0; from < ids.size(); from += chunkSize) {
+                List<String> chunk = ids.subList(from, Math.min(ids.size(), from + chunkSize));
+                List<MultiGetResponseItem<Map<String, Object>>> items = elasticsearchClient.mget(m -> m
+                        .index(PRODUCT_INDEX)
+                        .ids(chunk)
+                        .sourceIncludes(List.of(ProductContentHash.SOURCE_FIELDS)), SOURCE_MAP).docs();
+                for (MultiGetResponseItem<Map<String, Object>> item : items) {
+                    GetResult<Map<String, Object>> doc = item.isResult() ? item.result() : null;
+                    if (doc != null && doc.found() && doc.source() != null && doc.version() != null) {
+                        Product product = elasticsearchOperations.getElasticsearchConverter()
+                                .read(Product.class, Document.from(doc.source()));
+                        stored.put(doc.id(), new StoredContent(product, doc.version()));
+                    }
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Content hash lookup failed, upserting all {} products: {}", productDtos.size(), e.getMessage());
+            stored.clear();
+        }
+        return stored;
     }
 
     public List<Product> getAllProducts() {
@@ -236,6 +367,230 @@ public class BulkService {
 
     public void deleteAllProducts() {
         productRepository.deleteAll();
+        queryCacheInvalidator.invalidate(PRODUCT_INDEX);
+    }
+
+    /**
+     * Writes pending coalesced updates of these products before a write that bypasses the
+     * coalescer, so the older coalesced changes cannot land after it.
+     */
+    private void flushCoalescedUpdates(List<String> ids) {
+        updateCoalescer.flush(ids.stream().filter(Objects::nonNull).collect(Collectors.toSet()));
+    }
+
+    /**
+     * Opens bulk-load mode on the products index when requested. Jobs hold one session for
+     * their whole run, so the per-chunk sessions opened inside it only nest. Spooled requests
+     * never open one: their writes reach Elasticsearch later, from the spool drainer.
+     */
+    public BulkLoadSession beginIngest(BulkIngestOptions options) {
+        return options.isBulkLoad() && !options.isSpool()
+                ? bulkLoadService.begin(PRODUCT_INDEX, options.isDisableReplicas())
+                : BulkLoadSession.NONE;
+    }
+
+    private static WriteMode writeModeFor(BulkIngestOptions options) {
+        // Spooled actions are replayed in batches of their own, without a refresh
+        return options.isSpool() ? new WriteMode(Refresh.False, true) : new WriteMode(refreshFor(options), false);
+    }
+
+    private static Refresh refreshFor(BulkIngestOptions options) {
+        if (options.isBulkLoad()) {
+            // refresh is disabled during a bulk load; one refresh happens when the load ends
+            return Refresh.False;
+        }
+        return switch (options.getRefresh()) {
+            case IMMEDIATE -> Refresh.True;
+            case WAIT_UNTIL -> Refresh.WaitFor;
+            case NONE -> Refresh.False;
+        };
+    }
+
+    private String nextProductId() {
+        return idGenerators.forIndex(PRODUCT_INDEX).nextId();
+    }
+
+    private CompletableFuture<BulkResponseItem> queueNewProduct(String id, ProductDto dto, WriteMode mode) {
+        byte[] source = newProductSource(id, dto, LocalDate.now());
+        if (mode.spool()) {
+            return spooled(SpooledAction.index(PRODUCT_INDEX, id, source), OperationType.Index);
+        }
+
+        BulkOperation operation = BulkOperation.of(b -> b.index(i -> i
+                .index(PRODUCT_INDEX)
+                .id(id)
+                .document(BinaryData.of(source, ContentType.APPLICATION_JSON))));
+
+        return bulkWriteBuffer.add(operation, source.length, mode.refresh());
+    }
+
+    /**
+     * Source of a new product, written by {@link ProductSourceWriter} or, with
+     * {@code bulk.ingest.direct-serialization=false}, by the Spring Data converter.
+     */
+    public byte[] newProductSource(String id, ProductDto dto, LocalDate today) {
+        return bulkProperties.isDirectSerialization()
+                ? productSourceWriter.writeNewProduct(id, dto, today)
+                : serializeWithConverter(id, dto, today);
+    }
+
+    /**
+     * Source of a new product built through the {@link Product} entity and the Spring Data
+     * converter. {@link ProductSourceWriter} produces the same bytes with far less allocation.
+     */
+    byte[] serializeWithConverter(String id, ProductDto dto, LocalDate today) {
+        Product product = convertToProduct(dto);
+        product.setId(id);
+        product.setCreatedAt(today);
+        product.setUpdatedAt(today);
+        product.setContentHash(ProductContentHash.of(product));
+        return elasticsearchOperations.getElasticsearchConverter()
+                .mapObject(product)
+                .toJson()
+                .getBytes(StandardCharsets.UTF_8);
+    }
+
+    private CompletableFuture<BulkResponseItem> queueChangedFields(String id, ProductDto dto, WriteMode mode) {
+        Product changes = new Product();
+        updateProductFromDto(changes, dto);
+        changes.setUpdatedAt(LocalDate.now());
+        // The rest of the document is not known here, so the stored hash no longer describes it
+        changes.setContentHash(ProductContentHash.UNKNOWN);
+        return queuePartialUpdate(id, changes, mode);
+    }
+
+    private CompletableFuture<BulkResponseItem> queuePartialUpdate(String id, Product changes, WriteMode mode) {
+        Document partialDocument = elasticsearchOperations.getElasticsearchConverter().mapObject(changes);
+        if (mode.spool()) {
+            return spooled(SpooledAction.update(PRODUCT_INDEX, id, partialDocument, null), OperationType.Update);
+        }
+
+        BulkOperation operation = BulkOperation.of(b -> b.update(u -> u
+                .index(PRODUCT_INDEX)
+                .id(id)
+                .action(a -> a.doc(partialDocument))));
+
+        return bulkWriteBuffer.add(operation, estimateSize(partialDocument), mode.refresh());
+    }
+
+    private CompletableFuture<BulkResponseItem> queueUpsert(String id, Product changes, Product newProduct,
+                                                           WriteMode mode) {
+        Document partialDocument = elasticsearchOperations.getElasticsearchConverter().mapObject(changes);
+        Document upsertDocument = elasticsearchOperations.getElasticsearchConverter().mapObject(newProduct);
+        if (mode.spool()) {
+            return spooled(SpooledAction.update(PRODUCT_INDEX, id, partialDocument, upsertDocument), OperationType.Update);
+        }
+
+        BulkOperation operation = BulkOperation.of(b -> b.update(u -> u
+                .index(PRODUCT_INDEX)
+                .id(id)
+                .action(a -> a
+                        .doc(partialDocument)
+                        .upsert(upsertDocument))));
+
+        return bulkWriteBuffer.add(operation, estimateSize(partialDocument) + estimateSize(upsertDocument), mode.refresh());
+    }
+
+    /**
+     * Upsert of a product read by {@link #findStoredContent}, which only happens for writes that
+     * are not spooled. {@code mergedHash} is the hash of the stored content with the changes
+     * applied, and {@code version} the version that content was read at.
+     */
+    private CompletableFuture<BulkResponseItem> queueUpsertUnlessUnchanged(String id, Product changes,
+                                                                          Product newProduct, String mergedHash,
+                                                                          long version, WriteMode mode) {
+        Document partialDocument = elasticsearchOperations.getElasticsearchConverter().mapObject(changes);
+        Document upsertDocument = elasticsearchOperations.getElasticsearchConverter().mapObject(newProduct);
+
+        BulkOperation operation = BulkOperation.of(b -> b.<Object, Object>update(u -> u
+                .index(PRODUCT_INDEX)
+                .id(id)
+                .action(a -> a
+                        .script(s -> s
+                                .source(UPSERT_UNLESS_UNCHANGED)
+                                .params("hash", JsonData.of(mergedHash))
+                                .params("version", JsonData.of(version))
+                                .params("changes", JsonData.of(partialDocument)))
+                        .upsert(upsertDocument))));
+
+        return bulkWriteBuffer.add(operation, estimateSize(partialDocument) + estimateSize(upsertDocument), mode.refresh());
+    }
+
+    private CompletableFuture<BulkResponseItem> queueDelete(String id, WriteMode mode) {
+        if (mode.spool()) {
+            return spooled(SpooledAction.delete(PRODUCT_INDEX, id), OperationType.Delete);
+        }
+
+        BulkOperation operation = BulkOperation.of(b -> b.delete(d -> d
+                .index(PRODUCT_INDEX)
+                .id(id)));
+
+        return bulkWriteBuffer.add(operation, id.length(), mode.refresh());
+    }
+
+    /**
+     * Appends the action to the local spool. The returned item is a 202 "accepted" once the
+     * action is on disk; the actual Elasticsearch outcome is only visible in the spool stats.
+     */
+    private CompletableFuture<BulkResponseItem> spooled(SpooledAction action, OperationType operationType) {
+        return bulkSpool.append(action).thenApply(ignored -> BulkResponseItem.of(i -> i
+                .operationType(operationType)
+                .index(action.index())
+                .id(action.id())
+                .status(202)
+                .result("accepted")));
+    }
+
+    private static long estimateSize(Map<String, Object> document) {
+        long size = 2;
+        for (Map.Entry<String, Object> field : document.entrySet()) {
+            size += field.getKey().length() + String.valueOf(field.getValue()).length() + 6;
+        }
+        return size;
+    }
+
+    private void awaitQueued(List<QueuedResult> queued) {
+        if (queued.isEmpty()) {
+            return;
+        }
+        bulkWriteBuffer.flush();
+
+        for (QueuedResult entry : queued) {
+            BulkOperationResult result = entry.result();
+            try {
+                BulkResponseItem item = entry.future().join();
+                result.setStatus(item.status());
+                if (item.error() != null) {
+                    result.setSuccess(false);
+                    result.setError(item.status() == 404
+                            ? "Product not found"
+                            : item.error().type() + ": " + item.error().reason());
+                } else if ("not_found".equals(item.result())) {
+                    // Bulk deletes of missing documents come back without an error object
+                    result.setSuccess(false);
+                    result.setError("Product not found");
+                } else if ("UPSERT".equals(result.getOperation()) && !"accepted".equals(item.result())) {
+                    // Elasticsearch decided server-side whether the upsert inserted, merged or left the product alone
+                    result.setOperation(upsertOperation(item.result()));
+                }
+            } catch (CompletionException e) {
+                Throwable cause = e.getCause();
+                result.setSuccess(false);
+                result.setError(cause.getMessage());
+                if (cause instanceof ElasticsearchException esException) {
+                    result.setStatus(esException.status());
+                } else {
+                    result.setStatus(cause instanceof RejectedExecutionException ? 429 : 500);
+                }
+            }
+        }
+    }
+
+    private static String upsertOperation(String result) {
+        if ("created".equals(result)) {
+            return "CREATE";
+        }
+        return "noop".equals(result) ? "NOOP" : "UPDATE";
     }
 
     private Product convertToProduct(ProductDto dto) {
@@ -280,5 +635,19 @@ public class BulkService {
                 results
         );
     }
-}
 
+    /**
+     * Where queued actions go: straight to the bulk buffer with the given refresh, or to the spool.
+     */
+    private record WriteMode(Refresh refresh, boolean spool) {
+    }
+
+    /**
+     * Content of a stored product as read before an upsert, with the version it was read at.
+     */
+    private record StoredContent(Product product, long version) {
+    }
+
+    private record QueuedResult(BulkOperationResult result, CompletableFuture<BulkResponseItem> future) {
+    }
+}
@@ -0,0 +1,740 @@
+package com.example.demo.bulk.service;
+
+import co.elastic.clients.elasticsearch.core.bulk.BulkOperation;
+import co.elastic.clients.elasticsearch.core.bulk.BulkResponseItem;
+import co.elastic.clients.util.BinaryData;
+import co.elastic.clients.util.ContentType;
+import com.example.demo.config.BulkProperties;
+import com.example.demo.config.SpoolProperties;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.data.elasticsearch.core.document.Document;
+import org.springframework.stereotype.Component;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Durable local spool in front of Elasticsearch. Bulk actions are appended to segment files
+ * and acknowledged to the caller once they are on disk; a background drainer replays them
+ * through {@link BulkWriteBuffer} in order and records how far it got in a checkpoint file.
+ * <p>
+ * Every entry is framed as {@code [payload length][CRC32][payload]}; index and id are stored
+ * with an unsigned 16-bit length, so longer values are rejected on append. Appends are made
+ * durable in groups: a single {@code fsync} every {@code bulk.spool.fsync-interval} completes
+ * all appends written since the previous one. Segments roll over at
+ * {@code bulk.spool.segment-size} and are deleted as soon as the checkpoint has moved past them.
+ * The checkpoint is fsynced before it replaces the previous one; a checkpoint that cannot be
+ * parsed is ignored and replay starts again from the oldest segment.
+ * <p>
+ * Delivery is at least once. A replay batch that hits a retryable failure (cluster down, 429,
+ * 5xx, or a 403 {@code cluster_block_exception} from a write block such as a reindex, bulk load
+ * or read-only disk watermark) is resent as a whole after a backoff, which is harmless for index,
+ * delete and partial update actions. Actions rejected for good (e.g. 404 on update, mapping
+ * errors) are written to the {@code dead-letter.jsonl} file with the error, so that they cannot
+ * block the spool but are not lost either. On startup a torn tail left by a crash is truncated
+ * and replay resumes from the checkpoint. A corrupt entry inside a segment is copied aside into a
+ * {@code corrupt-*.bin} file and replay resumes at the next valid entry.
+ */
+@Slf4j
+@Component
+public class BulkSpool implements DisposableBean {
+
+    public enum ActionType { INDEX, UPDATE, DELETE }
+
+    public record SpooledAction(ActionType type, String index, String id, byte[] body) {
+
+        public static SpooledAction index(String index, String id, byte[] source) {
+            return new SpooledAction(ActionType.INDEX, index, id, source);
+        }
+
+        public static SpooledAction update(String index, String id, Document doc, Document upsert) {
+            String body = "{\"doc\":" + doc.toJson() + (upsert != null ? ",\"upsert\":" + upsert.toJson() : "") + "}";
+            return new SpooledAction(ActionType.UPDATE, index, id, body.getBytes(StandardCharsets.UTF_8));
+        }
+
+        public static SpooledAction delete(String index, String id) {
+            return new SpooledAction(ActionType.DELETE, index, id, new byte[0]);
+        }
+    }
+
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".spool";
+    private static final String CHECKPOINT_FILE = "checkpoint";
+    private static final String DEAD_LETTER_FILE = "dead-letter.jsonl";
+    private static final int HEADER_BYTES = 8;
+    private static final int MAX_KEY_BYTES = 0xFFFF;
+    private static final TypeReference<Map<String, Object>> MAP_TYPE = new TypeReference<>() {
+    };
+
+    private final SpoolProperties properties;
+    private final BulkProperties bulkProperties;
+    private final BulkWriteBuffer bulkWriteBuffer;
+    private final ObjectMapper objectMapper;
+
+    private Path directory;
+    private ScheduledExecutorService fsyncScheduler;
+    private Thread drainer;
+    private volatile boolean running;
+
+    // Writer state, guarded by this
+    private FileChannel activeChannel;
+    private long activeSegment;
+    private long activeSize;
+    private List<CompletableFuture<Void>> unsynced = new ArrayList<>();
+
+    // Everything before this position is on disk; segments older than its segment are complete
+    private volatile Position durable;
+
+    // Replay position; only advanced by the drainer thread
+    private volatile Position checkpoint;
+
+    private final AtomicLong appendedActions = new AtomicLong();
+    private final AtomicLong replayedActions = new AtomicLong();
+    private final AtomicLong failedActions = new AtomicLong();
+    private final AtomicLong corruptBytes = new AtomicLong();
+
+    public BulkSpool(SpoolProperties properties, BulkProperties bulkProperties,
+                     BulkWriteBuffer bulkWriteBuffer, ObjectMapper objectMapper) throws IOException {
+        this.properties = properties;
+        this.bulkProperties = bulkProperties;
+        this.bulkWriteBuffer = bulkWriteBuffer;
+        this.objectMapper = objectMapper;
+        if (!properties.isEnabled()) {
+            return;
+        }
+
+        if (properties.getDirectory() == null || properties.getDirectory().isBlank()) {
+            throw new IllegalStateException("bulk.spool.directory must be set when bulk.spool.enabled=true");
+        }
+        this.directory = Path.of(properties.getDirectory()).toAbsolutePath();
+        Files.createDirectories(directory);
+        recover();
+
+        this.running = true;
+        this.fsyncScheduler = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("bulk-spool-fsync").daemon().factory());
+        long fsyncMs = Math.max(1, properties.getFsyncInterval().toMillis());
+        this.fsyncScheduler.scheduleWithFixedDelay(this::syncUnsynced, fsyncMs, fsyncMs, TimeUnit.MILLISECONDS);
+        this.drainer = Thread.ofPlatform().name("bulk-spool-drainer").daemon().start(this::drainLoop);
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    /**
+     * Appends an action. The future completes once the action is on disk.
+     */
+    public CompletableFuture<Void> append(SpooledAction action) {
+        if (!properties.isEnabled()) {
+            return CompletableFuture.failedFuture(
+                    new IllegalStateException("Bulk spool is disabled (bulk.spool.enabled=false)"));
+        }
+
+        ByteBuffer record;
+        try {
+            record = encode(action);
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        CompletableFuture<Void> onDisk = new CompletableFuture<>();
+        synchronized (this) {
+            try {
+                if (activeSize > 0 && activeSize + record.remaining() > properties.getSegmentSize().toBytes()) {
+                    roll();
+                }
+                long position = activeSize;
+                while (record.hasRemaining()) {
+                    position += activeChannel.write(record, position);
+                }
+                activeSize = position;
+                unsynced.add(onDisk);
+                appendedActions.incrementAndGet();
+            } catch (IOException e) {
+                log.error("Failed to append to bulk spool: {}", e.getMessage());
+                onDisk.completeExceptionally(e);
+            }
+        }
+        return onDisk;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", properties.isEnabled());
+        stats.put("appendedActions", appendedActions.get());
+        stats.put("replayedActions", replayedActions.get());
+        stats.put("failedActions", failedActions.get());
+        stats.put("corruptBytes", corruptBytes.get());
+        if (properties.isEnabled()) {
+            stats.put("deadLetterFile", directory.resolve(DEAD_LETTER_FILE).toString());
+            long diskBytes = 0;
+            long pendingBytes = 0;
+            List<Long> segments = listSegments();
+            Position replayed = checkpoint;
+            for (long segment : segments) {
+                long size = sizeOf(segmentPath(segment));
+                diskBytes += size;
+                if (segment > replayed.segment()) {
+                    pendingBytes += size;
+                } else if (segment == replayed.segment()) {
+                    pendingBytes += Math.max(0, size - replayed.offset());
+                }
+            }
+            stats.put("segments", segments.size());
+            stats.put("diskBytes", diskBytes);
+            stats.put("pendingBytes", pendingBytes);
+        }
+        return stats;
+    }
+
+    // ----- writer -----
+
+    private void recover() throws IOException {
+        List<Long> segments = listSegments();
+        checkpoint = readCheckpoint().orElse(new Position(segments.isEmpty() ? 1 : segments.get(0), 0));
+
+        long lastSegment = segments.isEmpty() ? 0 : segments.getLast();
+        if (lastSegment > 0) {
+            Path last = segmentPath(lastSegment);
+            long validLength = validLength(last);
+            if (validLength < Files.size(last)) {
+                log.warn("Truncating torn tail of {} from {} to {} bytes", last, Files.size(last), validLength);
+                try (FileChannel channel = FileChannel.open(last, StandardOpenOption.WRITE)) {
+                    channel.truncate(validLength);
+                    channel.force(true);
+                }
+            }
+        }
+
+        // Never append to a segment written by an earlier run; start a fresh one
+        activeSegment = Math.max(lastSegment, checkpoint.segment()) + 1;
+        openActiveSegment();
+        durable = new Position(activeSegment, 0);
+        log.info("Bulk spool ready in {} ({} existing segments, replay from {})", directory, segments.size(), checkpoint);
+    }
+
+    // Called with the lock held
+    private void roll() throws IOException {
+        activeChannel.force(false);
+        activeChannel.close();
+        unsynced.forEach(future -> future.complete(null));
+        unsynced = new ArrayList<>();
+
+        activeSegment++;
+        openActiveSegment();
+        // The new file exists before readers learn that the previous one is complete
+        durable = new Position(activeSegment, 0);
+    }
+
+    private void openActiveSegment() throws IOException {
+        activeChannel = FileChannel.open(segmentPath(activeSegment), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        activeSize = 0;
+        // Without this the new file itself may be gone after a power loss, even once its data is synced
+        syncDirectory();
+    }
+
+    private void syncUnsynced() {
+        List<CompletableFuture<Void>> waiters;
+        FileChannel channel;
+        long segment;
+        long size;
+        synchronized (this) {
+            if (unsynced.isEmpty()) {
+                return;
+            }
+            waiters = unsynced;
+            unsynced = new ArrayList<>();
+            channel = activeChannel;
+            segment = activeSegment;
+            size = activeSize;
+        }
+
+        try {
+            channel.force(false);
+        } catch (ClosedChannelException e) {
+            // The segment was rolled in the meantime, and roll() forces it before closing
+        } catch (IOException e) {
+            log.error("Bulk spool fsync failed: {}", e.getMessage());
+            waiters.forEach(waiter -> waiter.completeExceptionally(e));
+            return;
+        }
+
+        synchronized (this) {
+            if (segment == activeSegment && size > durable.offset()) {
+                durable = new Position(segment, size);
+            }
+        }
+        waiters.forEach(waiter -> waiter.complete(null));
+    }
+
+    // ----- drainer -----
+
+    private void drainLoop() {
+        int consecutiveFailures = 0;
+        long compactedUpTo = 0;
+        while (running) {
+            try {
+                List<Entry> batch = readBatch(Math.max(1, bulkProperties.getMaxActions()));
+                if (batch.isEmpty()) {
+                    deleteReplayedSegments();
+                    Thread.sleep(properties.getDrainPollInterval().toMillis());
+                    continue;
+                }
+
+                if (replay(batch)) {
+                    checkpoint = batch.getLast().end();
+                    writeCheckpoint(checkpoint);
+                    consecutiveFailures = 0;
+                    // Under sustained ingest the drainer may never be idle, so compact as soon as a segment is done
+                    if (checkpoint.segment() > compactedUpTo) {
+                        deleteReplayedSegments();
+                        compactedUpTo = checkpoint.segment();
+                    }
+                } else {
+                    consecutiveFailures++;
+                    Thread.sleep(backoffMillis(consecutiveFailures));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                consecutiveFailures++;
+                log.error("Bulk spool drainer error: {}", e.getMessage());
+                try {
+                    Thread.sleep(backoffMillis(consecutiveFailures));
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private List<Entry> readBatch(int maxEntries) throws IOException {
+        List<Entry> batch = new ArrayList<>();
+        while (batch.size() < maxEntries) {
+            Position limit = durable;
+            Position from = batch.isEmpty() ? checkpoint : batch.getLast().end();
+            if (from.segment() > limit.segment()) {
+                break;
+            }
+
+            boolean complete = from.segment() < limit.segment();
+            Path path = segmentPath(from.segment());
+            long end = complete ? sizeOf(path) : limit.offset();
+            if (from.offset() < end) {
+                readSegment(path, from, end, maxEntries - batch.size(), batch);
+                continue;
+            }
+            if (!complete || !batch.isEmpty()) {
+                // Either caught up with the writer, or the batch ends with this segment
+                break;
+            }
+
+            OptionalLong next = nextSegment(from.segment());
+            if (next.isEmpty()) {
+                break;
+            }
+            checkpoint = new Position(next.getAsLong(), 0);
+        }
+        return batch;
+    }
+
+    private void readSegment(Path path, Position from, long end, int maxEntries, List<Entry> batch) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long offset = from.offset();
+            int read = 0;
+            while (offset < end && read < maxEntries) {
+                byte[] payload = validFrame(channel, offset, end);
+                if (payload == null) {
+                    long next = resync(channel, offset + 1, end);
+                    setAside(channel, path, offset, next);
+                    // Marker without an action, so the checkpoint moves past the corrupt bytes
+                    batch.add(new Entry(null, new Position(from.segment(), next)));
+                    offset = next;
+                    read++;
+                    continue;
+                }
+
+                offset += HEADER_BYTES + payload.length;
+                batch.add(new Entry(decode(payload), new Position(from.segment(), offset)));
+                read++;
+            }
+        }
+    }
+
+    // Payload of the frame at offset, or null if there is no intact frame there
+    private static byte[] validFrame(FileChannel channel, long offset, long end) throws IOException {
+        if (offset + HEADER_BYTES > end) {
+            return null;
+        }
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        readFully(channel, header, offset);
+        int length = header.getInt(0);
+        if (length <= 0 || offset + HEADER_BYTES + length > end) {
+            return null;
+        }
+        ByteBuffer payload = ByteBuffer.allocate(length);
+        readFully(channel, payload, offset + HEADER_BYTES);
+        return crc(payload.array(), 0, length) == header.getInt(4) ? payload.array() : null;
+    }
+
+    // Start of the next intact frame after a corrupt one, or end if the rest of the segment is unreadable
+    private static long resync(FileChannel channel, long from, long end) throws IOException {
+        for (long offset = from; offset + HEADER_BYTES < end; offset++) {
+            if (validFrame(channel, offset, end) != null) {
+                return offset;
+            }
+        }
+        return end;
+    }
+
+    // Keeps the unreadable bytes in a separate file instead of discarding them
+    private void setAside(FileChannel channel, Path path, long offset, long next) throws IOException {
+        Path aside = directory.resolve(String.format("corrupt-%s-%d.bin",
+                path.getFileName().toString().replace(SEGMENT_SUFFIX, ""), offset));
+        ByteBuffer bytes = ByteBuffer.allocate(Math.toIntExact(next - offset));
+        readFully(channel, bytes, offset);
+        Files.write(aside, bytes.array());
+        corruptBytes.addAndGet(next - offset);
+        log.error("Corrupt bulk spool entry in {} at byte {}: moved {} bytes to {}, resuming at byte {}",
+                path, offset, next - offset, aside, next);
+    }
+
+    /**
+     * Sends the batch through the bulk buffer. Returns false if anything failed in a way
+     * that is worth retrying, in which case the whole batch is replayed again later.
+     */
+    private boolean replay(List<Entry> batch) throws IOException {
+        List<CompletableFuture<BulkResponseItem>> futures = new ArrayList<>(batch.size());
+        for (Entry entry : batch) {
+            SpooledAction action = entry.action();
+            futures.add(action == null ? null : bulkWriteBuffer.add(toOperation(action), action.body().length));
+        }
+        bulkWriteBuffer.flush();
+
+        boolean settled = true;
+        long replayed = 0;
+        List<String> rejected = new ArrayList<>();
+        for (int i = 0; i < batch.size(); i++) {
+            CompletableFuture<BulkResponseItem> future = futures.get(i);
+            if (future == null) {
+                continue;
+            }
+            try {
+                BulkResponseItem item = future.join();
+                if (item.error() == null) {
+                    replayed++;
+                } else if (isRetryable(item)) {
+                    settled = false;
+                } else {
+                    rejected.add(deadLetter(batch.get(i).action(), item));
+                }
+            } catch (CompletionException e) {
+                settled = false;
+            }
+        }
+
+        if (settled) {
+            // Written before the checkpoint moves on; if this fails the batch is replayed again
+            writeDeadLetters(rejected);
+            replayedActions.addAndGet(replayed);
+            failedActions.addAndGet(rejected.size());
+        } else {
+            log.warn("Replay of {} spooled actions did not go through, will retry", batch.size());
+        }
+        return settled;
+    }
+
+    private String deadLetter(SpooledAction action, BulkResponseItem item) throws IOException {
+        log.warn("Spooled {} of {}/{} rejected with {}, moving it to {}: {}", action.type(), item.index(), item.id(),
+                item.status(), DEAD_LETTER_FILE, item.error().reason());
+        ObjectNode line = objectMapper.createObjectNode();
+        line.put("time", Instant.now().toString());
+        line.put("type", action.type().name());
+        line.put("index", action.index());
+        line.put("id", action.id());
+        line.put("status", item.status());
+        line.put("error", item.error().type() + ": " + item.error().reason());
+        if (action.body().length > 0) {
+            try {
+                line.set("body", objectMapper.readTree(action.body()));
+            } catch (IOException e) {
+                line.put("body", new String(action.body(), StandardCharsets.UTF_8));
+            }
+        }
+        return objectMapper.writeValueAsString(line);
+    }
+
+    private void writeDeadLetters(List<String> lines) throws IOException {
+        if (lines.isEmpty()) {
+            return;
+        }
+        StringBuilder content = new StringBuilder();
+        lines.forEach(line -> content.append(line).append('\n'));
+        try (FileChannel channel = FileChannel.open(directory.resolve(DEAD_LETTER_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            ByteBuffer bytes = ByteBuffer.wrap(content.toString().getBytes(StandardCharsets.UTF_8));
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+            channel.force(false);
+        }
+    }
+
+    private BulkOperation toOperation(SpooledAction action) throws IOException {
+        return switch (action.type()) {
+            case INDEX -> BulkOperation.of(b -> b.index(i -> i
+                    .index(action.index())
+                    .id(action.id())
+                    .document(BinaryData.of(action.body(), ContentType.APPLICATION_JSON))));
+            case UPDATE -> {
+                Map<String, Object> body = objectMapper.readValue(action.body(), MAP_TYPE);
+                Object doc = body.get("doc");
+                Object upsert = body.get("upsert");
+                yield BulkOperation.of(b -> b.<Object, Object>update(u -> u
+                        .index(action.index())
+                        .id(action.id())
+                        .action(a -> {
+                            a.doc(doc);
+                            if (upsert != null) {
+                                a.upsert(upsert);
+                            }
+                            return a;
+                        })));
+            }
+            case DELETE -> BulkOperation.of(b -> b.delete(d -> d
+                    .index(action.index())
+                    .id(action.id())));
+        };
+    }
+
+    private void deleteReplayedSegments() {
+        long replayedUpTo = checkpoint.segment();
+        for (long segment : listSegments()) {
+            if (segment < replayedUpTo && segment < durable.segment()) {
+                try {
+                    Files.deleteIfExists(segmentPath(segment));
+                    log.debug("Deleted replayed spool segment {}", segment);
+                } catch (IOException e) {
+                    log.warn("Could not delete spool segment {}: {}", segment, e.getMessage());
+                }
+            }
+        }
+    }
+
+    private long backoffMillis(int attempt) {
+        long initial = Math.max(1, bulkProperties.getInitialBackoff().toMillis());
+        long max = Math.max(initial, bulkProperties.getMaxBackoff().toMillis());
+        long delay = Math.min(max, initial << Math.min(attempt - 1, 30));
+        return delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+    }
+
+    // A write block (403 cluster_block_exception) is lifted again: reindex swap, end of a bulk load, disk freed
+    private static boolean isRetryable(BulkResponseItem item) {
+        int status = item.status();
+        return status == 429 || status >= 500
+                || (status == 403 && "cluster_block_exception".equals(item.error().type()));
+    }
+
+    // ----- files and encoding -----
+
+    private Path segmentPath(long segment) {
+        return directory.resolve(String.format("%s%019d%s", SEGMENT_PREFIX, segment, SEGMENT_SUFFIX));
+    }
+
+    private List<Long> listSegments() {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX))
+                    .map(name -> Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())))
+                    .sorted()
+                    .toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private OptionalLong nextSegment(long after) {
+        return listSegments().stream().mapToLong(Long::longValue).filter(segment -> segment > after).min();
+    }
+
+    private static long sizeOf(Path path) {
+        try {
+            return Files.exists(path) ? Files.size(path) : 0;
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private Optional<Position> readCheckpoint() throws IOException {
+        Path file = directory.resolve(CHECKPOINT_FILE);
+        if (!Files.exists(file)) {
+            return Optional.empty();
+        }
+        String content = new String(Files.readAllBytes(file), StandardCharsets.US_ASCII).trim();
+        String[] parts = content.split("\\s+");
+        try {
+            if (parts.length == 2) {
+                Position position = new Position(Long.parseLong(parts[0]), Long.parseLong(parts[1]));
+                if (position.segment() > 0 && position.offset() >= 0) {
+                    return Optional.of(position);
+                }
+            }
+        } catch (NumberFormatException e) {
+            // handled below
+        }
+        // Replaying from the oldest segment only repeats actions, which delivery allows anyway
+        log.warn("Ignoring unreadable bulk spool checkpoint {} ('{}'), replaying from the oldest segment", file, content);
+        return Optional.empty();
+    }
+
+    private void writeCheckpoint(Position position) throws IOException {
+        Path temp = directory.resolve(CHECKPOINT_FILE + ".tmp");
+        ByteBuffer content = ByteBuffer.wrap((position.segment() + " " + position.offset())
+                .getBytes(StandardCharsets.US_ASCII));
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (content.hasRemaining()) {
+                channel.write(content);
+            }
+            channel.force(true);
+        }
+        Files.move(temp, directory.resolve(CHECKPOINT_FILE),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        syncDirectory();
+    }
+
+    // Makes file creations and renames in the spool directory durable
+    private void syncDirectory() {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Some platforms (e.g. Windows) cannot open a directory; nothing more can be done there
+            log.debug("Cannot fsync spool directory {}: {}", directory, e.getMessage());
+        }
+    }
+
+    // Length without a torn tail: up to the first bad frame, unless an intact frame follows it.
+    // Corruption in the middle is left to the drainer, which sets it aside and resyncs
+    private static long validLength(Path segment) throws IOException {
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long offset = 0;
+            byte[] payload;
+            while (offset < size && (payload = validFrame(channel, offset, size)) != null) {
+                offset += HEADER_BYTES + payload.length;
+            }
+            return offset < size && resync(channel, offset + 1, size) < size ? size : offset;
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new EOFException("Unexpected end of spool segment at byte " + position);
+            }
+        }
+    }
+
+    private static ByteBuffer encode(SpooledAction action) {
+        byte[] index = keyBytes("index", action.index());
+        byte[] id = keyBytes("id", action.id());
+        int payloadLength = 1 + 2 + index.length + 2 + id.length + action.body().length;
+
+        ByteBuffer record = ByteBuffer.allocate(HEADER_BYTES + payloadLength);
+        record.putInt(payloadLength).putInt(0);
+        record.put((byte) action.type().ordinal())
+                .putShort((short) index.length).put(index)
+                .putShort((short) id.length).put(id)
+                .put(action.body());
+        record.putInt(4, crc(record.array(), HEADER_BYTES, payloadLength));
+        return record.flip();
+    }
+
+    private static byte[] keyBytes(String name, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > MAX_KEY_BYTES) {
+            throw new IllegalArgumentException(
+                    "Spooled " + name + " is " + bytes.length + " bytes, at most " + MAX_KEY_BYTES + " are allowed");
+        }
+        return bytes;
+    }
+
+    private static SpooledAction decode(byte[] payload) {
+        ByteBuffer in = ByteBuffer.wrap(payload);
+        ActionType type = ActionType.values()[in.get()];
+        String index = readString(in);
+        String id = readString(in);
+        byte[] body = new byte[in.remaining()];
+        in.get(body);
+        return new SpooledAction(type, index, id, body);
+    }
+
+    private static String readString(ByteBuffer in) {
+        byte[] bytes = new byte[in.getShort() & 0xFFFF];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int crc(byte[] bytes, int offset, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes, offset, length);
+        return (int) crc.getValue();
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        running = false;
+        drainer.interrupt();
+        drainer.join(TimeUnit.SECONDS.toMillis(5));
+        fsyncScheduler.shutdown();
+        syncUnsynced();
+        synchronized (this) {
+            try {
+                activeChannel.close();
+            } catch (IOException e) {
+                log.warn("Closing bulk spool segment failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    private record Position(long segment, long offset) {
+    }
+
+    private record Entry(SpooledAction action, Position end) {
+    }
+}
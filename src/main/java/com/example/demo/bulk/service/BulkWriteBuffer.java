@@ -0,0 +1,362 @@
+package com.example.demo.bulk.service;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.ElasticsearchException;
+import co.elastic.clients.elasticsearch._types.Refresh;
+import co.elastic.clients.elasticsearch.core.BulkRequest;
+import co.elastic.clients.elasticsearch.core.bulk.BulkOperation;
+import co.elastic.clients.elasticsearch.core.bulk.BulkResponseItem;
+import com.example.demo.cache.service.QueryCacheInvalidator;
+import com.example.demo.config.BulkProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Shared buffer that every bulk write path goes through. Actions are collected and
+ * sent as one bulk request when the buffer reaches the batch size, {@code bulk.ingest.max-bytes}
+ * or {@code bulk.ingest.max-linger}, whichever comes first. Each added action gets a future
+ * that completes with its own bulk response item.
+ * <p>
+ * Bulk requests are sent on background threads with a limited number in flight. The batch size
+ * and that limit come from {@link AdaptiveBulkController}, which tunes them to the latency and
+ * rejections of completed requests (or keeps {@code bulk.ingest.max-actions} and
+ * {@code bulk.ingest.max-concurrent-requests} when adaptation is off). When the window is full,
+ * producers wait up to {@code bulk.ingest.backpressure-timeout} for a slot; after that
+ * the batch is rejected with a {@link RejectedExecutionException}.
+ * <p>
+ * Items that Elasticsearch rejects with 429 or 503 are resent on their own, with
+ * exponential backoff and jitter, up to {@code bulk.ingest.max-retries} times.
+ * <p>
+ * The refresh policy is per caller. Each batch is split into consecutive runs of actions with the
+ * same refresh policy, sent one after the other in arrival order, so one caller's {@code refresh=true}
+ * or {@code wait_for} never applies to other callers' actions, and a create followed by an update or
+ * delete of the same id still reaches Elasticsearch in that order.
+ * {@code wait_for} on an index in bulk-load mode is sent as {@code false}: that index does not
+ * refresh until the load ends, and its final refresh makes the write visible.
+ * <p>
+ * Once a bulk request has been answered, the cached search results of every index it wrote to
+ * are cleared.
+ */
+@Slf4j
+@Component
+public class BulkWriteBuffer implements DisposableBean {
+
+    // Rough size of the action/metadata line that precedes each document
+    private static final int ACTION_LINE_OVERHEAD_BYTES = 64;
+
+    private final ElasticsearchClient elasticsearchClient;
+    private final BulkProperties properties;
+    private final ScheduledExecutorService lingerScheduler;
+    private final ExecutorService requestExecutor;
+    private final AdaptiveBulkController adaptiveController;
+    private final QueryCacheInvalidator queryCacheInvalidator;
+    private final BulkLoadService bulkLoadService;
+
+    // In-flight request count; the limit can change while producers are waiting for a slot
+    private final ReentrantLock slotLock = new ReentrantLock();
+    private final Condition slotReleased = slotLock.newCondition();
+    private volatile int inFlightRequests;
+
+    private List<PendingAction> pending = new ArrayList<>();
+    private long pendingBytes;
+    private long oldestPendingNanos;
+
+    public BulkWriteBuffer(ElasticsearchClient elasticsearchClient, BulkProperties properties,
+                           AdaptiveBulkController adaptiveController, QueryCacheInvalidator queryCacheInvalidator,
+                           BulkLoadService bulkLoadService) {
+        this.elasticsearchClient = elasticsearchClient;
+        this.properties = properties;
+        this.adaptiveController = adaptiveController;
+        this.queryCacheInvalidator = queryCacheInvalidator;
+        this.bulkLoadService = bulkLoadService;
+        this.requestExecutor = Executors.newThreadPerTaskExecutor(
+                Thread.ofVirtual().name("bulk-request-", 0).factory());
+        this.lingerScheduler = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("bulk-linger").daemon().factory());
+        long lingerMs = Math.max(1, properties.getMaxLinger().toMillis());
+        this.lingerScheduler.scheduleWithFixedDelay(this::flushIfLingering, lingerMs, lingerMs, TimeUnit.MILLISECONDS);
+    }
+
+    public CompletableFuture<BulkResponseItem> add(BulkOperation operation, long sourceBytes) {
+        return add(operation, sourceBytes, Refresh.False);
+    }
+
+    /**
+     * Queues one bulk action. {@code sourceBytes} is the serialized document size
+     * (0 for deletes) and is used for the byte-size flush threshold. The action is sent
+     * in a bulk request with exactly this refresh policy.
+     */
+    public CompletableFuture<BulkResponseItem> add(BulkOperation operation, long sourceBytes, Refresh refresh) {
+        if (refresh == Refresh.WaitFor && bulkLoadService.isBulkLoading(indexOf(operation))) {
+            // Would block until the load ends
+            refresh = Refresh.False;
+        }
+        PendingAction action = new PendingAction(operation, refresh, new CompletableFuture<>());
+        List<PendingAction> batch = null;
+
+        synchronized (this) {
+            if (pending.isEmpty()) {
+                oldestPendingNanos = System.nanoTime();
+            }
+            pending.add(action);
+            pendingBytes += sourceBytes + ACTION_LINE_OVERHEAD_BYTES;
+
+            if (pending.size() >= adaptiveController.batchActions()
+                    || pendingBytes >= properties.getMaxBytes().toBytes()) {
+                batch = drain();
+            }
+        }
+
+        if (batch != null) {
+            dispatch(batch);
+        }
+        return action.future();
+    }
+
+    /**
+     * Sends whatever is buffered right now.
+     */
+    public void flush() {
+        List<PendingAction> batch;
+        synchronized (this) {
+            batch = drain();
+        }
+        dispatch(batch);
+    }
+
+    public int getInFlightRequests() {
+        return inFlightRequests;
+    }
+
+    private void flushIfLingering() {
+        List<PendingAction> batch;
+        synchronized (this) {
+            if (pending.isEmpty()
+                    || System.nanoTime() - oldestPendingNanos < properties.getMaxLinger().toNanos()) {
+                return;
+            }
+            batch = drain();
+        }
+        dispatch(batch);
+    }
+
+    private List<PendingAction> drain() {
+        List<PendingAction> batch = pending;
+        pending = new ArrayList<>();
+        pendingBytes = 0;
+        return batch;
+    }
+
+    private void dispatch(List<PendingAction> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        if (!acquireSlot()) {
+            RejectedExecutionException rejected = new RejectedExecutionException(
+                    "Bulk pipeline is full: " + getInFlightRequests() + " requests in flight");
+            log.warn("Rejecting bulk batch of {} actions: {}", batch.size(), rejected.getMessage());
+            batch.forEach(action -> action.future().completeExceptionally(rejected));
+            return;
+        }
+
+        long epoch = adaptiveController.epoch();
+        try {
+            requestExecutor.execute(() -> {
+                try {
+                    execute(batch, epoch);
+                } finally {
+                    releaseSlot();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            releaseSlot();
+            batch.forEach(action -> action.future().completeExceptionally(e));
+        }
+    }
+
+    private boolean acquireSlot() {
+        long remainingNanos = properties.getBackpressureTimeout().toNanos();
+        slotLock.lock();
+        try {
+            while (inFlightRequests >= adaptiveController.maxInFlight()) {
+                if (remainingNanos <= 0) {
+                    return false;
+                }
+                remainingNanos = slotReleased.awaitNanos(remainingNanos);
+            }
+            inFlightRequests++;
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            slotLock.unlock();
+        }
+    }
+
+    private void releaseSlot() {
+        slotLock.lock();
+        try {
+            inFlightRequests--;
+            // Wake everyone: the limit may have been raised by more than one
+            slotReleased.signalAll();
+        } finally {
+            slotLock.unlock();
+        }
+    }
+
+    private void execute(List<PendingAction> batch, long epoch) {
+        // One request per run of the same refresh policy; each run is settled before the next is sent
+        int start = 0;
+        for (int i = 1; i <= batch.size(); i++) {
+            if (i == batch.size() || batch.get(i).refresh() != batch.get(start).refresh()) {
+                execute(batch.subList(start, i), batch.get(start).refresh(), epoch);
+                start = i;
+            }
+        }
+    }
+
+    private void execute(List<PendingAction> batch, Refresh refresh, long epoch) {
+        List<PendingAction> remaining = batch;
+        for (int attempt = 0; !remaining.isEmpty(); attempt++) {
+            if (attempt > 0) {
+                long delayMs = backoffMillis(attempt);
+                log.warn("Retrying {} rejected bulk actions in {} ms (attempt {}/{})",
+                        remaining.size(), delayMs, attempt, properties.getMaxRetries());
+                try {
+                    Thread.sleep(delayMs);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    remaining.forEach(action -> action.future().completeExceptionally(e));
+                    return;
+                }
+            }
+            remaining = send(remaining, refresh, attempt < properties.getMaxRetries(), epoch);
+        }
+    }
+
+    /**
+     * Sends one bulk request and completes the futures of every settled item.
+     * Returns the actions that were rejected with a retryable status and should be resent.
+     */
+    private List<PendingAction> send(List<PendingAction> batch, Refresh refresh, boolean retryAllowed, long epoch) {
+        List<BulkOperation> operations = new ArrayList<>(batch.size());
+        for (PendingAction action : batch) {
+            operations.add(action.operation());
+        }
+
+        List<PendingAction> retryable = new ArrayList<>();
+        long startNanos = System.nanoTime();
+        try {
+            co.elastic.clients.elasticsearch.core.BulkResponse response =
+                    elasticsearchClient.bulk(BulkRequest.of(r -> r.operations(operations).refresh(refresh)));
+            long latencyNanos = System.nanoTime() - startNanos;
+            List<BulkResponseItem> items = response.items();
+            int rejected = 0;
+            for (int i = 0; i < batch.size(); i++) {
+                BulkResponseItem item = items.get(i);
+                if (isRetryable(item.status())) {
+                    rejected++;
+                }
+                if (retryAllowed && isRetryable(item.status())) {
+                    retryable.add(batch.get(i));
+                } else {
+                    batch.get(i).future().complete(item);
+                }
+            }
+            // With a refresh the request also waits for it, which says nothing about indexing load
+            adaptiveController.onCompleted(epoch, refresh == Refresh.False ? latencyNanos : AdaptiveBulkController.NOT_TIMED,
+                    batch.size(), rejected);
+            log.debug("Bulk request with {} actions took {} ms, errors={}, retryable={}",
+                    batch.size(), response.took(), response.errors(), retryable.size());
+        } catch (ElasticsearchException e) {
+            adaptiveController.onFailed(epoch, "status " + e.status());
+            if (retryAllowed && isRetryable(e.status())) {
+                log.warn("Bulk request with {} actions rejected with status {}", batch.size(), e.status());
+                return batch;
+            }
+            log.error("Bulk request with {} actions failed: {}", batch.size(), e.getMessage());
+            batch.forEach(action -> action.future().completeExceptionally(e));
+        } catch (Exception e) {
+            adaptiveController.onFailed(epoch, e.getMessage());
+            log.error("Bulk request with {} actions failed: {}", batch.size(), e.getMessage());
+            batch.forEach(action -> action.future().completeExceptionally(e));
+        } finally {
+            // Also after a failed request: some of its actions may have been applied
+            invalidateCaches(operations);
+        }
+        return retryable;
+    }
+
+    private void invalidateCaches(List<BulkOperation> operations) {
+        Set<String> indices = new LinkedHashSet<>();
+        for (BulkOperation operation : operations) {
+            String index = indexOf(operation);
+            if (index != null) {
+                indices.add(index);
+            }
+        }
+        indices.forEach(queryCacheInvalidator::invalidate);
+    }
+
+    static Refresh strongest(Refresh a, Refresh b) {
+        if (a == Refresh.True || b == Refresh.True) {
+            return Refresh.True;
+        }
+        if (a == Refresh.WaitFor || b == Refresh.WaitFor) {
+            return Refresh.WaitFor;
+        }
+        return Refresh.False;
+    }
+
+    private static String indexOf(BulkOperation operation) {
+        return switch (operation._kind()) {
+            case Index -> operation.index().index();
+            case Create -> operation.create().index();
+            case Update -> operation.update().index();
+            case Delete -> operation.delete().index();
+        };
+    }
+
+    private static boolean isRetryable(int status) {
+        // 429 covers es_rejected_execution_exception when the write thread pool queue is full
+        return status == 429 || status == 503;
+    }
+
+    private long backoffMillis(int attempt) {
+        long initial = Math.max(1, properties.getInitialBackoff().toMillis());
+        long max = Math.max(initial, properties.getMaxBackoff().toMillis());
+        long delay = Math.min(max, initial << Math.min(attempt - 1, 30));
+        // Equal jitter: half fixed, half random, so rejected producers do not retry in lockstep
+        return delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        lingerScheduler.shutdown();
+        flush();
+        requestExecutor.shutdown();
+        if (!requestExecutor.awaitTermination(30, TimeUnit.SECONDS)) {
+            log.warn("Bulk requests still in flight at shutdown");
+        }
+    }
+
+    private record PendingAction(BulkOperation operation, Refresh refresh, CompletableFuture<BulkResponseItem> future) {
+    }
+}
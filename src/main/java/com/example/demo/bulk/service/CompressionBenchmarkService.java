@@ -0,0 +1,173 @@
+package com.example.demo.bulk.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.elasticsearch.ElasticsearchProperties;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Measures what gzip saves on the two heaviest wire paths: bulk request bodies and large
+ * match-all search responses. Requests are sent with the JDK HTTP client so the bytes on the
+ * wire are visible (the Elasticsearch client decodes compressed responses transparently).
+ * Latencies include compressing the request or decompressing the response on our side.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CompressionBenchmarkService {
+
+    private static final String BENCHMARK_INDEX = "products_gzipbench";
+    private static final int MAX_SEARCH_SIZE = 10_000;
+
+    private final ElasticsearchProperties elasticsearchProperties;
+    private final ElasticsearchOperations elasticsearchOperations;
+
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+
+    public String compare(int count, int rounds) throws IOException, InterruptedException {
+        byte[] bulkBody = bulkBody(BenchmarkProducts.sources(elasticsearchOperations.getElasticsearchConverter(), count));
+        String searchBody = "{\"size\":" + Math.min(count, MAX_SEARCH_SIZE) + ",\"query\":{\"match_all\":{}}}";
+
+        Measurement bulkPlain = new Measurement();
+        Measurement bulkGzip = new Measurement();
+        Measurement searchPlain = new Measurement();
+        Measurement searchGzip = new Measurement();
+
+        try {
+            for (int round = 0; round < rounds; round++) {
+                bulkPlain.add(sendBulk(bulkBody, false));
+                bulkGzip.add(sendBulk(bulkBody, true));
+            }
+            send(request("/" + BENCHMARK_INDEX + "/_refresh").POST(HttpRequest.BodyPublishers.noBody()).build());
+
+            for (int round = 0; round < rounds; round++) {
+                searchPlain.add(search(searchBody, false));
+                searchGzip.add(search(searchBody, true));
+            }
+        } finally {
+            send(request("/" + BENCHMARK_INDEX).DELETE().build());
+        }
+
+        return String.format(
+                "Compression Benchmark (%d documents, average of %d rounds):\n" +
+                "Bulk request body: plain %d KB in %.1f ms, gzip %d KB in %.1f ms (%.0f%% fewer bytes)\n" +
+                "Match-all response: plain %d KB in %.1f ms, gzip %d KB in %.1f ms (%.0f%% fewer bytes)",
+                count, rounds,
+                bulkPlain.averageKb(), bulkPlain.averageMs(), bulkGzip.averageKb(), bulkGzip.averageMs(),
+                bulkGzip.savedPercent(bulkPlain),
+                searchPlain.averageKb(), searchPlain.averageMs(), searchGzip.averageKb(), searchGzip.averageMs(),
+                searchGzip.savedPercent(searchPlain));
+    }
+
+    private long[] sendBulk(byte[] body, boolean gzip) throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        byte[] payload = gzip ? gzip(body) : body;
+        HttpRequest.Builder builder = request("/_bulk")
+                .header("Content-Type", "application/x-ndjson")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(payload));
+        if (gzip) {
+            builder.header("Content-Encoding", "gzip");
+        }
+        send(builder.build());
+        return new long[]{payload.length, System.nanoTime() - start};
+    }
+
+    private long[] search(String body, boolean gzip) throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        HttpRequest request = request("/" + BENCHMARK_INDEX + "/_search")
+                .header("Content-Type", "application/json")
+                .header("Accept-Encoding", gzip ? "gzip" : "identity")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        HttpResponse<byte[]> response = send(request);
+        byte[] raw = response.body();
+        boolean compressed = response.headers().firstValue("Content-Encoding").map("gzip"::equalsIgnoreCase).orElse(false);
+        if (compressed) {
+            try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(raw))) {
+                in.readAllBytes();
+            }
+        }
+        return new long[]{raw.length, System.nanoTime() - start};
+    }
+
+    private HttpResponse<byte[]> send(HttpRequest request) throws IOException, InterruptedException {
+        HttpResponse<byte[]> response = httpClient.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() >= 300 && response.statusCode() != 404) {
+            log.warn("Benchmark request {} {} returned {}", request.method(), request.uri(), response.statusCode());
+        }
+        return response;
+    }
+
+    private HttpRequest.Builder request(String path) {
+        String baseUri = elasticsearchProperties.getUris().get(0).replaceAll("/+$", "");
+        String prefix = StringUtils.hasText(elasticsearchProperties.getPathPrefix())
+                ? "/" + elasticsearchProperties.getPathPrefix().replaceAll("^/+|/+$", "")
+                : "";
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(baseUri + prefix + path));
+        if (StringUtils.hasText(elasticsearchProperties.getUsername())) {
+            String credentials = elasticsearchProperties.getUsername() + ":" + elasticsearchProperties.getPassword();
+            builder.header("Authorization",
+                    "Basic " + Base64.getEncoder().encodeToString(credentials.getBytes(StandardCharsets.UTF_8)));
+        }
+        return builder;
+    }
+
+    private static byte[] bulkBody(List<byte[]> sources) throws IOException {
+        byte[] actionLine = ("{\"index\":{\"_index\":\"" + BENCHMARK_INDEX + "\"}}\n").getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        for (byte[] source : sources) {
+            body.write(actionLine);
+            body.write(source);
+            body.write('\n');
+        }
+        return body.toByteArray();
+    }
+
+    private static byte[] gzip(byte[] data) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(data.length / 4);
+        try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+            out.write(data);
+        }
+        return compressed.toByteArray();
+    }
+
+    private static final class Measurement {
+        private long bytes;
+        private long nanos;
+        private int samples;
+
+        void add(long[] sample) {
+            bytes += sample[0];
+            nanos += sample[1];
+            samples++;
+        }
+
+        long averageKb() {
+            return samples == 0 ? 0 : bytes / samples / 1024;
+        }
+
+        double averageMs() {
+            return samples == 0 ? 0 : nanos / 1_000_000.0 / samples;
+        }
+
+        double savedPercent(Measurement baseline) {
+            return baseline.bytes == 0 ? 0 : 100.0 * (baseline.bytes - bytes) / baseline.bytes;
+        }
+    }
+}
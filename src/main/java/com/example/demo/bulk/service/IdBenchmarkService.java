@@ -0,0 +1,112 @@
+package com.example.demo.bulk.service;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch.core.bulk.BulkOperation;
+import co.elastic.clients.util.BinaryData;
+import co.elastic.clients.util.ContentType;
+import com.example.demo.bulk.model.Product;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.IndexOperations;
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares ID strategies by indexing the same products into a scratch index per strategy.
+ * Rounds alternate the order of the strategies so neither benefits from a warmer cluster,
+ * and the best round of each is reported. Scratch indices are deleted afterwards.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class IdBenchmarkService {
+
+    private static final String BENCHMARK_INDEX_PREFIX = "products_idbench_";
+
+    private final ElasticsearchClient elasticsearchClient;
+    private final ElasticsearchOperations elasticsearchOperations;
+    private final IdGenerators idGenerators;
+
+    public String compareStrategies(int count, int batchSize, int rounds) throws IOException {
+        List<byte[]> sources = BenchmarkProducts.sources(elasticsearchOperations.getElasticsearchConverter(), count);
+        List<String> strategies = idGenerators.strategies();
+        Map<String, Long> bestMs = new LinkedHashMap<>();
+        Map<String, Long> storeBytes = new LinkedHashMap<>();
+
+        for (int round = 0; round < rounds; round++) {
+            List<String> order = new ArrayList<>(strategies);
+            if (round % 2 == 1) {
+                order = order.reversed();
+            }
+            for (String strategy : order) {
+                String index = BENCHMARK_INDEX_PREFIX + strategy.replace('-', '_');
+                try {
+                    long elapsedMs = indexAll(index, idGenerators.forStrategy(strategy), sources, batchSize);
+                    bestMs.merge(strategy, elapsedMs, Math::min);
+                    storeBytes.put(strategy, storeSize(index));
+                } finally {
+                    elasticsearchClient.indices().delete(d -> d.index(index).ignoreUnavailable(true));
+                }
+            }
+        }
+
+        StringBuilder result = new StringBuilder(String.format(
+                "ID Strategy Benchmark (%d documents, batch size %d, best of %d rounds):\n", count, batchSize, rounds));
+        for (String strategy : strategies) {
+            IdGenerator generator = idGenerators.forStrategy(strategy);
+            long elapsedMs = bestMs.get(strategy);
+            result.append(String.format(
+                    "%s: %d ms (%.0f docs/s), store size %d KB, generation %.0f ns/id, sample id %s\n",
+                    strategy, elapsedMs, count * 1000.0 / Math.max(1, elapsedMs),
+                    storeBytes.get(strategy) / 1024, generationNanos(generator, count), generator.nextId()));
+        }
+        return result.toString();
+    }
+
+    private long indexAll(String index, IdGenerator generator, List<byte[]> sources, int batchSize) throws IOException {
+        IndexOperations indexOps = elasticsearchOperations.indexOps(IndexCoordinates.of(index));
+        indexOps.delete();
+        indexOps.create(indexOps.createSettings(Product.class), indexOps.createMapping(Product.class));
+
+        long start = System.nanoTime();
+        for (int from = 0; from < sources.size(); from += batchSize) {
+            List<BulkOperation> operations = new ArrayList<>(batchSize);
+            for (byte[] source : sources.subList(from, Math.min(from + batchSize, sources.size()))) {
+                String id = generator.nextId();
+                operations.add(BulkOperation.of(b -> b.index(i -> i
+                        .index(index)
+                        .id(id)
+                        .document(BinaryData.of(source, ContentType.APPLICATION_JSON)))));
+            }
+            if (elasticsearchClient.bulk(r -> r.operations(operations)).errors()) {
+                log.warn("Benchmark bulk request into {} reported item errors", index);
+            }
+        }
+        elasticsearchClient.indices().refresh(r -> r.index(index));
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+
+    private long storeSize(String index) throws IOException {
+        // Merge down first so the size reflects the terms dictionary rather than leftover segments
+        elasticsearchClient.indices().forcemerge(f -> f.index(index).maxNumSegments(1L));
+        return elasticsearchClient.indices().stats(s -> s.index(index))
+                .indices().get(index).primaries().store().sizeInBytes();
+    }
+
+    private static double generationNanos(IdGenerator generator, int count) {
+        long start = System.nanoTime();
+        int checksum = 0;
+        for (int i = 0; i < count; i++) {
+            checksum += generator.nextId().length();
+        }
+        long elapsed = System.nanoTime() - start;
+        return checksum > 0 ? (double) elapsed / count : 0;
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.demo.bulk.service;
+
+/**
+ * Generates IDs for new documents. Implementations must be safe to call from many threads.
+ */
+public interface IdGenerator {
+
+    /**
+     * Name used to select this generator in {@code bulk.ids.*}.
+     */
+    String strategy();
+
+    String nextId();
+}
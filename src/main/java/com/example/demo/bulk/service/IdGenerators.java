@@ -0,0 +1,49 @@
+package com.example.demo.bulk.service;
+
+import com.example.demo.config.IdProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Picks the {@link IdGenerator} configured for an index in {@code bulk.ids.indices.<index>},
+ * falling back to {@code bulk.ids.default-strategy}. Unknown strategy names fail at startup.
+ */
+@Component
+public class IdGenerators {
+
+    private final Map<String, IdGenerator> byStrategy;
+    private final IdProperties properties;
+
+    public IdGenerators(List<IdGenerator> generators, IdProperties properties) {
+        this.byStrategy = generators.stream()
+                .collect(Collectors.toMap(IdGenerator::strategy, Function.identity()));
+        this.properties = properties;
+
+        lookup(properties.getDefaultStrategy());
+        properties.getIndices().values().forEach(this::lookup);
+    }
+
+    public IdGenerator forIndex(String index) {
+        return lookup(properties.getIndices().getOrDefault(index, properties.getDefaultStrategy()));
+    }
+
+    public IdGenerator forStrategy(String strategy) {
+        return lookup(strategy);
+    }
+
+    public List<String> strategies() {
+        return byStrategy.keySet().stream().sorted().toList();
+    }
+
+    private IdGenerator lookup(String strategy) {
+        IdGenerator generator = byStrategy.get(strategy);
+        if (generator == null) {
+            throw new IllegalArgumentException("Unknown ID strategy '" + strategy + "', expected one of " + strategies());
+        }
+        return generator;
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.demo.bulk.service;
+
+import com.example.demo.bulk.dto.ProductDto;
+import com.example.demo.bulk.model.Product;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * Stable hash of the indexed content of a product: name, description, category, price, stock,
+ * active, brand and sku. Ids and timestamps are left out, so re-sending an unchanged product
+ * yields the same hash. Missing fields are hashed as absent, which keeps "no description" and
+ * an empty description apart, and prices are hashed as the double Elasticsearch stores, so
+ * {@code 10}, {@code 10.00} and the value read back from the index all agree.
+ * <p>
+ * The hash is the first 128 bits of a SHA-256 digest, URL-safe base64 encoded (22 characters).
+ */
+public final class ProductContentHash {
+
+    public static final String FIELD = "contentHash";
+
+    // Stored when a write changed some fields without knowing the rest of the document
+    public static final String UNKNOWN = "";
+
+    // Source fields needed to rebuild the content of a stored product and compare its hash
+    public static final String[] SOURCE_FIELDS = {
+            "name", "description", "category", "price", "stock", "active", "brand", "sku", FIELD};
+
+    private static final int HASH_BYTES = 16;
+
+    private ProductContentHash() {
+    }
+
+    public static String of(Product product) {
+        return hash(product.getName(), product.getDescription(), product.getCategory(), product.getPrice(),
+                product.getStock(), product.getActive(), product.getBrand(), product.getSku());
+    }
+
+    /**
+     * Hash of the product created from {@code dto}, with {@code active} defaulting to true.
+     */
+    public static String of(ProductDto dto) {
+        return hash(dto.getName(), dto.getDescription(), dto.getCategory(), dto.getPrice(), dto.getStock(),
+                dto.getActive() != null ? dto.getActive() : Boolean.TRUE, dto.getBrand(), dto.getSku());
+    }
+
+    private static String hash(String name, String description, String category, BigDecimal price,
+                               Integer stock, Boolean active, String brand, String sku) {
+        MessageDigest digest = sha256();
+        update(digest, name);
+        update(digest, description);
+        update(digest, category);
+        update(digest, price == null ? null
+                : BigDecimal.valueOf(price.doubleValue()).stripTrailingZeros().toPlainString());
+        update(digest, stock == null ? null : stock.toString());
+        update(digest, active == null ? null : active.toString());
+        update(digest, brand);
+        update(digest, sku);
+
+        byte[] hash = digest.digest();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(hash, HASH_BYTES));
+    }
+
+    // Each field is a presence byte, then its length and UTF-8 bytes, so fields cannot run into each other
+    private static void update(MessageDigest digest, String value) {
+        if (value == null) {
+            digest.update((byte) 0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        digest.update((byte) 1);
+        digest.update(ByteBuffer.allocate(Integer.BYTES).putInt(bytes.length).array());
+        digest.update(bytes);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.demo.bulk.service;
+
+import com.example.demo.bulk.model.Product;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.IndexOperations;
+import org.springframework.data.elasticsearch.core.document.Document;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Adds the {@link ProductContentHash#FIELD} mapping to a {@code products} index that was
+ * created before the field existed. New indices get it from {@link Product}; without this an
+ * existing index would map the field dynamically as text plus keyword on the first write.
+ * <p>
+ * A field that is already mapped differently cannot be changed in place; that is logged and
+ * fixed by reindexing, which creates the new index from the entity mapping. Runs before the
+ * startup import so the importer's first writes already see the mapping.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@RequiredArgsConstructor
+@Slf4j
+public class ProductMappingUpdater implements ApplicationRunner {
+
+    private final ElasticsearchOperations elasticsearchOperations;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        try {
+            IndexOperations indexOps = elasticsearchOperations.indexOps(Product.class);
+            if (!indexOps.exists()) {
+                // Created with the full mapping on first use
+                return;
+            }
+            Object expected = properties(indexOps.createMapping(Product.class)).get(ProductContentHash.FIELD);
+            Object current = properties(indexOps.getMapping()).get(ProductContentHash.FIELD);
+            if (current == null) {
+                Document mapping = Document.create();
+                mapping.put("properties", Map.of(ProductContentHash.FIELD, expected));
+                indexOps.putMapping(mapping);
+                log.info("Added {} mapping {} to index {}", ProductContentHash.FIELD, expected,
+                        indexOps.getIndexCoordinates().getIndexName());
+            } else if (!current.equals(expected)) {
+                log.warn("{} is mapped as {} in index {} instead of {}; reindex to apply the new mapping",
+                        ProductContentHash.FIELD, current, indexOps.getIndexCoordinates().getIndexName(), expected);
+            }
+        } catch (RuntimeException e) {
+            // The cluster may be down at startup; writes still work, the field is then mapped dynamically
+            log.warn("Could not check the {} mapping: {}", ProductContentHash.FIELD, e.getMessage());
+        }
+    }
+
+    private static Map<?, ?> properties(Map<String, Object> mapping) {
+        return mapping.get("properties") instanceof Map<?, ?> properties ? properties : Map.of();
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.demo.bulk.service;
+
+import com.example.demo.bulk.dto.ProductDto;
+import com.example.demo.bulk.model.Product;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.json.JsonWriteFeature;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Writes the source of a new product straight from its {@link ProductDto} as JSON bytes,
+ * skipping the intermediate {@link Product} entity, the converter's {@code Document} map and
+ * the JSON {@code String}. The output is byte-for-byte what the Spring Data converter writes
+ * for the equivalent {@link Product}: the {@code _class} type hint first, then the fields in
+ * declaration order, null fields left out, prices as doubles and dates as ISO {@code yyyy-MM-dd},
+ * and the {@link ProductContentHash} last.
+ * <p>
+ * Output buffers are pooled rather than thread-local, because bulk producers often run on
+ * short-lived virtual threads. Only the final, exactly sized array is allocated per document.
+ */
+@Component
+public class ProductSourceWriter {
+
+    private static final String TYPE_HINT = Product.class.getName();
+    private static final int POOL_SIZE = 64;
+
+    // The converter goes through a String, so characters outside the BMP end up as raw UTF-8 rather than escaped
+    private final JsonFactory jsonFactory = JsonFactory.builder()
+            .enable(JsonWriteFeature.COMBINE_UNICODE_SURROGATES_IN_UTF8)
+            .build();
+    private final BlockingQueue<ByteArrayBuilder> bufferPool = new ArrayBlockingQueue<>(POOL_SIZE);
+
+    /**
+     * Source of a product created from {@code dto}; {@code active} defaults to true as in
+     * {@link BulkService} and both timestamps are set to {@code today}.
+     */
+    public byte[] writeNewProduct(String id, ProductDto dto, LocalDate today) {
+        ByteArrayBuilder buffer = bufferPool.poll();
+        if (buffer == null) {
+            buffer = new ByteArrayBuilder(1024);
+        }
+
+        try (JsonGenerator generator = jsonFactory.createGenerator(buffer)) {
+            generator.writeStartObject();
+            generator.writeStringField("_class", TYPE_HINT);
+            writeString(generator, "id", id);
+            writeString(generator, "name", dto.getName());
+            writeString(generator, "description", dto.getDescription());
+            writeString(generator, "category", dto.getCategory());
+            if (dto.getPrice() != null) {
+                generator.writeNumberField("price", dto.getPrice().doubleValue());
+            }
+            if (dto.getStock() != null) {
+                generator.writeNumberField("stock", dto.getStock());
+            }
+            generator.writeBooleanField("active", dto.getActive() != null ? dto.getActive() : Boolean.TRUE);
+            writeString(generator, "brand", dto.getBrand());
+            writeString(generator, "sku", dto.getSku());
+            String date = today.toString();
+            generator.writeStringField("createdAt", date);
+            generator.writeStringField("updatedAt", date);
+            generator.writeStringField(ProductContentHash.FIELD, ProductContentHash.of(dto));
+            generator.writeEndObject();
+            generator.flush();
+            return buffer.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not serialize product " + id, e);
+        } finally {
+            // reset() keeps only the last block, so a pooled buffer never holds more than one block
+            buffer.reset();
+            bufferPool.offer(buffer);
+        }
+    }
+
+    private static void writeString(JsonGenerator generator, String field, String value) throws IOException {
+        if (value != null) {
+            generator.writeStringField(field, value);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.demo.bulk.service;
+
+import com.example.demo.bulk.dto.PurgeStatus;
+
+/**
+ * Mutable state of one background purge. Written by the job thread, read by status polls.
+ */
+class PurgeJob {
+
+    enum State { QUEUED, RUNNING, COMPLETED, FAILED, CANCELLED }
+
+    private final String id;
+    private final String criteria;
+
+    private volatile State state = State.QUEUED;
+    private volatile String taskId;
+    private volatile Float requestsPerSecond;
+    private volatile long startedAt;
+    private volatile long finishedAt;
+    private volatile long total;
+    private volatile long deleted;
+    private volatile long batches;
+    private volatile long versionConflicts;
+    private volatile long throttledMs;
+    private volatile boolean cancelRequested;
+    private volatile String error;
+
+    PurgeJob(String id, String criteria, Float requestsPerSecond) {
+        this.id = id;
+        this.criteria = criteria;
+        this.requestsPerSecond = requestsPerSecond;
+    }
+
+    String getId() {
+        return id;
+    }
+
+    String getTaskId() {
+        return taskId;
+    }
+
+    long getFinishedAt() {
+        return finishedAt;
+    }
+
+    boolean isFinished() {
+        return state == State.COMPLETED || state == State.FAILED || state == State.CANCELLED;
+    }
+
+    boolean isCancelRequested() {
+        return cancelRequested;
+    }
+
+    void requestCancel() {
+        cancelRequested = true;
+    }
+
+    void markRunning(String task) {
+        taskId = task;
+        startedAt = System.currentTimeMillis();
+        state = State.RUNNING;
+    }
+
+    void recordThrottle(Float newRequestsPerSecond) {
+        requestsPerSecond = newRequestsPerSecond;
+    }
+
+    void recordProgress(long totalDocs, long deletedDocs, long batchCount, long conflicts, long throttled) {
+        total = totalDocs;
+        deleted = deletedDocs;
+        batches = batchCount;
+        versionConflicts = conflicts;
+        throttledMs = throttled;
+    }
+
+    void finish(State finalState, String errorMessage) {
+        error = errorMessage;
+        finishedAt = System.currentTimeMillis();
+        state = finalState;
+    }
+
+    PurgeStatus toStatus() {
+        long end = isFinished() ? finishedAt : System.currentTimeMillis();
+        long elapsedMs = startedAt == 0 ? 0 : end - startedAt;
+        double docsPerSecond = elapsedMs > 0 ? deleted * 1000.0 / elapsedMs : 0.0;
+        Long etaSeconds = null;
+        if (!isFinished() && docsPerSecond > 0 && total > deleted) {
+            etaSeconds = Math.round((total - deleted) / docsPerSecond);
+        }
+
+        return new PurgeStatus(id, criteria, state.name(), taskId, requestsPerSecond, total, deleted, batches,
+                versionConflicts, throttledMs, elapsedMs, docsPerSecond, etaSeconds, error);
+    }
+}
@@ -0,0 +1,183 @@
+package com.example.demo.bulk.service;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.Conflicts;
+import co.elastic.clients.elasticsearch._types.query_dsl.Query;
+import com.example.demo.bulk.dto.PurgeOptions;
+import com.example.demo.bulk.dto.PurgeStatus;
+import com.example.demo.cache.service.QueryCacheInvalidator;
+import jakarta.json.JsonObject;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Deletes products matching a query without listing their ids first.
+ * <p>
+ * Each purge is a server-side delete-by-query started as an Elasticsearch task, split into
+ * slices and throttled to {@code requestsPerSecond} so it does not compete with searches for
+ * the whole cluster. The task is polled for progress; it can be cancelled or rethrottled while
+ * it runs. Documents changed while the purge is running are skipped and counted as version
+ * conflicts instead of failing the purge. Only one purge runs at a time.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PurgeService implements DisposableBean {
+
+    private static final String PRODUCT_INDEX = "products";
+
+    private final ElasticsearchClient elasticsearchClient;
+    private final QueryCacheInvalidator queryCacheInvalidator;
+    private final TaskPoller taskPoller;
+
+    private final Map<String, PurgeJob> jobs = new ConcurrentHashMap<>();
+    private final ExecutorService jobExecutor = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("purge-job-", 0).factory());
+
+    public PurgeStatus purgeCategory(String category, PurgeOptions options) {
+        return submit("category=" + category,
+                Query.of(q -> q.term(t -> t.field("category").value(category))), options);
+    }
+
+    public PurgeStatus purgeBrand(String brand, PurgeOptions options) {
+        return submit("brand=" + brand,
+                Query.of(q -> q.term(t -> t.field("brand").value(brand))), options);
+    }
+
+    public PurgeStatus purgeInactive(PurgeOptions options) {
+        return submit("active=false",
+                Query.of(q -> q.term(t -> t.field("active").value(false))), options);
+    }
+
+    public PurgeStatus purgeUpdatedBefore(LocalDate date, PurgeOptions options) {
+        return submit("updatedAt<" + date,
+                Query.of(q -> q.range(r -> r.date(d -> d.field("updatedAt").lt(date.toString())))), options);
+    }
+
+    public PurgeStatus purgeAll(PurgeOptions options) {
+        return submit("all", Query.of(q -> q.matchAll(m -> m)), options);
+    }
+
+    public Optional<PurgeStatus> getStatus(String jobId) {
+        return Optional.ofNullable(jobs.get(jobId)).map(PurgeJob::toStatus);
+    }
+
+    public List<PurgeStatus> getAllStatuses() {
+        return jobs.values().stream().map(PurgeJob::toStatus).toList();
+    }
+
+    public Optional<PurgeStatus> cancel(String jobId) {
+        PurgeJob job = jobs.get(jobId);
+        if (job == null) {
+            return Optional.empty();
+        }
+        job.requestCancel();
+        log.info("Cancellation requested for purge job {}", jobId);
+        return Optional.of(job.toStatus());
+    }
+
+    /**
+     * Changes the throttle of a running purge. Lowering it takes effect after the current batch.
+     */
+    public Optional<PurgeStatus> rethrottle(String jobId, float requestsPerSecond) throws IOException {
+        validateThrottle(requestsPerSecond);
+        PurgeJob job = jobs.get(jobId);
+        if (job == null) {
+            return Optional.empty();
+        }
+        String taskId = job.getTaskId();
+        if (job.isFinished() || taskId == null) {
+            throw new IllegalStateException("Purge job " + jobId + " is not running");
+        }
+
+        elasticsearchClient.deleteByQueryRethrottle(r -> r.taskId(taskId).requestsPerSecond(requestsPerSecond));
+        job.recordThrottle(requestsPerSecond);
+        log.info("Purge job {} rethrottled to {} requests/s", jobId, requestsPerSecond);
+        return Optional.of(job.toStatus());
+    }
+
+    private synchronized PurgeStatus submit(String criteria, Query query, PurgeOptions options) {
+        TaskPoller.parseSlices(options.getSlices());
+        if (options.getRequestsPerSecond() != null) {
+            validateThrottle(options.getRequestsPerSecond());
+        }
+        if (options.getBatchSize() < 1) {
+            throw new IllegalArgumentException("batchSize must be positive");
+        }
+        if (jobs.values().stream().anyMatch(job -> !job.isFinished())) {
+            throw new IllegalStateException("A purge of " + PRODUCT_INDEX + " is already running");
+        }
+
+        TaskPoller.evictFinishedJobs(jobs, PurgeJob::isFinished, PurgeJob::getFinishedAt);
+
+        PurgeJob job = new PurgeJob(UUID.randomUUID().toString(), criteria, options.getRequestsPerSecond());
+        jobs.put(job.getId(), job);
+        jobExecutor.execute(() -> run(job, query, options));
+
+        log.info("Submitted purge job {} for {} where {}", job.getId(), PRODUCT_INDEX, criteria);
+        return job.toStatus();
+    }
+
+    private void run(PurgeJob job, Query query, PurgeOptions options) {
+        PurgeJob.State finalState = PurgeJob.State.COMPLETED;
+        String error = null;
+
+        try {
+            String taskId = elasticsearchClient.deleteByQuery(d -> d
+                    .index(PRODUCT_INDEX)
+                    .query(query)
+                    .slices(TaskPoller.parseSlices(options.getSlices()))
+                    .requestsPerSecond(options.getRequestsPerSecond())
+                    .scrollSize((long) options.getBatchSize())
+                    .conflicts(Conflicts.Proceed)
+                    .refresh(true)
+                    .waitForCompletion(false)).task();
+            job.markRunning(taskId);
+            log.info("Purge job {} running as task {}", job.getId(), taskId);
+
+            taskPoller.await(taskId, "Delete-by-query", job::isCancelRequested, status -> recordProgress(job, status));
+        } catch (CancellationException e) {
+            finalState = PurgeJob.State.CANCELLED;
+        } catch (Exception e) {
+            log.error("Purge job {} failed: {}", job.getId(), e.getMessage());
+            finalState = PurgeJob.State.FAILED;
+            error = e.getMessage();
+        }
+
+        // Cancelled and failed purges may have deleted part of the matches as well
+        queryCacheInvalidator.invalidate(PRODUCT_INDEX);
+        job.finish(finalState, error);
+        log.info("Purge job {} {}: {} documents deleted", job.getId(), finalState, job.toStatus().getDeletedDocuments());
+    }
+
+    private static void recordProgress(PurgeJob job, JsonObject status) {
+        job.recordProgress(TaskPoller.number(status, "total"), TaskPoller.number(status, "deleted"),
+                TaskPoller.number(status, "batches"), TaskPoller.number(status, "version_conflicts"),
+                TaskPoller.number(status, "throttled_millis"));
+    }
+
+    private static void validateThrottle(float requestsPerSecond) {
+        if (requestsPerSecond <= 0 && requestsPerSecond != -1) {
+            throw new IllegalArgumentException("requestsPerSecond must be positive, or -1 for unthrottled");
+        }
+    }
+
+    @Override
+    public void destroy() {
+        jobs.values().forEach(PurgeJob::requestCancel);
+        jobExecutor.shutdown();
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.demo.bulk.service;
+
+import com.example.demo.bulk.dto.ProductDto;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compares the converter path ({@link BulkService#serializeWithConverter}) with
+ * {@link ProductSourceWriter} on the same products: time and bytes allocated per document,
+ * measured on the calling thread after a warm-up round. Also checks that both paths
+ * produce identical bytes.
+ */
+@Service
+@RequiredArgsConstructor
+public class SerializationBenchmarkService {
+
+    private static final String[] CATEGORIES = {"Electronics", "Books", "Clothing", "Home", "Sports"};
+
+    private final BulkService bulkService;
+    private final ProductSourceWriter productSourceWriter;
+
+    public String compare(int count, int rounds) {
+        List<ProductDto> products = sampleProducts(count);
+        LocalDate today = LocalDate.now();
+
+        long mismatches = 0;
+        for (ProductDto dto : products) {
+            if (!Arrays.equals(bulkService.serializeWithConverter(dto.getId(), dto, today),
+                    productSourceWriter.writeNewProduct(dto.getId(), dto, today))) {
+                mismatches++;
+            }
+        }
+
+        Result converter = measure(products, rounds, dto -> bulkService.serializeWithConverter(dto.getId(), dto, today));
+        Result direct = measure(products, rounds, dto -> productSourceWriter.writeNewProduct(dto.getId(), dto, today));
+
+        return String.format(
+                "Serialization Benchmark (%d products, best of %d rounds after warm-up):\n" +
+                "Converter path: %.0f ns/doc, %d bytes allocated/doc\n" +
+                "Direct writer:  %.0f ns/doc, %d bytes allocated/doc\n" +
+                "Speed-up: %.1fx, allocation reduced by %.0f%%, mismatching documents: %d",
+                count, rounds,
+                converter.nanosPerDoc(), converter.bytesPerDoc(),
+                direct.nanosPerDoc(), direct.bytesPerDoc(),
+                converter.nanosPerDoc() / Math.max(1, direct.nanosPerDoc()),
+                100.0 * (converter.bytesPerDoc() - direct.bytesPerDoc()) / Math.max(1, converter.bytesPerDoc()),
+                mismatches);
+    }
+
+    private static Result measure(List<ProductDto> products, int rounds, Serializer serializer) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Result best = null;
+        long checksum = 0;
+
+        // Round 0 is warm-up so the JIT has compiled both paths before anything is recorded
+        for (int round = 0; round <= rounds; round++) {
+            long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+            long start = System.nanoTime();
+            for (ProductDto dto : products) {
+                checksum += serializer.serialize(dto).length;
+            }
+            long elapsed = System.nanoTime() - start;
+            long allocated = threads.getCurrentThreadAllocatedBytes() - allocatedBefore;
+
+            Result result = new Result((double) elapsed / products.size(), allocated / products.size());
+            if (round > 0 && (best == null || result.nanosPerDoc() < best.nanosPerDoc())) {
+                best = result;
+            }
+        }
+        return checksum > 0 ? best : new Result(0, 0);
+    }
+
+    private static List<ProductDto> sampleProducts(int count) {
+        List<ProductDto> products = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            products.add(new ProductDto("bench-" + i, "Benchmark product " + i, "Generated for benchmarking",
+                    CATEGORIES[i % CATEGORIES.length], BigDecimal.valueOf(1000 + i % 99000, 2), i % 500,
+                    i % 7 != 0, "Brand " + i % 50, "SKU-" + i));
+        }
+        return products;
+    }
+
+    @FunctionalInterface
+    private interface Serializer {
+        byte[] serialize(ProductDto dto);
+    }
+
+    private record Result(double nanosPerDoc, long bytesPerDoc) {
+    }
+}
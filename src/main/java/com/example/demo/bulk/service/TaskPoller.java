@@ -0,0 +1,118 @@
+package com.example.demo.bulk.service;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.ErrorCause;
+import co.elastic.clients.elasticsearch._types.Slices;
+import co.elastic.clients.elasticsearch._types.SlicesCalculation;
+import co.elastic.clients.elasticsearch.tasks.GetTasksResponse;
+import jakarta.json.JsonArray;
+import jakarta.json.JsonObject;
+import jakarta.json.JsonValue;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+
+/**
+ * Follows a sliced by-query task (reindex, delete-by-query) started with {@code wait_for_completion=false}.
+ * <p>
+ * Shared by the background jobs that start such tasks: the task is polled until it completes, its
+ * status is handed to the job as progress, and a cancel request from the job cancels the task.
+ * A task that ends with an error or with per-document failures fails the job.
+ */
+@Component
+@RequiredArgsConstructor
+public class TaskPoller {
+
+    private static final Duration POLL_INTERVAL = Duration.ofSeconds(1);
+    private static final Duration FINISHED_JOB_RETENTION = Duration.ofHours(1);
+
+    private final ElasticsearchClient elasticsearchClient;
+
+    /**
+     * Blocks until the task completes.
+     *
+     * @param description     names the task in failure messages, e.g. "Reindex"
+     * @param cancelRequested checked before each poll; when true the task is cancelled
+     * @param progress        receives the task status while it runs, and the final response once it is done
+     * @throws CancellationException if the task was cancelled on request
+     */
+    public void await(String taskId, String description, BooleanSupplier cancelRequested,
+                      Consumer<JsonObject> progress) throws IOException, InterruptedException {
+        while (true) {
+            if (cancelRequested.getAsBoolean()) {
+                elasticsearchClient.tasks().cancel(c -> c.taskId(taskId));
+                throw new CancellationException();
+            }
+
+            GetTasksResponse task = elasticsearchClient.tasks().get(g -> g.taskId(taskId));
+            if (task.completed()) {
+                // The final response carries the totals of all slices; the status may lag behind it
+                if (task.response() != null) {
+                    progress.accept(task.response().toJson().asJsonObject());
+                }
+                checkTaskResult(task, description);
+                return;
+            }
+            if (task.task().status() != null) {
+                progress.accept(task.task().status().toJson().asJsonObject());
+            }
+            Thread.sleep(POLL_INTERVAL.toMillis());
+        }
+    }
+
+    private static void checkTaskResult(GetTasksResponse task, String description) {
+        ErrorCause taskError = task.error();
+        if (taskError != null) {
+            throw new IllegalStateException(description + " task failed: " + taskError.reason());
+        }
+        if (task.response() != null) {
+            JsonObject response = task.response().toJson().asJsonObject();
+            JsonArray failures = response.containsKey("failures") ? response.getJsonArray("failures") : JsonValue.EMPTY_JSON_ARRAY;
+            if (!failures.isEmpty()) {
+                throw new IllegalStateException(description + " finished with " + failures.size()
+                        + " failures, first: " + failures.get(0));
+            }
+        }
+    }
+
+    /**
+     * Parses the {@code slices} option: "auto" (or null) lets Elasticsearch pick one slice per shard.
+     */
+    public static Slices parseSlices(String slices) {
+        if (slices == null || slices.equalsIgnoreCase("auto")) {
+            return Slices.of(s -> s.computed(SlicesCalculation.Auto));
+        }
+        try {
+            int count = Integer.parseInt(slices);
+            if (count < 1) {
+                throw new IllegalArgumentException("slices must be 'auto' or a positive number");
+            }
+            return Slices.of(s -> s.value(count));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("slices must be 'auto' or a positive number");
+        }
+    }
+
+    /**
+     * Reads a counter from a task status or response, 0 when the task has not reported it yet.
+     */
+    public static long number(JsonObject object, String field) {
+        return object.containsKey(field) ? object.getJsonNumber(field).longValue() : 0;
+    }
+
+    /**
+     * Drops jobs that finished more than an hour ago so their status stays visible for a while only.
+     */
+    public static <J> void evictFinishedJobs(Map<String, J> jobs, Predicate<J> finished, ToLongFunction<J> finishedAt) {
+        long cutoff = System.currentTimeMillis() - FINISHED_JOB_RETENTION.toMillis();
+        jobs.values().removeIf(job -> finished.test(job) && finishedAt.applyAsLong(job) < cutoff);
+    }
+}
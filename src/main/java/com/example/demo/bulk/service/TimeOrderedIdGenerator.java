@@ -0,0 +1,84 @@
+package com.example.demo.bulk.service;
+
+import org.springframework.stereotype.Component;
+
+import java.security.SecureRandom;
+import java.util.function.LongSupplier;
+
+/**
+ * 20-character, time-ordered IDs in the spirit of Elasticsearch's own auto-generated IDs.
+ * <p>
+ * Each ID packs 120 bits: a 48-bit millisecond timestamp, a 24-bit per-millisecond sequence
+ * and a 48-bit node id chosen randomly at startup, so instances never need to coordinate.
+ * The bits are written most significant first with a base64 alphabet in ASCII order, which
+ * keeps the IDs URL-safe and makes them sort by creation time. IDs created close together
+ * share long prefixes, which Lucene's terms dictionary compresses well and which keeps the
+ * ID lookups done on every index operation local.
+ * <p>
+ * The clock never goes backwards as seen by this generator: if the system clock does, or the
+ * sequence of one millisecond is exhausted, the timestamp keeps counting from the last value.
+ */
+@Component
+public class TimeOrderedIdGenerator implements IdGenerator {
+
+    public static final String STRATEGY = "time-ordered";
+
+    // URL-safe base64 characters, sorted so that string order matches numeric order
+    private static final char[] ALPHABET =
+            "-0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ_abcdefghijklmnopqrstuvwxyz".toCharArray();
+
+    private static final long MAX_SEQUENCE = (1L << 24) - 1;
+    private static final long NODE_MASK = (1L << 48) - 1;
+
+    private final LongSupplier clock;
+    private final long nodeId;
+
+    // Guarded by this
+    private long lastTimestamp;
+    private long sequence;
+
+    public TimeOrderedIdGenerator() {
+        this(System::currentTimeMillis, new SecureRandom().nextLong());
+    }
+
+    TimeOrderedIdGenerator(LongSupplier clock, long nodeId) {
+        this.clock = clock;
+        this.nodeId = nodeId & NODE_MASK;
+    }
+
+    @Override
+    public String strategy() {
+        return STRATEGY;
+    }
+
+    @Override
+    public String nextId() {
+        long timestamp;
+        long seq;
+        synchronized (this) {
+            long now = clock.getAsLong();
+            if (now > lastTimestamp) {
+                lastTimestamp = now;
+                sequence = 0;
+            } else if (++sequence > MAX_SEQUENCE) {
+                lastTimestamp++;
+                sequence = 0;
+            }
+            timestamp = lastTimestamp;
+            seq = sequence;
+        }
+
+        char[] id = new char[20];
+        encode(timestamp, id, 0, 8);
+        encode(seq, id, 8, 4);
+        encode(nodeId, id, 12, 8);
+        return new String(id);
+    }
+
+    private static void encode(long value, char[] out, int offset, int length) {
+        for (int i = offset + length - 1; i >= offset; i--) {
+            out[i] = ALPHABET[(int) (value & 0x3F)];
+            value >>>= 6;
+        }
+    }
+}
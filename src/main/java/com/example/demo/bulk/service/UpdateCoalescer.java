@@ -0,0 +1,307 @@
+package com.example.demo.bulk.service;
+
+import co.elastic.clients.elasticsearch._types.Refresh;
+import co.elastic.clients.elasticsearch.core.bulk.BulkResponseItem;
+import com.example.demo.bulk.dto.ProductDto;
+import com.example.demo.config.BulkProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Merges partial product updates that arrive within {@code bulk.ingest.coalesce-window} of the
+ * first pending update for the same id, so a hot product is written once per window instead of
+ * once per change. Non-null fields of later updates overwrite earlier ones (last writer wins per
+ * field). Every merged caller gets the future of the single write that carries its change.
+ * <p>
+ * The window starts with the first pending update and is not extended by later ones, so a
+ * product that changes constantly is still written at least once per window.
+ * <p>
+ * Writes that bypass the coalescer (plain updates, upserts, deletes) call {@link #flush(Collection)}
+ * for their ids first. That writes any pending update for those ids and waits for it, as well as
+ * for merged updates of those ids that have already been handed to their writer, so the older,
+ * coalesced changes can never overwrite a newer write. Handing merged updates to their writers is
+ * serialized, so updates of one id reach the bulk buffer in the order they were drained.
+ * <p>
+ * Updates are only merged with pending updates of the same write mode (spooled or direct); an
+ * update in the other mode first flushes the pending one.
+ */
+@Slf4j
+@Component
+public class UpdateCoalescer implements DisposableBean {
+
+    @FunctionalInterface
+    public interface UpdateWriter {
+        CompletableFuture<BulkResponseItem> write(String id, ProductDto mergedChanges, Refresh refresh);
+    }
+
+    private final BulkWriteBuffer bulkWriteBuffer;
+    private final BulkProperties properties;
+    private final ScheduledExecutorService windowScheduler;
+
+    // Guarded by this; insertion order is arrival order of the first update per id
+    private final Map<String, PendingUpdate> pending = new LinkedHashMap<>();
+
+    // Guarded by this; drained updates until their write has been applied
+    private final Map<String, CompletableFuture<BulkResponseItem>> inFlight = new HashMap<>();
+
+    // Held from draining updates until they are in the writer, so a later drain cannot overtake
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    private final AtomicLong receivedUpdates = new AtomicLong();
+    private final AtomicLong writtenUpdates = new AtomicLong();
+
+    public UpdateCoalescer(BulkWriteBuffer bulkWriteBuffer, BulkProperties properties) {
+        this.bulkWriteBuffer = bulkWriteBuffer;
+        this.properties = properties;
+        this.windowScheduler = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("bulk-coalesce").daemon().factory());
+        long tickMs = Math.max(1, properties.getCoalesceWindow().toMillis() / 4);
+        this.windowScheduler.scheduleWithFixedDelay(this::flushExpired, tickMs, tickMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Merges an update into the pending update of its id. {@code spooled} is the write mode of
+     * {@code writer}; a pending update in the other mode is written first.
+     */
+    public CompletableFuture<BulkResponseItem> submit(String id, ProductDto changes, Refresh refresh, boolean spooled,
+                                                      UpdateWriter writer) {
+        receivedUpdates.incrementAndGet();
+        while (true) {
+            CompletableFuture<BulkResponseItem> future;
+            synchronized (this) {
+                PendingUpdate update = pending.get(id);
+                if (update != null && update.spooled() != spooled) {
+                    future = null;
+                } else {
+                    if (update == null) {
+                        update = new PendingUpdate(new ProductDto(), System.nanoTime(), spooled, writer,
+                                new CompletableFuture<>());
+                        pending.put(id, update);
+                    }
+                    merge(update.changes(), changes);
+                    update.strengthenRefresh(refresh);
+                    future = update.future();
+                }
+            }
+
+            if (future == null) {
+                // The write mode changed: the pending update goes out through its own writer first
+                flush(List.of(id));
+                continue;
+            }
+            if (getPendingUpdates() >= properties.getCoalesceMaxPending()) {
+                drainAndWrite(Long.MAX_VALUE);
+            }
+            return future;
+        }
+    }
+
+    /**
+     * Writes every pending update right away, regardless of its window.
+     */
+    public void flush() {
+        drainAndWrite(Long.MAX_VALUE);
+    }
+
+    /**
+     * Writes the pending updates of the given ids, if there are any, and waits until they and any
+     * earlier merged updates of those ids have been applied (or have failed; their own callers get
+     * the failure).
+     */
+    public void flush(Collection<String> ids) {
+        List<CompletableFuture<BulkResponseItem>> awaited = new ArrayList<>();
+        writeLock.lock();
+        try {
+            List<Map.Entry<String, PendingUpdate>> due = new ArrayList<>();
+            synchronized (this) {
+                if (pending.isEmpty() && inFlight.isEmpty()) {
+                    return;
+                }
+                for (String id : ids) {
+                    CompletableFuture<BulkResponseItem> sent = inFlight.get(id);
+                    if (sent != null) {
+                        awaited.add(sent);
+                    }
+                    PendingUpdate update = pending.remove(id);
+                    if (update != null) {
+                        due.add(Map.entry(id, update));
+                        markInFlight(id, update);
+                        awaited.add(update.future());
+                    }
+                }
+            }
+            write(due);
+        } finally {
+            writeLock.unlock();
+        }
+
+        for (CompletableFuture<BulkResponseItem> future : awaited) {
+            try {
+                future.join();
+            } catch (CompletionException | CancellationException e) {
+                log.debug("Coalesced update flushed ahead of another write failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    public synchronized int getPendingUpdates() {
+        return pending.size();
+    }
+
+    public long getReceivedUpdates() {
+        return receivedUpdates.get();
+    }
+
+    public long getWrittenUpdates() {
+        return writtenUpdates.get();
+    }
+
+    private void flushExpired() {
+        drainAndWrite(System.nanoTime() - properties.getCoalesceWindow().toNanos());
+    }
+
+    private void drainAndWrite(long firstSeenBefore) {
+        writeLock.lock();
+        try {
+            List<Map.Entry<String, PendingUpdate>> due;
+            synchronized (this) {
+                due = drain(firstSeenBefore);
+                due.forEach(entry -> markInFlight(entry.getKey(), entry.getValue()));
+            }
+            write(due);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    // Called with the lock held; the entry is dropped once its write has been applied or has failed
+    private void markInFlight(String id, PendingUpdate update) {
+        CompletableFuture<BulkResponseItem> future = update.future();
+        inFlight.put(id, future);
+        future.whenComplete((item, error) -> {
+            synchronized (this) {
+                inFlight.remove(id, future);
+            }
+        });
+    }
+
+    // Entries are in arrival order, so stop at the first one that is still inside its window
+    private List<Map.Entry<String, PendingUpdate>> drain(long firstSeenBefore) {
+        List<Map.Entry<String, PendingUpdate>> due = new ArrayList<>();
+        Iterator<Map.Entry<String, PendingUpdate>> entries = pending.entrySet().iterator();
+        while (entries.hasNext()) {
+            Map.Entry<String, PendingUpdate> entry = entries.next();
+            if (firstSeenBefore != Long.MAX_VALUE && entry.getValue().firstSeenNanos() - firstSeenBefore > 0) {
+                break;
+            }
+            due.add(entry);
+            entries.remove();
+        }
+        return due;
+    }
+
+    private void write(List<Map.Entry<String, PendingUpdate>> due) {
+        if (due.isEmpty()) {
+            return;
+        }
+        for (Map.Entry<String, PendingUpdate> entry : due) {
+            PendingUpdate update = entry.getValue();
+            try {
+                update.writer().write(entry.getKey(), update.changes(), update.refresh())
+                        .whenComplete((item, error) -> {
+                            if (error != null) {
+                                update.future().completeExceptionally(error);
+                            } else {
+                                update.future().complete(item);
+                            }
+                        });
+            } catch (Exception e) {
+                update.future().completeExceptionally(e);
+            }
+        }
+        writtenUpdates.addAndGet(due.size());
+        // Callers are already waiting on these updates, so do not leave them to the buffer's linger
+        bulkWriteBuffer.flush();
+        log.debug("Wrote {} coalesced updates ({} received so far)", due.size(), receivedUpdates.get());
+    }
+
+    private static void merge(ProductDto target, ProductDto changes) {
+        if (changes.getName() != null) target.setName(changes.getName());
+        if (changes.getDescription() != null) target.setDescription(changes.getDescription());
+        if (changes.getCategory() != null) target.setCategory(changes.getCategory());
+        if (changes.getPrice() != null) target.setPrice(changes.getPrice());
+        if (changes.getStock() != null) target.setStock(changes.getStock());
+        if (changes.getActive() != null) target.setActive(changes.getActive());
+        if (changes.getBrand() != null) target.setBrand(changes.getBrand());
+        if (changes.getSku() != null) target.setSku(changes.getSku());
+    }
+
+    @Override
+    public void destroy() {
+        windowScheduler.shutdown();
+        flush();
+    }
+
+    private static final class PendingUpdate {
+        private final ProductDto changes;
+        private final long firstSeenNanos;
+        private final boolean spooled;
+        private final UpdateWriter writer;
+        private final CompletableFuture<BulkResponseItem> future;
+        private Refresh refresh = Refresh.False;
+
+        PendingUpdate(ProductDto changes, long firstSeenNanos, boolean spooled, UpdateWriter writer,
+                      CompletableFuture<BulkResponseItem> future) {
+            this.changes = changes;
+            this.firstSeenNanos = firstSeenNanos;
+            this.spooled = spooled;
+            this.writer = writer;
+            this.future = future;
+        }
+
+        ProductDto changes() {
+            return changes;
+        }
+
+        long firstSeenNanos() {
+            return firstSeenNanos;
+        }
+
+        boolean spooled() {
+            return spooled;
+        }
+
+        UpdateWriter writer() {
+            return writer;
+        }
+
+        CompletableFuture<BulkResponseItem> future() {
+            return future;
+        }
+
+        Refresh refresh() {
+            return refresh;
+        }
+
+        void strengthenRefresh(Refresh requested) {
+            refresh = BulkWriteBuffer.strongest(refresh, requested);
+        }
+    }
+}
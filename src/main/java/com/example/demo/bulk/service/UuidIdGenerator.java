@@ -0,0 +1,24 @@
+package com.example.demo.bulk.service;
+
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+
+/**
+ * Random 36-character UUIDs, the format used before time-ordered IDs became the default.
+ */
+@Component
+public class UuidIdGenerator implements IdGenerator {
+
+    public static final String STRATEGY = "uuid";
+
+    @Override
+    public String strategy() {
+        return STRATEGY;
+    }
+
+    @Override
+    public String nextId() {
+        return UUID.randomUUID().toString();
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.demo.cache.controller;
+
+import com.example.demo.cache.service.QueryCacheManager;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/cache")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "*")
+public class QueryCacheController {
+
+    private static final Logger log = LoggerFactory.getLogger(QueryCacheController.class);
+    private final QueryCacheManager queryCacheManager;
+
+    @GetMapping("/stats")
+    public ResponseEntity<Map<String, Object>> getStats() {
+        return ResponseEntity.ok(queryCacheManager.getStats());
+    }
+
+    @DeleteMapping
+    public ResponseEntity<Void> clearAll() {
+        log.info("Clearing cached search results of all indices");
+        queryCacheManager.invalidateAll();
+        return ResponseEntity.noContent().build();
+    }
+
+    @DeleteMapping("/{index}")
+    public ResponseEntity<Void> clearIndex(@PathVariable String index) {
+        log.info("Clearing cached search results of {}", index);
+        queryCacheManager.invalidate(index);
+        return ResponseEntity.noContent().build();
+    }
+}
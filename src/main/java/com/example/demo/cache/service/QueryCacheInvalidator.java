@@ -0,0 +1,54 @@
+package com.example.demo.cache.service;
+
+import com.example.demo.config.QueryCacheProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Clears the cached search results of an index after a write path changed it.
+ * <p>
+ * Bulk writes are usually not refreshed, so a search right after the write can still see the old
+ * documents and put them back into the cache. The index is therefore cleared once more after
+ * {@code query-cache.refresh-lag}, by which time the write is searchable. Writes arriving while
+ * that second clear is pending share it, so a bulk load schedules one clear per interval, not one
+ * per request.
+ */
+@Slf4j
+@Component
+public class QueryCacheInvalidator implements DisposableBean {
+
+    private final QueryCacheManager cacheManager;
+    private final QueryCacheProperties properties;
+    private final Set<String> pendingIndices = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("query-cache-invalidator").daemon().factory());
+
+    public QueryCacheInvalidator(QueryCacheManager cacheManager, QueryCacheProperties properties) {
+        this.cacheManager = cacheManager;
+        this.properties = properties;
+    }
+
+    public void invalidate(String index) {
+        cacheManager.invalidate(index);
+        long lagMs = properties.getRefreshLag().toMillis();
+        if (lagMs > 0 && pendingIndices.add(index)) {
+            scheduler.schedule(() -> {
+                pendingIndices.remove(index);
+                cacheManager.invalidate(index);
+                log.debug("Cleared cached results of {} after refresh lag", index);
+            }, lagMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.shutdownNow();
+    }
+}
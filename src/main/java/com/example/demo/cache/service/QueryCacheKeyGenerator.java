@@ -0,0 +1,43 @@
+package com.example.demo.cache.service;
+
+import org.springframework.cache.interceptor.KeyGenerator;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Builds cache keys from the search method and its arguments, paging included.
+ * <p>
+ * Collection and array arguments are copied into immutable lists, so a caller that reuses or
+ * changes its id list afterwards cannot change a key that is already in the cache. Their order
+ * is kept: a multi-get returns documents in the order of the requested ids.
+ */
+public class QueryCacheKeyGenerator implements KeyGenerator {
+
+    @Override
+    public Object generate(Object target, Method method, Object... params) {
+        List<Object> normalized = new ArrayList<>(params.length);
+        for (Object param : params) {
+            normalized.add(normalize(param));
+        }
+        return new QueryCacheKey(method.getDeclaringClass().getSimpleName() + "." + method.getName(),
+                Collections.unmodifiableList(normalized));
+    }
+
+    private static Object normalize(Object param) {
+        if (param instanceof Collection<?> values) {
+            return Collections.unmodifiableList(new ArrayList<>(values));
+        }
+        if (param instanceof Object[] values) {
+            return normalize(Arrays.asList(values));
+        }
+        return param;
+    }
+
+    record QueryCacheKey(String operation, List<Object> params) {
+    }
+}
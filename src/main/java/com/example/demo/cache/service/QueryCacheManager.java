@@ -0,0 +1,88 @@
+package com.example.demo.cache.service;
+
+import com.example.demo.config.QueryCacheProperties;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * One {@link QueryResultCache} per index, named after the index, so a write to an index clears
+ * exactly the results that can have changed. The caches also coalesce identical concurrent
+ * searches, which is why they exist even when {@code query-cache.enabled} is false.
+ */
+public class QueryCacheManager implements CacheManager {
+
+    private final QueryCacheProperties properties;
+    private final Map<String, QueryResultCache> caches = new ConcurrentHashMap<>();
+
+    public QueryCacheManager(QueryCacheProperties properties) {
+        this.properties = properties;
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        // With the cache disabled nothing is stored, but identical concurrent searches are still coalesced
+        int maxEntries = properties.isEnabled() ? properties.getMaxEntries() : 0;
+        return caches.computeIfAbsent(name, index -> new QueryResultCache(index, maxEntries,
+                properties.getTtl().toNanos(), properties.isCoalesce()));
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return List.copyOf(caches.keySet());
+    }
+
+    /**
+     * Drops every cached result of the index. Indices that were never searched have nothing to drop.
+     */
+    public void invalidate(String index) {
+        QueryResultCache cache = caches.get(index);
+        if (cache != null) {
+            cache.clear();
+        }
+    }
+
+    public void invalidateAll() {
+        caches.values().forEach(QueryResultCache::clear);
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> indices = new TreeMap<>();
+        long hits = 0;
+        long misses = 0;
+        long evictions = 0;
+        long expirations = 0;
+        long coalesced = 0;
+        long size = 0;
+        for (QueryResultCache cache : caches.values()) {
+            Map<String, Object> stats = cache.getStats();
+            indices.put(cache.getName(), stats);
+            hits += (long) stats.get("hits");
+            misses += (long) stats.get("misses");
+            evictions += (long) stats.get("evictions");
+            expirations += (long) stats.get("expirations");
+            coalesced += (long) stats.get("coalesced");
+            size += (int) stats.get("size");
+        }
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", properties.isEnabled());
+        stats.put("ttlMs", properties.getTtl().toMillis());
+        stats.put("size", size);
+        stats.put("hits", hits);
+        stats.put("misses", misses);
+        stats.put("hitRatio", QueryResultCache.hitRatio(hits, misses));
+        stats.put("evictions", evictions);
+        stats.put("expirations", expirations);
+        stats.put("coalesce", properties.isCoalesce());
+        stats.put("coalesced", coalesced);
+        stats.put("indices", indices);
+        return stats;
+    }
+}
@@ -0,0 +1,304 @@
+package com.example.demo.cache.service;
+
+import org.springframework.cache.support.AbstractValueAdaptingCache;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Search results of one index, bounded in size and in age.
+ * <p>
+ * An entry expires {@code ttl} after it was loaded. When the cache is full, expired entries are
+ * dropped first, then the entry with the fewest hits (the oldest one among equals), so the few
+ * hundred queries that make up most of the traffic stay cached while one-off queries pass
+ * through. Entries are kept in load order, which is also expiry order, so expired entries are
+ * found without scanning the whole cache.
+ * <p>
+ * Identical searches that miss at the same time share one load (single flight): the first
+ * caller runs the search, the others wait for its result instead of each sending the same
+ * request to Elasticsearch. This holds even with {@code maxEntries} 0, when nothing is stored.
+ * A failed load fails every caller waiting on it and is not cached.
+ * <p>
+ * {@link #clear()} is how writes to the index invalidate it. A search that was already running
+ * when the index changed may return data from before the write; its result is not stored, and
+ * searches arriving after the clear start a load of their own instead of joining it.
+ * <p>
+ * Every caller of a cached or shared result gets the same instance. Lists, sets and maps are
+ * therefore stored as unmodifiable copies, and the loading caller gets that copy too; the
+ * entities inside are shared as they are and must be treated as read-only.
+ */
+public class QueryResultCache extends AbstractValueAdaptingCache {
+
+    private final String name;
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final boolean coalesce;
+
+    // Guards everything below; lookups update hit counts, so they take it too
+    private final Object lock = new Object();
+    private final LinkedHashMap<Object, Entry> entries = new LinkedHashMap<>();
+    private final TreeSet<Entry> byFrequency = new TreeSet<>(
+            Comparator.comparingLong((Entry e) -> e.hits).thenComparingLong(e -> e.sequence));
+    private final Map<Object, CompletableFuture<Object>> inFlight = new HashMap<>();
+    private long sequence;
+    private long generation;
+
+    private long hits;
+    private long misses;
+    private long loads;
+    private long loadFailures;
+    private long coalesced;
+    private long evictions;
+    private long expirations;
+    private long invalidations;
+
+    public QueryResultCache(String name, int maxEntries, long ttlNanos, boolean coalesce) {
+        super(true);
+        this.name = name;
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttlNanos;
+        this.coalesce = coalesce;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return entries;
+    }
+
+    @Override
+    protected Object lookup(Object key) {
+        synchronized (lock) {
+            Entry entry = entries.get(key);
+            if (entry == null) {
+                misses++;
+                return null;
+            }
+            if (entry.expiresAtNanos - System.nanoTime() <= 0) {
+                remove(entry);
+                expirations++;
+                misses++;
+                return null;
+            }
+            byFrequency.remove(entry);
+            entry.hits++;
+            byFrequency.add(entry);
+            hits++;
+            return entry.value;
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        CompletableFuture<Object> running;
+        CompletableFuture<Object> load = null;
+        long loadGeneration;
+        synchronized (lock) {
+            Object cached = lookup(key);
+            if (cached != null) {
+                return (T) fromStoreValue(cached);
+            }
+            running = coalesce ? inFlight.get(key) : null;
+            if (running != null) {
+                coalesced++;
+            } else {
+                load = new CompletableFuture<>();
+                if (coalesce) {
+                    inFlight.put(key, load);
+                }
+            }
+            loadGeneration = generation;
+        }
+        if (running != null) {
+            return (T) fromStoreValue(await(key, valueLoader, running));
+        }
+
+        T value;
+        try {
+            value = valueLoader.call();
+        } catch (Exception e) {
+            failLoad(key, load, e);
+            throw new ValueRetrievalException(key, valueLoader, e);
+        } catch (Error e) {
+            failLoad(key, load, e);
+            throw e;
+        }
+
+        Object storeValue = toStoreValue(value);
+        synchronized (lock) {
+            loads++;
+            inFlight.remove(key, load);
+            // The index was written while we were searching; the result may already be stale
+            if (loadGeneration == generation) {
+                store(key, storeValue);
+            }
+        }
+        load.complete(storeValue);
+        return (T) fromStoreValue(storeValue);
+    }
+
+    private Object await(Object key, Callable<?> valueLoader, CompletableFuture<Object> running) {
+        try {
+            return running.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ValueRetrievalException(key, valueLoader, e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new ValueRetrievalException(key, valueLoader, e.getCause());
+        }
+    }
+
+    private void failLoad(Object key, CompletableFuture<Object> load, Throwable failure) {
+        synchronized (lock) {
+            loadFailures++;
+            inFlight.remove(key, load);
+        }
+        // Every caller that joined this load gets the same failure; the next one searches again
+        load.completeExceptionally(failure);
+    }
+
+    @Override
+    protected Object toStoreValue(Object userValue) {
+        return super.toStoreValue(readOnlyCopy(userValue));
+    }
+
+    private static Object readOnlyCopy(Object value) {
+        if (value instanceof List<?> list) {
+            return Collections.unmodifiableList(new ArrayList<>(list));
+        }
+        if (value instanceof Set<?> set) {
+            return Collections.unmodifiableSet(new LinkedHashSet<>(set));
+        }
+        if (value instanceof Map<?, ?> map) {
+            return Collections.unmodifiableMap(new LinkedHashMap<>(map));
+        }
+        return value;
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        synchronized (lock) {
+            store(key, toStoreValue(value));
+        }
+    }
+
+    @Override
+    public void evict(Object key) {
+        synchronized (lock) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                remove(entry);
+            }
+        }
+    }
+
+    @Override
+    public void clear() {
+        synchronized (lock) {
+            entries.clear();
+            byFrequency.clear();
+            // Running loads may predate the write; later callers must not join them
+            inFlight.clear();
+            generation++;
+            invalidations++;
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        synchronized (lock) {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("size", entries.size());
+            stats.put("maxEntries", maxEntries);
+            stats.put("hits", hits);
+            stats.put("misses", misses);
+            stats.put("hitRatio", hitRatio(hits, misses));
+            stats.put("loads", loads);
+            stats.put("loadFailures", loadFailures);
+            stats.put("coalesced", coalesced);
+            stats.put("inFlight", inFlight.size());
+            stats.put("evictions", evictions);
+            stats.put("expirations", expirations);
+            stats.put("invalidations", invalidations);
+            return stats;
+        }
+    }
+
+    static double hitRatio(long hits, long misses) {
+        long requests = hits + misses;
+        return requests == 0 ? 0.0 : (double) hits / requests;
+    }
+
+    private void store(Object key, Object storeValue) {
+        if (maxEntries <= 0) {
+            return;
+        }
+        Entry previous = entries.get(key);
+        if (previous != null) {
+            remove(previous);
+        } else {
+            makeRoom();
+        }
+        Entry entry = new Entry(key, storeValue, System.nanoTime() + ttlNanos, sequence++);
+        entries.put(key, entry);
+        byFrequency.add(entry);
+    }
+
+    private void makeRoom() {
+        long now = System.nanoTime();
+        Iterator<Entry> oldestFirst = entries.values().iterator();
+        while (oldestFirst.hasNext()) {
+            Entry oldest = oldestFirst.next();
+            if (oldest.expiresAtNanos - now > 0) {
+                break;
+            }
+            oldestFirst.remove();
+            byFrequency.remove(oldest);
+            expirations++;
+        }
+        while (entries.size() >= maxEntries) {
+            Entry leastUsed = byFrequency.pollFirst();
+            entries.remove(leastUsed.key);
+            evictions++;
+        }
+    }
+
+    private void remove(Entry entry) {
+        entries.remove(entry.key);
+        byFrequency.remove(entry);
+    }
+
+    private static final class Entry {
+        private final Object key;
+        private final Object value;
+        private final long expiresAtNanos;
+        private final long sequence;
+        private long hits;
+
+        private Entry(Object key, Object value, long expiresAtNanos, long sequence) {
+            this.key = key;
+            this.value = value;
+            this.expiresAtNanos = expiresAtNanos;
+            this.sequence = sequence;
+        }
+    }
+}
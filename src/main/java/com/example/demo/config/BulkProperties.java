@@ -0,0 +1,68 @@
+package com.example.demo.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "bulk.ingest")
+public class BulkProperties {
+
+    // Flush when the buffer holds this many actions
+    private int maxActions = 1000;
+
+    // Flush when the serialized payload reaches this size (keep it well below http.max_content_length)
+    private DataSize maxBytes = DataSize.ofMegabytes(5);
+
+    // Flush when the oldest buffered action has waited this long
+    private Duration maxLinger = Duration.ofSeconds(1);
+
+    // Number of bulk requests allowed in flight to Elasticsearch at the same time
+    private int maxConcurrentRequests = 1;
+
+    // How long a producer waits for a free in-flight slot before its batch is rejected (0 = reject immediately)
+    private Duration backpressureTimeout = Duration.ofSeconds(30);
+
+    // Retries for items rejected with 429/503; other failures are reported straight away
+    private int maxRetries = 3;
+
+    // Backoff before the first retry, doubled on each attempt (with jitter) up to maxBackoff
+    private Duration initialBackoff = Duration.ofMillis(100);
+
+    private Duration maxBackoff = Duration.ofSeconds(5);
+
+    // Coalesced updates to the same product are merged for this long before being written
+    private Duration coalesceWindow = Duration.ofMillis(500);
+
+    // Distinct products held by the coalescer before everything pending is written early
+    private int coalesceMaxPending = 10000;
+
+    // Write new product sources straight from the DTO instead of going through the Spring Data converter
+    private boolean directSerialization = true;
+
+    // Upserts: look up stored content hashes and skip products whose content has not changed (reported as NOOP)
+    private boolean skipUnchanged = true;
+
+    // Adapt batch size and in-flight requests to bulk latency and rejections (AIMD), starting from
+    // maxActions and maxConcurrentRequests; when false those two stay fixed
+    private boolean adaptive = true;
+
+    // Bounds for the adaptive batch size (maxBytes still applies)
+    private int adaptiveMinActions = 100;
+
+    private int adaptiveMaxActions = 5000;
+
+    // Upper bound for adaptive in-flight requests
+    private int adaptiveMaxConcurrentRequests = 8;
+
+    // Bulk requests slower than this count as degraded
+    private Duration adaptiveTargetLatency = Duration.ofSeconds(1);
+
+    // Actions added to the batch size after each round of healthy requests
+    private int adaptiveActionsStep = 100;
+
+    // Batch size and in-flight requests are multiplied by this when a request is degraded
+    private double adaptiveDecreaseFactor = 0.5;
+}
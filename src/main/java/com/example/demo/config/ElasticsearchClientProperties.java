@@ -0,0 +1,12 @@
+package com.example.demo.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "elasticsearch.client")
+public class ElasticsearchClientProperties {
+
+    // Gzip request bodies and send Accept-Encoding: gzip; compressed responses are decoded by the client
+    private boolean compression = true;
+}
@@ -1,10 +1,20 @@
 package com.example.demo.config;
 
+import org.springframework.boot.autoconfigure.elasticsearch.RestClientBuilderCustomizer;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.elasticsearch.repository.config.EnableElasticsearchRepositories;
 
 @Configuration
 @EnableElasticsearchRepositories
+@EnableConfigurationProperties({BulkProperties.class, IdProperties.class, ElasticsearchClientProperties.class,
+        ImporterProperties.class, SpoolProperties.class, QueryCacheProperties.class})
 public class ElasticsearchConfig {
 
+    // Applied to the RestClient that Spring Boot builds from spring.elasticsearch.*, which backs every client in the app
+    @Bean
+    public RestClientBuilderCustomizer compressionCustomizer(ElasticsearchClientProperties properties) {
+        return builder -> builder.setCompressionEnabled(properties.isCompression());
+    }
 }
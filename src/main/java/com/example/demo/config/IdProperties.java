@@ -0,0 +1,18 @@
+package com.example.demo.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@Data
+@ConfigurationProperties(prefix = "bulk.ids")
+public class IdProperties {
+
+    // Strategy for indices without an entry below: "time-ordered" or "uuid"
+    private String defaultStrategy = "time-ordered";
+
+    // Per-index override, e.g. bulk.ids.indices.products=uuid
+    private Map<String, String> indices = new HashMap<>();
+}
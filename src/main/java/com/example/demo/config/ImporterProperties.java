@@ -0,0 +1,30 @@
+package com.example.demo.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+@Data
+@ConfigurationProperties(prefix = "importer")
+public class ImporterProperties {
+
+    // File imported at startup; nothing is imported when empty
+    private String file;
+
+    // Index the records go to: products or articles
+    private String target = "products";
+
+    // auto (by extension and first byte), ndjson or json (one top-level array)
+    private String format = "auto";
+
+    // Size of the file slices parsed in parallel; each slice ends on a record boundary
+    private DataSize chunkSize = DataSize.ofMegabytes(16);
+
+    // Parser threads; 0 = one per available core
+    private int parallelism = 0;
+
+    // Run the import with refresh_interval=-1 (and optionally no replicas) on the target index
+    private boolean bulkLoad = true;
+
+    private boolean disableReplicas = false;
+}
@@ -0,0 +1,23 @@
+package com.example.demo.config;
+
+import com.example.demo.cache.service.QueryCacheKeyGenerator;
+import com.example.demo.cache.service.QueryCacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+// Search services cache their results with @Cacheable; each cache is named after the index it reads
+@Configuration
+@EnableCaching
+public class QueryCacheConfig {
+
+    @Bean
+    public QueryCacheManager cacheManager(QueryCacheProperties properties) {
+        return new QueryCacheManager(properties);
+    }
+
+    @Bean
+    public QueryCacheKeyGenerator queryCacheKeyGenerator() {
+        return new QueryCacheKeyGenerator();
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.demo.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "query-cache")
+public class QueryCacheProperties {
+
+    // When false, nothing is cached; identical concurrent searches are still coalesced
+    private boolean enabled = true;
+
+    // Identical searches that run at the same time share one Elasticsearch request
+    private boolean coalesce = true;
+
+    // Maximum number of cached results per index; the least frequently used one is evicted first
+    private int maxEntries = 1000;
+
+    // A cached result is dropped this long after it was loaded, even if nothing was written
+    private Duration ttl = Duration.ofSeconds(60);
+
+    // Bulk writes become searchable only after the index refresh; the cache is cleared again after this delay
+    private Duration refreshLag = Duration.ofSeconds(1);
+}
@@ -0,0 +1,28 @@
+package com.example.demo.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "bulk.spool")
+public class SpoolProperties {
+
+    // When false, requests with spool=true are rejected and nothing is written to disk
+    private boolean enabled;
+
+    // Directory holding the segment files, the replay checkpoint and the dead-letter file;
+    // required when enabled, and best an absolute path on a persistent volume
+    private String directory;
+
+    // A new segment file is started once the current one reaches this size
+    private DataSize segmentSize = DataSize.ofMegabytes(64);
+
+    // Appends are made durable together at most this often (group commit)
+    private Duration fsyncInterval = Duration.ofMillis(10);
+
+    // How often the drainer looks for new entries when the spool is empty
+    private Duration drainPollInterval = Duration.ofMillis(200);
+}
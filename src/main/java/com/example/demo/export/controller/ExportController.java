@@ -0,0 +1,52 @@
+package com.example.demo.export.controller;
+
+import com.example.demo.export.service.IndexExportService;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+
+@RestController
+@RequestMapping("/api/export")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "*")
+public class ExportController {
+
+    private static final Logger log = LoggerFactory.getLogger(ExportController.class);
+    // An export streams for as long as the index takes to read; every page is still bounded by keepAlive
+    private static final long NO_TIMEOUT = -1;
+    private final IndexExportService indexExportService;
+
+    @GetMapping(value = "/{index}", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportIndex(@PathVariable String index,
+                                                             @RequestParam(defaultValue = "1000") int pageSize,
+                                                             @RequestParam(defaultValue = "1") int slices,
+                                                             @RequestParam(defaultValue = "1m") String keepAlive,
+                                                             HttpServletRequest request)
+            throws IOException {
+        try {
+            indexExportService.validate(index, pageSize, slices, keepAlive);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        } catch (IllegalStateException e) {
+            return ResponseEntity.notFound().build();
+        }
+
+        log.info("Exporting {} with page size {} and {} slices", index, pageSize, slices);
+        // Only this request: spring.mvc.async.request-timeout stays in force for everything else
+        WebAsyncUtils.getAsyncManager(request).getAsyncWebRequest().setTimeout(NO_TIMEOUT);
+        StreamingResponseBody body = out -> indexExportService.export(index, pageSize, slices, keepAlive, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + index + ".ndjson\"")
+                .body(body);
+    }
+}
@@ -0,0 +1,212 @@
+package com.example.demo.export.service;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.FieldValue;
+import co.elastic.clients.elasticsearch._types.SortOrder;
+import co.elastic.clients.elasticsearch.core.SearchResponse;
+import co.elastic.clients.elasticsearch.core.search.Hit;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Streams every document of an index as NDJSON, one {@code _source} per line, in the format
+ * the file importer reads back.
+ * <p>
+ * A point-in-time is opened first, so the export is a consistent snapshot even while the index
+ * is being written to. Pages are fetched with {@code search_after} on {@code _shard_doc}, the
+ * cheapest total order for a point-in-time, instead of from/size, which cannot go deeper than
+ * {@code index.max_result_window}. With several slices, each slice pages through its own part of
+ * the snapshot on a virtual thread. Every slice holds at most one page and hands it to the
+ * output as one block, so memory does not depend on the size of the index.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class IndexExportService {
+
+    private static final Set<String> EXPORTABLE_INDICES = Set.of("products", "articles", "documents");
+    private static final int MAX_PAGE_SIZE = 10_000;
+    private static final int MAX_SLICES = 64;
+    // Elasticsearch time units that make sense for a point-in-time keep-alive
+    private static final Pattern KEEP_ALIVE = Pattern.compile("(\\d{1,9})(ms|s|m|h)");
+    private static final Duration MAX_KEEP_ALIVE = Duration.ofHours(1);
+
+    private final ElasticsearchClient elasticsearchClient;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Checks the parameters up front, while the response status can still be an error.
+     */
+    public void validate(String index, int pageSize, int slices, String keepAlive) throws IOException {
+        if (!EXPORTABLE_INDICES.contains(index)) {
+            throw new IllegalArgumentException("Index cannot be exported: " + index);
+        }
+        if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("pageSize must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        if (slices < 1 || slices > MAX_SLICES) {
+            throw new IllegalArgumentException("slices must be between 1 and " + MAX_SLICES);
+        }
+        Duration keepAliveDuration = parseKeepAlive(keepAlive);
+        if (keepAliveDuration.isZero() || keepAliveDuration.compareTo(MAX_KEEP_ALIVE) > 0) {
+            throw new IllegalArgumentException("keepAlive must be more than 0 and at most 1h");
+        }
+        if (!elasticsearchClient.indices().exists(e -> e.index(index)).value()) {
+            throw new IllegalStateException("Index does not exist: " + index);
+        }
+    }
+
+    private static Duration parseKeepAlive(String keepAlive) {
+        Matcher matcher = KEEP_ALIVE.matcher(keepAlive == null ? "" : keepAlive);
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException("keepAlive must be a number followed by ms, s, m or h, e.g. 1m");
+        }
+        long amount = Long.parseLong(matcher.group(1));
+        return switch (matcher.group(2)) {
+            case "ms" -> Duration.ofMillis(amount);
+            case "s" -> Duration.ofSeconds(amount);
+            case "m" -> Duration.ofMinutes(amount);
+            default -> Duration.ofHours(amount);
+        };
+    }
+
+    public long export(String index, int pageSize, int slices, String keepAlive, OutputStream out) throws IOException {
+        long startTime = System.currentTimeMillis();
+        String pitId = elasticsearchClient.openPointInTime(o -> o
+                .index(index)
+                .keepAlive(k -> k.time(keepAlive))).id();
+
+        AtomicLong exported = new AtomicLong();
+        try {
+            if (slices == 1) {
+                exportSlice(pitId, 0, 1, pageSize, keepAlive, out, exported, new AtomicBoolean());
+            } else {
+                exportSlices(pitId, pageSize, slices, keepAlive, out, exported);
+            }
+        } finally {
+            closePointInTime(pitId);
+        }
+
+        long elapsedMs = Math.max(1, System.currentTimeMillis() - startTime);
+        log.info("Exported {} documents from {} with {} slices in {} ms ({} docs/s)", exported.get(), index,
+                slices, elapsedMs, exported.get() * 1000 / elapsedMs);
+        return exported.get();
+    }
+
+    private void exportSlices(String pitId, int pageSize, int slices, String keepAlive, OutputStream out,
+                              AtomicLong exported) throws IOException {
+        AtomicBoolean aborted = new AtomicBoolean();
+        List<Future<?>> running = new ArrayList<>(slices);
+        try (ExecutorService sliceExecutor = Executors.newThreadPerTaskExecutor(
+                Thread.ofVirtual().name("export-slice-", 0).factory())) {
+            for (int slice = 0; slice < slices; slice++) {
+                int sliceId = slice;
+                running.add(sliceExecutor.submit(() -> {
+                    try {
+                        exportSlice(pitId, sliceId, slices, pageSize, keepAlive, out, exported, aborted);
+                        return null;
+                    } catch (IOException | RuntimeException e) {
+                        // Stop the other slices; the response is broken either way
+                        aborted.set(true);
+                        throw e;
+                    }
+                }));
+            }
+
+            for (Future<?> slice : running) {
+                try {
+                    slice.get();
+                } catch (InterruptedException e) {
+                    aborted.set(true);
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Export interrupted", e);
+                } catch (ExecutionException e) {
+                    throw e.getCause() instanceof IOException io ? io
+                            : new IOException("Export slice failed: " + e.getCause().getMessage(), e.getCause());
+                }
+            }
+        }
+    }
+
+    private void exportSlice(String pitId, int sliceId, int slices, int pageSize, String keepAlive,
+                             OutputStream out, AtomicLong exported, AtomicBoolean aborted) throws IOException {
+        ObjectWriter sourceWriter = objectMapper.writer();
+        ByteArrayOutputStream page = new ByteArrayOutputStream(64 * 1024);
+        String currentPit = pitId;
+        List<FieldValue> searchAfter = null;
+
+        while (!aborted.get()) {
+            String pit = currentPit;
+            List<FieldValue> after = searchAfter;
+            SearchResponse<ObjectNode> response = elasticsearchClient.search(s -> {
+                s.pit(p -> p.id(pit).keepAlive(k -> k.time(keepAlive)))
+                        .size(pageSize)
+                        .trackTotalHits(t -> t.enabled(false))
+                        .sort(sort -> sort.field(f -> f.field("_shard_doc").order(SortOrder.Asc)));
+                if (slices > 1) {
+                    s.slice(slice -> slice.id(String.valueOf(sliceId)).max(slices));
+                }
+                if (after != null) {
+                    s.searchAfter(after);
+                }
+                return s;
+            }, ObjectNode.class);
+
+            List<Hit<ObjectNode>> hits = response.hits().hits();
+            if (hits.isEmpty()) {
+                return;
+            }
+
+            page.reset();
+            for (Hit<ObjectNode> hit : hits) {
+                if (hit.source() != null) {
+                    sourceWriter.writeValue(page, hit.source());
+                    page.write('\n');
+                }
+            }
+            // Pages from different slices may interleave, but never lines within a page
+            synchronized (out) {
+                page.writeTo(out);
+                out.flush();
+            }
+            exported.addAndGet(hits.size());
+
+            if (hits.size() < pageSize) {
+                return;
+            }
+            searchAfter = hits.getLast().sort();
+            if (response.pitId() != null) {
+                currentPit = response.pitId();
+            }
+        }
+    }
+
+    private void closePointInTime(String pitId) {
+        try {
+            elasticsearchClient.closePointInTime(c -> c.id(pitId));
+        } catch (Exception e) {
+            // It expires after keepAlive anyway
+            log.warn("Could not close point-in-time: {}", e.getMessage());
+        }
+    }
+}
@@ -1,8 +1,11 @@
 package com.example.demo.fulltext.controller;
 
+import com.example.demo.fulltext.dto.CursorPage;
 import com.example.demo.fulltext.model.Article;
+import com.example.demo.fulltext.service.CursorExpiredException;
 import com.example.demo.fulltext.service.FullTextSearchService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -31,6 +34,21 @@ public class FullTextSearchController {
         return ResponseEntity.ok(articles);
     }
 
+    // Endpoint để duyệt MatchAll bằng cursor; trang đầu không truyền cursor, các trang sau truyền nextCursor
+    @GetMapping("/match-all/cursor")
+    public ResponseEntity<CursorPage<Article>> matchAllQueryWithCursor(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "100") int size) {
+        try {
+            return ResponseEntity.ok(fullTextSearchService.findAllArticlesWithCursor(cursor, size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        } catch (CursorExpiredException e) {
+            // 410: cursor không dùng lại được, client bắt đầu lại từ trang đầu (không truyền cursor)
+            return ResponseEntity.status(HttpStatus.GONE).build();
+        }
+    }
+
     // Endpoint để test MatchAll query với boost
     @GetMapping("/match-all/boost")
     public ResponseEntity<List<Article>> matchAllQueryWithBoost(
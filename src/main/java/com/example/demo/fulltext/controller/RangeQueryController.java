@@ -1,12 +1,19 @@
 package com.example.demo.fulltext.controller;
 
+import com.example.demo.fulltext.dto.CursorPage;
+import com.example.demo.fulltext.dto.RangeStatsRequest;
+import com.example.demo.fulltext.dto.RangeStatsResponse;
 import com.example.demo.fulltext.model.ProductEntity;
+import com.example.demo.fulltext.service.RangeQueryBenchmarkService;
+import com.example.demo.fulltext.service.CursorExpiredException;
 import com.example.demo.fulltext.service.RangeQueryService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.format.annotation.DateTimeFormat;
 
+import java.io.IOException;
 import java.time.LocalDateTime;
 import java.util.List;
 
@@ -17,6 +24,23 @@ public class RangeQueryController {
     @Autowired
     private RangeQueryService rangeQueryService;
 
+    @Autowired
+    private RangeQueryBenchmarkService rangeQueryBenchmarkService;
+
+    // Bucket cho báo cáo tồn kho (from <= quantity < to)
+    private static final List<RangeStatsRequest.Bucket> INVENTORY_BUCKETS = List.of(
+            new RangeStatsRequest.Bucket("outOfStock", 0.0, 1.0),
+            new RangeStatsRequest.Bucket("lowStock", 1.0, 11.0),
+            new RangeStatsRequest.Bucket("mediumStock", 11.0, 51.0),
+            new RangeStatsRequest.Bucket("highStock", 51.0, null));
+
+    // Bucket cho phân tích rating (from <= rating < to)
+    private static final List<RangeStatsRequest.Bucket> RATING_BUCKETS = List.of(
+            new RangeStatsRequest.Bucket("excellent", 4.5, null),
+            new RangeStatsRequest.Bucket("good", 4.0, 4.5),
+            new RangeStatsRequest.Bucket("average", 3.0, 4.0),
+            new RangeStatsRequest.Bucket("poor", 0.0, 3.0));
+
     // ===== NUMERIC RANGE ENDPOINTS =====
 
     // Endpoint cho price range query
@@ -137,6 +161,24 @@ public class RangeQueryController {
         return ResponseEntity.ok(products);
     }
 
+    // Endpoint cho price range với cursor; trang đầu không truyền cursor, các trang sau truyền nextCursor của trang trước
+    @GetMapping("/products/price/cursor")
+    public ResponseEntity<CursorPage<ProductEntity>> findProductsByPriceRangeWithCursor(
+            @RequestParam Double minPrice,
+            @RequestParam Double maxPrice,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "100") int size) {
+        try {
+            return ResponseEntity.ok(
+                    rangeQueryService.findProductsByPriceRangeWithCursor(minPrice, maxPrice, cursor, size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        } catch (CursorExpiredException e) {
+            // 410: cursor không dùng lại được, client bắt đầu lại từ trang đầu (không truyền cursor)
+            return ResponseEntity.status(HttpStatus.GONE).build();
+        }
+    }
+
     // ===== REPOSITORY ENDPOINTS =====
 
     // Endpoint sử dụng repository method cho price range
@@ -177,6 +219,30 @@ public class RangeQueryController {
         return ResponseEntity.ok(count);
     }
 
+    // Endpoint thống kê products theo các range tùy ý trên một field số, trong một round trip
+    @PostMapping("/products/stats")
+    public ResponseEntity<RangeStatsResponse> getRangeStats(@RequestBody RangeStatsRequest request) {
+        try {
+            return ResponseEntity.ok(rangeQueryService.getRangeStats(request.getField(), request.getBuckets()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    // ===== BENCHMARK ENDPOINTS =====
+
+    // So sánh range query có tính score (Criteria) với filter context trên index tạm: latency và node query cache
+    @PostMapping("/benchmark/filter-context")
+    public ResponseEntity<String> benchmarkFilterContext(@RequestParam(defaultValue = "50000") int documents,
+                                                         @RequestParam(defaultValue = "200") int iterations,
+                                                         @RequestParam(defaultValue = "2") int rounds)
+            throws IOException {
+        if (documents < 1 || iterations < 1 || rounds < 1) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(rangeQueryBenchmarkService.compareScoringAndFilter(documents, iterations, rounds));
+    }
+
     // ===== DATA MANAGEMENT ENDPOINTS =====
 
     // Endpoint để tạo sample data cho ProductEntity
@@ -240,41 +306,13 @@ public class RangeQueryController {
 
     // Endpoint demo inventory management
     @GetMapping("/products/inventory-status")
-    public ResponseEntity<String> inventoryStatusDemo() {
-        long lowStock = rangeQueryService.countProductsByQuantityRange(1, 10);
-        long mediumStock = rangeQueryService.countProductsByQuantityRange(11, 50);
-        long highStock = rangeQueryService.countProductsByQuantityRange(51, Integer.MAX_VALUE);
-        long outOfStock = rangeQueryService.countProductsByQuantityRange(0, 0);
-
-        String report = String.format(
-            "Inventory Status Report:\n" +
-            "Out of Stock: %d products\n" +
-            "Low Stock (1-10): %d products\n" +
-            "Medium Stock (11-50): %d products\n" +
-            "High Stock (51+): %d products",
-            outOfStock, lowStock, mediumStock, highStock
-        );
-
-        return ResponseEntity.ok(report);
+    public ResponseEntity<RangeStatsResponse> inventoryStatusDemo() {
+        return ResponseEntity.ok(rangeQueryService.getRangeStats("quantity", INVENTORY_BUCKETS));
     }
 
     // Endpoint demo rating analysis
     @GetMapping("/products/rating-analysis")
-    public ResponseEntity<String> ratingAnalysisDemo() {
-        long excellent = rangeQueryService.countProductsByRatingRange(4.5, 5.0);
-        long good = rangeQueryService.countProductsByRatingRange(4.0, 4.49);
-        long average = rangeQueryService.countProductsByRatingRange(3.0, 3.99);
-        long poor = rangeQueryService.countProductsByRatingRange(0.0, 2.99);
-
-        String analysis = String.format(
-            "Product Rating Analysis:\n" +
-            "Excellent (4.5-5.0): %d products\n" +
-            "Good (4.0-4.49): %d products\n" +
-            "Average (3.0-3.99): %d products\n" +
-            "Poor (0.0-2.99): %d products",
-            excellent, good, average, poor
-        );
-
-        return ResponseEntity.ok(analysis);
+    public ResponseEntity<RangeStatsResponse> ratingAnalysisDemo() {
+        return ResponseEntity.ok(rangeQueryService.getRangeStats("rating", RATING_BUCKETS));
     }
 }
@@ -0,0 +1,34 @@
+package com.example.demo.fulltext.dto;
+
+import java.util.List;
+
+public class CursorPage<T> {
+
+    private List<T> items;
+    // Truyền lại để lấy trang tiếp theo; null khi đã hết kết quả
+    private String nextCursor;
+
+    public CursorPage() {}
+
+    public CursorPage(List<T> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    // Getters and Setters
+    public List<T> getItems() {
+        return items;
+    }
+
+    public void setItems(List<T> items) {
+        this.items = items;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.demo.fulltext.dto;
+
+import java.util.List;
+import java.util.Objects;
+
+public class RangeStatsRequest {
+
+    private String field;
+    private List<Bucket> buckets;
+
+    public RangeStatsRequest() {}
+
+    public RangeStatsRequest(String field, List<Bucket> buckets) {
+        this.field = field;
+        this.buckets = buckets;
+    }
+
+    // Một bucket: from <= value < to; bỏ trống from hoặc to để không giới hạn phía đó
+    public static class Bucket {
+        private String key;
+        private Double from;
+        private Double to;
+
+        public Bucket() {}
+
+        public Bucket(String key, Double from, Double to) {
+            this.key = key;
+            this.from = from;
+            this.to = to;
+        }
+
+        // Getters and Setters
+        public String getKey() { return key; }
+        public void setKey(String key) { this.key = key; }
+        public Double getFrom() { return from; }
+        public void setFrom(Double from) { this.from = from; }
+        public Double getTo() { return to; }
+        public void setTo(Double to) { this.to = to; }
+
+        // Bucket là một phần của cache key
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Bucket bucket)) return false;
+            return Objects.equals(key, bucket.key) && Objects.equals(from, bucket.from) && Objects.equals(to, bucket.to);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(key, from, to);
+        }
+    }
+
+    // Getters and Setters
+    public String getField() {
+        return field;
+    }
+
+    public void setField(String field) {
+        this.field = field;
+    }
+
+    public List<Bucket> getBuckets() {
+        return buckets;
+    }
+
+    public void setBuckets(List<Bucket> buckets) {
+        this.buckets = buckets;
+    }
+}
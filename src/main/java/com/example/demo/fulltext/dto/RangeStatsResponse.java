@@ -0,0 +1,75 @@
+package com.example.demo.fulltext.dto;
+
+import java.util.List;
+
+public class RangeStatsResponse {
+
+    private String field;
+    private long totalProducts;
+    private List<BucketStats> buckets;
+
+    public RangeStatsResponse() {}
+
+    public RangeStatsResponse(String field, long totalProducts, List<BucketStats> buckets) {
+        this.field = field;
+        this.totalProducts = totalProducts;
+        this.buckets = buckets;
+    }
+
+    // Kết quả của một bucket; statistics là min/max/avg thực tế của field trong bucket
+    public static class BucketStats {
+        private String key;
+        private Double from;
+        private Double to;
+        private long count;
+        private RangeQueryResponse.RangeStatistics statistics;
+
+        public BucketStats() {}
+
+        public BucketStats(String key, Double from, Double to, long count,
+                           RangeQueryResponse.RangeStatistics statistics) {
+            this.key = key;
+            this.from = from;
+            this.to = to;
+            this.count = count;
+            this.statistics = statistics;
+        }
+
+        // Getters and Setters
+        public String getKey() { return key; }
+        public void setKey(String key) { this.key = key; }
+        public Double getFrom() { return from; }
+        public void setFrom(Double from) { this.from = from; }
+        public Double getTo() { return to; }
+        public void setTo(Double to) { this.to = to; }
+        public long getCount() { return count; }
+        public void setCount(long count) { this.count = count; }
+        public RangeQueryResponse.RangeStatistics getStatistics() { return statistics; }
+        public void setStatistics(RangeQueryResponse.RangeStatistics statistics) { this.statistics = statistics; }
+    }
+
+    // Getters and Setters
+    public String getField() {
+        return field;
+    }
+
+    public void setField(String field) {
+        this.field = field;
+    }
+
+    public long getTotalProducts() {
+        return totalProducts;
+    }
+
+    public void setTotalProducts(long totalProducts) {
+        this.totalProducts = totalProducts;
+    }
+
+    public List<BucketStats> getBuckets() {
+        return buckets;
+    }
+
+    public void setBuckets(List<BucketStats> buckets) {
+        this.buckets = buckets;
+    }
+}
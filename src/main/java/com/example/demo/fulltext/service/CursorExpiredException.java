@@ -0,0 +1,9 @@
+package com.example.demo.fulltext.service;
+
+// PIT của cursor đã hết keep-alive (hoặc đã bị đóng): không đi tiếp được, client phải duyệt lại từ trang đầu
+public class CursorExpiredException extends RuntimeException {
+
+    public CursorExpiredException(Throwable cause) {
+        super("cursor expired, restart the walk without a cursor", cause);
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.demo.fulltext.service;
+
+import com.example.demo.fulltext.dto.CursorPage;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.elasticsearch.ResourceNotFoundException;
+import org.springframework.data.elasticsearch.client.elc.NativeQuery;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.SearchHit;
+import org.springframework.data.elasticsearch.core.SearchHits;
+import org.springframework.data.elasticsearch.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.List;
+import java.util.stream.Collectors;
+
+// Phân trang bằng point-in-time + search_after thay cho from/size:
+// mỗi trang chỉ đọc size document kế tiếp sau sort values của trang trước, nên chi phí không tăng theo số trang
+// và không bị giới hạn bởi index.max_result_window. PIT giữ nguyên snapshot của index suốt quá trình duyệt.
+// Cursor là base64url của {pit, after, params}; params là tham số truy vấn để cursor không bị dùng cho truy vấn khác.
+@Component
+public class CursorPaginator {
+
+    // Chỉ cần đủ cho khoảng thời gian giữa hai trang; mỗi trang gia hạn lại
+    private static final Duration KEEP_ALIVE = Duration.ofMinutes(1);
+    private static final int MAX_PAGE_SIZE = 10_000;
+    private static final TypeReference<List<Object>> SORT_VALUES = new TypeReference<>() {};
+
+    @Autowired
+    private ElasticsearchOperations elasticsearchOperations;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // query phải có sort kết thúc bằng _shard_doc làm tiebreaker, để sort values của mỗi document là duy nhất
+    public <T> CursorPage<T> page(NativeQuery query, Class<T> type, List<Object> params, String cursor, int size) {
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        JsonNode paramsNode = objectMapper.valueToTree(params);
+        String pitId;
+        boolean opened = cursor == null || cursor.isBlank();
+        if (opened) {
+            pitId = elasticsearchOperations.openPointInTime(elasticsearchOperations.getIndexCoordinatesFor(type),
+                    KEEP_ALIVE);
+        } else {
+            ObjectNode decoded = decode(cursor);
+            if (!paramsNode.equals(decoded.get("params"))) {
+                throw new IllegalArgumentException("cursor belongs to a different query");
+            }
+            pitId = decoded.get("pit").asText();
+            query.setSearchAfter(objectMapper.convertValue(decoded.get("after"), SORT_VALUES));
+        }
+
+        query.setPageable(PageRequest.of(0, size));
+        query.setPointInTime(new Query.PointInTime(pitId, KEEP_ALIVE));
+        query.setTrackTotalHits(false);
+
+        SearchHits<T> searchHits;
+        try {
+            searchHits = elasticsearchOperations.search(query, type);
+        } catch (RuntimeException e) {
+            if (opened) {
+                elasticsearchOperations.closePointInTime(pitId);
+            } else if (isSearchContextMissing(e)) {
+                throw new CursorExpiredException(e);
+            }
+            throw e;
+        }
+
+        List<SearchHit<T>> hits = searchHits.getSearchHits();
+        // PIT id có thể thay đổi sau mỗi search, luôn dùng id mới nhất
+        String nextPitId = searchHits.getPointInTimeId() != null ? searchHits.getPointInTimeId() : pitId;
+        List<T> items = hits.stream()
+                .map(SearchHit::getContent)
+                .collect(Collectors.toList());
+        if (hits.size() < size) {
+            // Trang cuối: đóng PIT ngay thay vì đợi hết keep-alive
+            elasticsearchOperations.closePointInTime(nextPitId);
+            return new CursorPage<>(items, null);
+        }
+        return new CursorPage<>(items, encode(nextPitId, hits.get(hits.size() - 1).getSortValues(), paramsNode));
+    }
+
+    // PIT hết hạn: Elasticsearch trả 404 (search_context_missing_exception, "No search context found"),
+    // Spring Data chuyển thành ResourceNotFoundException; index không tồn tại là NoSuchIndexException riêng
+    private static boolean isSearchContextMissing(RuntimeException e) {
+        if (e instanceof ResourceNotFoundException) {
+            return true;
+        }
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            String message = t.getMessage();
+            if (message != null && (message.contains("search_context_missing_exception")
+                    || message.contains("No search context found"))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private String encode(String pitId, List<Object> sortValues, JsonNode params) {
+        ObjectNode node = objectMapper.createObjectNode();
+        node.put("pit", pitId);
+        node.set("after", objectMapper.valueToTree(sortValues));
+        node.set("params", params);
+        try {
+            return Base64.getUrlEncoder().withoutPadding()
+                    .encodeToString(objectMapper.writeValueAsBytes(node));
+        } catch (Exception e) {
+            throw new IllegalStateException("Cannot encode cursor", e);
+        }
+    }
+
+    private ObjectNode decode(String cursor) {
+        try {
+            JsonNode node = objectMapper.readTree(new String(Base64.getUrlDecoder().decode(cursor),
+                    StandardCharsets.UTF_8));
+            if (node instanceof ObjectNode object && object.path("pit").isTextual() && object.path("after").isArray()) {
+                return object;
+            }
+        } catch (Exception e) {
+            // rơi xuống lỗi bên dưới
+        }
+        throw new IllegalArgumentException("invalid cursor");
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.demo.fulltext.service;
+
+import co.elastic.clients.elasticsearch._types.SortOptions;
+import co.elastic.clients.elasticsearch._types.SortOrder;
+import co.elastic.clients.elasticsearch._types.query_dsl.BoolQuery;
+import co.elastic.clients.elasticsearch._types.query_dsl.ConstantScoreQuery;
+import co.elastic.clients.elasticsearch._types.query_dsl.NumberRangeQuery;
+import co.elastic.clients.elasticsearch._types.query_dsl.Query;
+import co.elastic.clients.elasticsearch._types.query_dsl.RangeQuery;
+import co.elastic.clients.elasticsearch._types.query_dsl.TermQuery;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.elasticsearch.client.elc.NativeQuery;
+import org.springframework.data.elasticsearch.client.elc.NativeQueryBuilder;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+// Builder cho range/term lookup chạy trong filter context: constant_score { bool { filter: [...] } }.
+// Không tính score, và Elasticsearch có thể cache từng filter clause (node query cache) để dùng lại.
+// Thứ tự kết quả luôn do sort quyết định; không chỉ định sort thì dùng _doc
+// (rẻ nhất, theo thứ tự index). Sort theo field thì thêm id làm tiebreaker, để các document
+// cùng giá trị luôn ra cùng thứ tự và không bị lặp/mất giữa các trang.
+public class FilterQueryBuilder {
+
+    // @Id của ProductEntity được map là keyword "id" (có doc_values); sort trên _id cần fielddata
+    // và bị tắt mặc định từ Elasticsearch 8
+    static final String TIEBREAKER_FIELD = "id";
+
+    // Cùng format với các field date của ProductEntity (date_hour_minute_second_millis)
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("uuuu-MM-dd'T'HH:mm:ss.SSS");
+
+    private final List<Query> filters = new ArrayList<>();
+    private final List<SortOptions> sorts = new ArrayList<>();
+    private Float boost;
+    private PageRequest pageRequest;
+
+    public static FilterQueryBuilder filter() {
+        return new FilterQueryBuilder();
+    }
+
+    // min <= field <= max, giống Criteria.between; null = không giới hạn phía đó
+    public FilterQueryBuilder between(String field, Number min, Number max) {
+        return numberRange(field, r -> {
+            if (min != null) {
+                r.gte(min.doubleValue());
+            }
+            if (max != null) {
+                r.lte(max.doubleValue());
+            }
+            return r;
+        });
+    }
+
+    public FilterQueryBuilder between(String field, LocalDateTime start, LocalDateTime end) {
+        filters.add(RangeQuery.of(q -> q.date(d -> {
+            d.field(field);
+            if (start != null) {
+                d.gte(DATE_FORMAT.format(start));
+            }
+            if (end != null) {
+                d.lte(DATE_FORMAT.format(end));
+            }
+            return d;
+        }))._toQuery());
+        return this;
+    }
+
+    public FilterQueryBuilder greaterThan(String field, Number value) {
+        return numberRange(field, r -> r.gt(value.doubleValue()));
+    }
+
+    public FilterQueryBuilder greaterThanEqual(String field, Number value) {
+        return numberRange(field, r -> r.gte(value.doubleValue()));
+    }
+
+    public FilterQueryBuilder lessThan(String field, Number value) {
+        return numberRange(field, r -> r.lt(value.doubleValue()));
+    }
+
+    public FilterQueryBuilder term(String field, String value) {
+        filters.add(TermQuery.of(t -> t.field(field).value(value))._toQuery());
+        return this;
+    }
+
+    // Score cố định cho mọi document khớp
+    public FilterQueryBuilder boost(float value) {
+        this.boost = value;
+        return this;
+    }
+
+    public FilterQueryBuilder sortBy(String field, SortOrder order) {
+        sorts.add(SortOptions.of(s -> s.field(f -> f.field(field).order(order))));
+        return this;
+    }
+
+    public FilterQueryBuilder page(int page, int size) {
+        this.pageRequest = PageRequest.of(page, size);
+        return this;
+    }
+
+    public Query toQuery() {
+        Query bool = BoolQuery.of(b -> b.filter(filters))._toQuery();
+        return ConstantScoreQuery.of(c -> c.filter(bool).boost(boost))._toQuery();
+    }
+
+    public NativeQuery build() {
+        NativeQueryBuilder builder = NativeQuery.builder()
+                .withQuery(toQuery())
+                .withSort(sorts.isEmpty()
+                        ? List.of(SortOptions.of(s -> s.field(f -> f.field("_doc").order(SortOrder.Asc))))
+                        : withTiebreaker())
+                .withTrackScores(false);
+        if (pageRequest != null) {
+            builder.withPageable(pageRequest);
+        }
+        return builder.build();
+    }
+
+    // _shard_doc (cursor trong PIT) và id đã là duy nhất, không cần thêm
+    private List<SortOptions> withTiebreaker() {
+        boolean unique = sorts.stream()
+                .map(sort -> sort.field().field())
+                .anyMatch(field -> field.equals("_shard_doc") || field.equals(TIEBREAKER_FIELD));
+        if (unique) {
+            return sorts;
+        }
+        List<SortOptions> result = new ArrayList<>(sorts);
+        result.add(SortOptions.of(s -> s.field(f -> f.field(TIEBREAKER_FIELD).order(SortOrder.Asc))));
+        return result;
+    }
+
+    private FilterQueryBuilder numberRange(String field, UnaryOperator<NumberRangeQuery.Builder> bounds) {
+        filters.add(RangeQuery.of(q -> q.number(n -> bounds.apply(n.field(field))))._toQuery());
+        return this;
+    }
+}
@@ -1,8 +1,12 @@
 package com.example.demo.fulltext.service;
 
+import com.example.demo.fulltext.dto.CursorPage;
 import com.example.demo.fulltext.model.Article;
 import com.example.demo.fulltext.repository.ArticleRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.CacheConfig;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.elasticsearch.client.elc.NativeQuery;
@@ -10,6 +14,8 @@ import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
 import org.springframework.data.elasticsearch.core.SearchHit;
 import org.springframework.data.elasticsearch.core.SearchHits;
 import org.springframework.stereotype.Service;
+import co.elastic.clients.elasticsearch._types.SortOptions;
+import co.elastic.clients.elasticsearch._types.SortOrder;
 import co.elastic.clients.elasticsearch._types.query_dsl.Query;
 import co.elastic.clients.elasticsearch._types.query_dsl.MatchAllQuery;
 import co.elastic.clients.elasticsearch._types.query_dsl.BoolQuery;
@@ -19,6 +25,7 @@ import java.util.List;
 import java.util.stream.Collectors;
 
 @Service
+@CacheConfig(cacheNames = "articles", keyGenerator = "queryCacheKeyGenerator")
 public class FullTextSearchService {
 
     @Autowired
@@ -27,7 +34,11 @@ public class FullTextSearchService {
     @Autowired
     private ElasticsearchOperations elasticsearchOperations;
 
+    @Autowired
+    private CursorPaginator cursorPaginator;
+
     // MatchAll query - Tìm tất cả documents
+    @Cacheable(sync = true)
     public List<Article> findAllArticles() {
         Query matchAllQuery = MatchAllQuery.of(m -> m)._toQuery();
 
@@ -42,6 +53,7 @@ public class FullTextSearchService {
     }
 
     // MatchAll query với pagination
+    @Cacheable(sync = true)
     public List<Article> findAllArticlesWithPagination(int page, int size) {
         Query matchAllQuery = MatchAllQuery.of(m -> m)._toQuery();
         Pageable pageable = PageRequest.of(page, size);
@@ -57,7 +69,22 @@ public class FullTextSearchService {
                 .collect(Collectors.toList());
     }
 
+    // MatchAll với cursor (point-in-time + search_after) cho việc duyệt toàn bộ index.
+    // Sort theo _shard_doc, thứ tự rẻ nhất mà vẫn duy nhất trong một PIT.
+    // Không cache vì mỗi cursor gắn với một PIT riêng
+    public CursorPage<Article> findAllArticlesWithCursor(String cursor, int size) {
+        Query matchAllQuery = MatchAllQuery.of(m -> m)._toQuery();
+
+        NativeQuery searchQuery = NativeQuery.builder()
+                .withQuery(matchAllQuery)
+                .withSort(SortOptions.of(s -> s.field(f -> f.field("_shard_doc").order(SortOrder.Asc))))
+                .build();
+
+        return cursorPaginator.page(searchQuery, Article.class, List.of(), cursor, size);
+    }
+
     // MatchAll query với boost (tăng relevance score)
+    @Cacheable(sync = true)
     public List<Article> findAllArticlesWithBoost(float boost) {
         Query matchAllQuery = MatchAllQuery.of(m -> m.boost(boost))._toQuery();
 
@@ -72,6 +99,7 @@ public class FullTextSearchService {
     }
 
     // Kết hợp MatchAll với filter
+    @Cacheable(sync = true)
     public List<Article> findAllArticlesByCategory(String category) {
         Query matchAllQuery = MatchAllQuery.of(m -> m)._toQuery();
         Query termQuery = TermQuery.of(t -> t.field("category").value(category))._toQuery();
@@ -92,6 +120,7 @@ public class FullTextSearchService {
     }
 
     // Đếm tổng số documents với MatchAll
+    @Cacheable(sync = true)
     public long countAllArticles() {
         Query matchAllQuery = MatchAllQuery.of(m -> m)._toQuery();
 
@@ -103,26 +132,31 @@ public class FullTextSearchService {
     }
 
     // Sử dụng repository method đơn giản cho MatchAll
+    @Cacheable(sync = true)
     public List<Article> findAllArticlesUsingRepository() {
         return (List<Article>) articleRepository.findAll();
     }
 
     // Save article
+    @CacheEvict(allEntries = true)
     public Article saveArticle(Article article) {
         return articleRepository.save(article);
     }
 
     // Save multiple articles
+    @CacheEvict(allEntries = true)
     public Iterable<Article> saveAllArticles(List<Article> articles) {
         return articleRepository.saveAll(articles);
     }
 
     // Delete all articles
+    @CacheEvict(allEntries = true)
     public void deleteAllArticles() {
         articleRepository.deleteAll();
     }
 
     // Tạo sample data để test
+    @CacheEvict(allEntries = true)
     public void createSampleData() {
         List<Article> sampleArticles = List.of(
                 new Article("Spring Boot Tutorial", "Learn Spring Boot framework basics", "John Doe", "Programming", "spring,java,tutorial"),
@@ -0,0 +1,176 @@
+package com.example.demo.fulltext.service;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.QueryCacheStats;
+import co.elastic.clients.elasticsearch._types.SortOrder;
+import com.example.demo.fulltext.model.ProductEntity;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.IndexOperations;
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
+import org.springframework.data.elasticsearch.core.query.Criteria;
+import org.springframework.data.elasticsearch.core.query.CriteriaQuery;
+import org.springframework.data.elasticsearch.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Function;
+
+/**
+ * Compares the price and created-date range lookups as scoring {@link CriteriaQuery} (how
+ * {@link RangeQueryService} built them before) and in filter context via {@link FilterQueryBuilder}.
+ * The filter lookups run twice, unsorted and with the field sort the range endpoints use, so the
+ * cost of sorting is reported on its own instead of being counted against filter context.
+ * <p>
+ * The lookups run against a scratch index with the {@link ProductEntity} mapping, filled with
+ * random products and merged to one segment: Elasticsearch only caches filters on segments with
+ * at least 10,000 documents, and the bulk test data has no {@code createdDate}. Both modes run the
+ * same fixed set of ranges, bypassing the application result cache. The query cache is cleared
+ * before each run, and its hit and miss counters are read before and after, so each mode is
+ * charged only for its own lookups. Rounds alternate the order of the modes. The scratch index is
+ * deleted afterwards.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class RangeQueryBenchmarkService {
+
+    private static final String BENCHMARK_INDEX = "products_rangebench";
+    private static final int INDEX_BATCH_SIZE = 5000;
+    private static final double[][] PRICE_RANGES = {{0, 100}, {100, 500}, {500, 2000}, {2000, 100_000}};
+    private static final int[] DATE_WINDOW_DAYS = {1, 7, 30, 365};
+
+    private final ElasticsearchClient elasticsearchClient;
+    private final ElasticsearchOperations elasticsearchOperations;
+
+    public String compareScoringAndFilter(int documents, int iterations, int rounds) throws IOException {
+        log.info("Benchmarking scoring vs. filter range lookups on {} products, {} per mode over {} rounds",
+                documents, iterations, rounds);
+        // Whole days, so the same date ranges repeat and can be cached
+        LocalDateTime today = LocalDate.now().atStartOfDay().plusDays(1);
+        IndexCoordinates index = IndexCoordinates.of(BENCHMARK_INDEX);
+        try {
+            createIndex(index, documents, today);
+            return compare(index, documents, iterations, rounds, today);
+        } finally {
+            elasticsearchClient.indices().delete(d -> d.index(BENCHMARK_INDEX).ignoreUnavailable(true));
+        }
+    }
+
+    private String compare(IndexCoordinates index, int documents, int iterations, int rounds, LocalDateTime today)
+            throws IOException {
+        Map<String, Function<Integer, Query>> lookups = new LinkedHashMap<>();
+        lookups.put("price/scoring", i -> {
+            double[] range = PRICE_RANGES[i % PRICE_RANGES.length];
+            return new CriteriaQuery(new Criteria("price").between(range[0], range[1]));
+        });
+        // Unsorted filter lookups (in _doc order) compare with scoring alone; the sorted ones add the
+        // field sort with its id tiebreaker that the range endpoints use
+        lookups.put("price/filter", i -> {
+            double[] range = PRICE_RANGES[i % PRICE_RANGES.length];
+            return FilterQueryBuilder.filter().between("price", range[0], range[1]).build();
+        });
+        lookups.put("price/filter+sort", i -> {
+            double[] range = PRICE_RANGES[i % PRICE_RANGES.length];
+            return FilterQueryBuilder.filter().between("price", range[0], range[1])
+                    .sortBy("price", SortOrder.Asc).build();
+        });
+        lookups.put("date/scoring", i -> new CriteriaQuery(new Criteria("createdDate")
+                .between(today.minusDays(DATE_WINDOW_DAYS[i % DATE_WINDOW_DAYS.length]), today)));
+        lookups.put("date/filter", i -> FilterQueryBuilder.filter()
+                .between("createdDate", today.minusDays(DATE_WINDOW_DAYS[i % DATE_WINDOW_DAYS.length]), today)
+                .build());
+        lookups.put("date/filter+sort", i -> FilterQueryBuilder.filter()
+                .between("createdDate", today.minusDays(DATE_WINDOW_DAYS[i % DATE_WINDOW_DAYS.length]), today)
+                .sortBy("createdDate", SortOrder.Desc).build());
+
+        Map<String, List<Long>> latencies = new LinkedHashMap<>();
+        Map<String, long[]> cacheCounts = new LinkedHashMap<>();
+        for (int round = 0; round < rounds; round++) {
+            List<String> order = new ArrayList<>(lookups.keySet());
+            if (round % 2 == 1) {
+                order = order.reversed();
+            }
+            for (String mode : order) {
+                long[] counts = run(index, lookups.get(mode), iterations,
+                        latencies.computeIfAbsent(mode, m -> new ArrayList<>()));
+                cacheCounts.merge(mode, counts, (a, b) -> new long[]{a[0] + b[0], a[1] + b[1]});
+            }
+        }
+
+        StringBuilder result = new StringBuilder(String.format(
+                "Range Query Benchmark (%d products, %d lookups per mode, %d rounds):\n",
+                documents, iterations, rounds));
+        for (String mode : lookups.keySet()) {
+            long[] sorted = latencies.get(mode).stream().mapToLong(Long::longValue).sorted().toArray();
+            long hits = cacheCounts.get(mode)[0];
+            long misses = cacheCounts.get(mode)[1];
+            result.append(String.format(
+                    "%s: avg %.2f ms, p50 %.2f ms, p95 %.2f ms, query cache hits %d, misses %d, hit rate %.1f%%\n",
+                    mode, Arrays.stream(sorted).average().orElse(0) / 1e6, percentile(sorted, 0.50) / 1e6,
+                    percentile(sorted, 0.95) / 1e6, hits, misses,
+                    hits + misses == 0 ? 0.0 : hits * 100.0 / (hits + misses)));
+        }
+        return result.toString();
+    }
+
+    // Returns the query cache hits and misses caused by this run
+    private long[] run(IndexCoordinates index, Function<Integer, Query> lookup, int iterations,
+                       List<Long> latencies) throws IOException {
+        elasticsearchClient.indices().clearCache(c -> c.index(BENCHMARK_INDEX).query(true));
+        QueryCacheStats before = queryCacheStats();
+        for (int i = 0; i < iterations; i++) {
+            Query query = lookup.apply(i);
+            query.setRequestCache(false);
+            long start = System.nanoTime();
+            elasticsearchOperations.search(query, ProductEntity.class, index);
+            latencies.add(System.nanoTime() - start);
+        }
+        QueryCacheStats after = queryCacheStats();
+        return new long[]{after.hitCount() - before.hitCount(), after.missCount() - before.missCount()};
+    }
+
+    private QueryCacheStats queryCacheStats() throws IOException {
+        return elasticsearchClient.indices().stats(s -> s.index(BENCHMARK_INDEX).metric("query_cache"))
+                .all().total().queryCache();
+    }
+
+    private void createIndex(IndexCoordinates index, int documents, LocalDateTime today) throws IOException {
+        IndexOperations indexOps = elasticsearchOperations.indexOps(index);
+        indexOps.delete();
+        indexOps.create(indexOps.createSettings(ProductEntity.class), indexOps.createMapping(ProductEntity.class));
+
+        // Fixed seed, so every run searches the same data
+        Random random = new Random(42);
+        for (int from = 0; from < documents; from += INDEX_BATCH_SIZE) {
+            List<ProductEntity> batch = new ArrayList<>(INDEX_BATCH_SIZE);
+            for (int i = from; i < Math.min(from + INDEX_BATCH_SIZE, documents); i++) {
+                ProductEntity product = new ProductEntity("Product " + i, "Benchmark product",
+                        "Category " + random.nextInt(20), "Brand " + random.nextInt(50),
+                        Math.round(random.nextDouble() * 500_000) / 100.0, random.nextInt(200),
+                        Math.round(random.nextDouble() * 50) / 10.0, random.nextDouble() * 5, random.nextInt(50));
+                product.setCreatedDate(today.minusMinutes(random.nextInt(2 * 365 * 24 * 60)));
+                batch.add(product);
+            }
+            elasticsearchOperations.save(batch, index);
+        }
+        elasticsearchClient.indices().refresh(r -> r.index(BENCHMARK_INDEX));
+        elasticsearchClient.indices().forcemerge(f -> f.index(BENCHMARK_INDEX).maxNumSegments(1L));
+    }
+
+    private static long percentile(long[] sorted, double fraction) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(fraction * sorted.length) - 1)];
+    }
+}
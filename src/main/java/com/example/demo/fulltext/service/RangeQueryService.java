@@ -1,27 +1,44 @@
 package com.example.demo.fulltext.service;
 
+import com.example.demo.fulltext.dto.CursorPage;
+import com.example.demo.fulltext.dto.RangeQueryResponse;
+import com.example.demo.fulltext.dto.RangeStatsRequest;
+import com.example.demo.fulltext.dto.RangeStatsResponse;
 import com.example.demo.fulltext.model.ProductEntity;
 import com.example.demo.fulltext.repository.ProductRepository;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
+import org.springframework.cache.annotation.CacheConfig;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.elasticsearch.annotations.Field;
+import org.springframework.data.elasticsearch.annotations.FieldType;
+import org.springframework.data.elasticsearch.client.elc.ElasticsearchAggregations;
 import org.springframework.data.elasticsearch.client.elc.NativeQuery;
 import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
 import org.springframework.data.elasticsearch.core.SearchHit;
 import org.springframework.data.elasticsearch.core.SearchHits;
-import org.springframework.data.elasticsearch.core.query.Criteria;
-import org.springframework.data.elasticsearch.core.query.CriteriaQuery;
 import org.springframework.stereotype.Service;
+import co.elastic.clients.elasticsearch._types.SortOrder;
 import co.elastic.clients.elasticsearch._types.query_dsl.Query;
 import co.elastic.clients.elasticsearch._types.query_dsl.BoolQuery;
 import co.elastic.clients.elasticsearch._types.query_dsl.TermQuery;
 import co.elastic.clients.elasticsearch._types.query_dsl.MatchAllQuery;
+import co.elastic.clients.elasticsearch._types.aggregations.Aggregation;
+import co.elastic.clients.elasticsearch._types.aggregations.AggregationRange;
+import co.elastic.clients.elasticsearch._types.aggregations.RangeBucket;
+import co.elastic.clients.elasticsearch._types.aggregations.StatsAggregate;
 
 import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Objects;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
+@CacheConfig(cacheNames = "products", keyGenerator = "queryCacheKeyGenerator")
 public class RangeQueryService {
 
     @Autowired
@@ -30,12 +47,29 @@ public class RangeQueryService {
     @Autowired
     private ElasticsearchOperations elasticsearchOperations;
 
-    // ===== NUMERIC RANGE QUERIES USING CRITERIA QUERY =====
+    @Autowired
+    private CursorPaginator cursorPaginator;
+
+    private static final int MAX_STATS_BUCKETS = 100;
+
+    // Các field số của ProductEntity có thể dùng cho range aggregation
+    private static final Set<String> NUMERIC_FIELDS = Arrays.stream(ProductEntity.class.getDeclaredFields())
+            .filter(f -> f.isAnnotationPresent(Field.class))
+            .filter(f -> EnumSet.of(FieldType.Integer, FieldType.Long, FieldType.Short, FieldType.Byte,
+                    FieldType.Double, FieldType.Float, FieldType.Half_Float, FieldType.Scaled_Float)
+                    .contains(f.getAnnotation(Field.class).type()))
+            .map(java.lang.reflect.Field::getName)
+            .collect(Collectors.toUnmodifiableSet());
 
-    // Range query cho price sử dụng Criteria (native approach)
+    // ===== NUMERIC RANGE QUERIES IN FILTER CONTEXT =====
+
+    // Range query cho price trong filter context
+    @Cacheable(sync = true)
     public List<ProductEntity> findProductsByPriceRange(Double minPrice, Double maxPrice) {
-        Criteria criteria = new Criteria("price").between(minPrice, maxPrice);
-        CriteriaQuery query = new CriteriaQuery(criteria);
+        NativeQuery query = FilterQueryBuilder.filter()
+                .between("price", minPrice, maxPrice)
+                .sortBy("price", SortOrder.Asc)
+                .build();
 
         SearchHits<ProductEntity> searchHits = elasticsearchOperations.search(query, ProductEntity.class);
         return searchHits.getSearchHits().stream()
@@ -43,10 +77,13 @@ public class RangeQueryService {
                 .collect(Collectors.toList());
     }
 
-    // Range query cho quantity sử dụng Criteria
+    // Range query cho quantity trong filter context
+    @Cacheable(sync = true)
     public List<ProductEntity> findProductsByQuantityRange(Integer minQuantity, Integer maxQuantity) {
-        Criteria criteria = new Criteria("quantity").between(minQuantity, maxQuantity);
-        CriteriaQuery query = new CriteriaQuery(criteria);
+        NativeQuery query = FilterQueryBuilder.filter()
+                .between("quantity", minQuantity, maxQuantity)
+                .sortBy("quantity", SortOrder.Asc)
+                .build();
 
         SearchHits<ProductEntity> searchHits = elasticsearchOperations.search(query, ProductEntity.class);
         return searchHits.getSearchHits().stream()
@@ -54,10 +91,13 @@ public class RangeQueryService {
                 .collect(Collectors.toList());
     }
 
-    // Range query cho rating sử dụng Criteria
+    // Range query cho rating trong filter context
+    @Cacheable(sync = true)
     public List<ProductEntity> findProductsByRatingRange(Double minRating, Double maxRating) {
-        Criteria criteria = new Criteria("rating").between(minRating, maxRating);
-        CriteriaQuery query = new CriteriaQuery(criteria);
+        NativeQuery query = FilterQueryBuilder.filter()
+                .between("rating", minRating, maxRating)
+                .sortBy("rating", SortOrder.Desc)
+                .build();
 
         SearchHits<ProductEntity> searchHits = elasticsearchOperations.search(query, ProductEntity.class);
         return searchHits.getSearchHits().stream()
@@ -65,10 +105,13 @@ public class RangeQueryService {
                 .collect(Collectors.toList());
     }
 
-    // Range query cho weight sử dụng Criteria
+    // Range query cho weight trong filter context
+    @Cacheable(sync = true)
     public List<ProductEntity> findProductsByWeightRange(Double minWeight, Double maxWeight) {
-        Criteria criteria = new Criteria("weight").between(minWeight, maxWeight);
-        CriteriaQuery query = new CriteriaQuery(criteria);
+        NativeQuery query = FilterQueryBuilder.filter()
+                .between("weight", minWeight, maxWeight)
+                .sortBy("weight", SortOrder.Asc)
+                .build();
 
         SearchHits<ProductEntity> searchHits = elasticsearchOperations.search(query, ProductEntity.class);
         return searchHits.getSearchHits().stream()
@@ -76,12 +119,15 @@ public class RangeQueryService {
                 .collect(Collectors.toList());
     }
 
-    // ===== DATE RANGE QUERIES USING CRITERIA =====
+    // ===== DATE RANGE QUERIES IN FILTER CONTEXT =====
 
-    // Range query cho created date sử dụng Criteria
+    // Range query cho created date trong filter context
+    @Cacheable(sync = true)
     public List<ProductEntity> findProductsByCreatedDateRange(LocalDateTime startDate, LocalDateTime endDate) {
-        Criteria criteria = new Criteria("createdDate").between(startDate, endDate);
-        CriteriaQuery query = new CriteriaQuery(criteria);
+        NativeQuery query = FilterQueryBuilder.filter()
+                .between("createdDate", startDate, endDate)
+                .sortBy("createdDate", SortOrder.Desc)
+                .build();
 
         SearchHits<ProductEntity> searchHits = elasticsearchOperations.search(query, ProductEntity.class);
         return searchHits.getSearchHits().stream()
@@ -89,10 +135,13 @@ public class RangeQueryService {
                 .collect(Collectors.toList());
     }
 
-    // Range query cho last updated sử dụng Criteria
+    // Range query cho last updated trong filter context
+    @Cacheable(sync = true)
     public List<ProductEntity> findProductsByLastUpdatedRange(LocalDateTime startDate, LocalDateTime endDate) {
-        Criteria criteria = new Criteria("lastUpdated").between(startDate, endDate);
-        CriteriaQuery query = new CriteriaQuery(criteria);
+        NativeQuery query = FilterQueryBuilder.filter()
+                .between("lastUpdated", startDate, endDate)
+                .sortBy("lastUpdated", SortOrder.Desc)
+                .build();
 
         SearchHits<ProductEntity> searchHits = elasticsearchOperations.search(query, ProductEntity.class);
         return searchHits.getSearchHits().stream()
@@ -100,12 +149,15 @@ public class RangeQueryService {
                 .collect(Collectors.toList());
     }
 
-    // ===== GREATER THAN / LESS THAN QUERIES USING CRITERIA =====
+    // ===== GREATER THAN / LESS THAN QUERIES IN FILTER CONTEXT =====
 
-    // Greater than query cho price sử dụng Criteria
+    // Greater than query cho price trong filter context
+    @Cacheable(sync = true)
     public List<ProductEntity> findProductsPriceGreaterThan(Double price) {
-        Criteria criteria = new Criteria("price").greaterThan(price);
-        CriteriaQuery query = new CriteriaQuery(criteria);
+        NativeQuery query = FilterQueryBuilder.filter()
+                .greaterThan("price", price)
+                .sortBy("price", SortOrder.Asc)
+                .build();
 
         SearchHits<ProductEntity> searchHits = elasticsearchOperations.search(query, ProductEntity.class);
         return searchHits.getSearchHits().stream()
@@ -113,10 +165,13 @@ public class RangeQueryService {
                 .collect(Collectors.toList());
     }
 
-    // Less than query cho price sử dụng Criteria
+    // Less than query cho price trong filter context
+    @Cacheable(sync = true)
     public List<ProductEntity> findProductsPriceLessThan(Double price) {
-        Criteria criteria = new Criteria("price").lessThan(price);
-        CriteriaQuery query = new CriteriaQuery(criteria);
+        NativeQuery query = FilterQueryBuilder.filter()
+                .lessThan("price", price)
+                .sortBy("price", SortOrder.Asc)
+                .build();
 
         SearchHits<ProductEntity> searchHits = elasticsearchOperations.search(query, ProductEntity.class);
         return searchHits.getSearchHits().stream()
@@ -124,10 +179,13 @@ public class RangeQueryService {
                 .collect(Collectors.toList());
     }
 
-    // Greater than equal cho rating sử dụng Criteria
+    // Greater than equal cho rating trong filter context
+    @Cacheable(sync = true)
     public List<ProductEntity> findProductsRatingGreaterThanEqual(Double rating) {
-        Criteria criteria = new Criteria("rating").greaterThanEqual(rating);
-        CriteriaQuery query = new CriteriaQuery(criteria);
+        NativeQuery query = FilterQueryBuilder.filter()
+                .greaterThanEqual("rating", rating)
+                .sortBy("rating", SortOrder.Desc)
+                .build();
 
         SearchHits<ProductEntity> searchHits = elasticsearchOperations.search(query, ProductEntity.class);
         return searchHits.getSearchHits().stream()
@@ -135,15 +193,16 @@ public class RangeQueryService {
                 .collect(Collectors.toList());
     }
 
-    // ===== COMBINATION QUERIES USING CRITERIA AND NATIVE QUERY =====
+    // ===== COMBINATION QUERIES IN FILTER CONTEXT =====
 
-    // Range query kết hợp với category filter sử dụng Criteria
+    // Range query kết hợp với category filter trong filter context
+    @Cacheable(sync = true)
     public List<ProductEntity> findProductsByPriceRangeAndCategory(Double minPrice, Double maxPrice, String category) {
-        Criteria priceCriteria = new Criteria("price").between(minPrice, maxPrice);
-        Criteria categoryCriteria = new Criteria("category").is(category);
-        Criteria combinedCriteria = priceCriteria.and(categoryCriteria);
-
-        CriteriaQuery query = new CriteriaQuery(combinedCriteria);
+        NativeQuery query = FilterQueryBuilder.filter()
+                .between("price", minPrice, maxPrice)
+                .term("category", category)
+                .sortBy("price", SortOrder.Asc)
+                .build();
 
         SearchHits<ProductEntity> searchHits = elasticsearchOperations.search(query, ProductEntity.class);
         return searchHits.getSearchHits().stream()
@@ -151,14 +210,15 @@ public class RangeQueryService {
                 .collect(Collectors.toList());
     }
 
-    // Multiple range queries sử dụng Criteria
+    // Multiple range queries trong filter context
+    @Cacheable(sync = true)
     public List<ProductEntity> findProductsByMultipleRanges(Double minPrice, Double maxPrice,
                                                            Integer minQuantity, Integer maxQuantity) {
-        Criteria priceCriteria = new Criteria("price").between(minPrice, maxPrice);
-        Criteria quantityCriteria = new Criteria("quantity").between(minQuantity, maxQuantity);
-        Criteria combinedCriteria = priceCriteria.and(quantityCriteria);
-
-        CriteriaQuery query = new CriteriaQuery(combinedCriteria);
+        NativeQuery query = FilterQueryBuilder.filter()
+                .between("price", minPrice, maxPrice)
+                .between("quantity", minQuantity, maxQuantity)
+                .sortBy("price", SortOrder.Asc)
+                .build();
 
         SearchHits<ProductEntity> searchHits = elasticsearchOperations.search(query, ProductEntity.class);
         return searchHits.getSearchHits().stream()
@@ -166,16 +226,17 @@ public class RangeQueryService {
                 .collect(Collectors.toList());
     }
 
-    // ===== PAGINATION SUPPORT USING CRITERIA =====
+    // ===== PAGINATION SUPPORT IN FILTER CONTEXT =====
 
-    // Range query với pagination sử dụng Criteria
+    // Range query với pagination trong filter context
+    @Cacheable(sync = true)
     public List<ProductEntity> findProductsByPriceRangeWithPagination(Double minPrice, Double maxPrice,
                                                                       int page, int size) {
-        Criteria criteria = new Criteria("price").between(minPrice, maxPrice);
-        CriteriaQuery query = new CriteriaQuery(criteria);
-
-        Pageable pageable = PageRequest.of(page, size);
-        query.setPageable(pageable);
+        NativeQuery query = FilterQueryBuilder.filter()
+                .between("price", minPrice, maxPrice)
+                .sortBy("price", SortOrder.Asc)
+                .page(page, size)
+                .build();
 
         SearchHits<ProductEntity> searchHits = elasticsearchOperations.search(query, ProductEntity.class);
         return searchHits.getSearchHits().stream()
@@ -183,76 +244,187 @@ public class RangeQueryService {
                 .collect(Collectors.toList());
     }
 
+    // Price range với cursor (point-in-time + search_after): chi phí mỗi trang không đổi dù duyệt sâu đến đâu.
+    // Không cache vì mỗi cursor gắn với một PIT riêng
+    public CursorPage<ProductEntity> findProductsByPriceRangeWithCursor(Double minPrice, Double maxPrice,
+                                                                       String cursor, int size) {
+        NativeQuery query = FilterQueryBuilder.filter()
+                .between("price", minPrice, maxPrice)
+                .sortBy("price", SortOrder.Asc)
+                .sortBy("_shard_doc", SortOrder.Asc)
+                .build();
+        return cursorPaginator.page(query, ProductEntity.class, Arrays.asList(minPrice, maxPrice), cursor, size);
+    }
+
     // ===== REPOSITORY METHODS (for comparison) =====
 
     // Sử dụng repository method cho range query
+    @Cacheable(sync = true)
     public List<ProductEntity> findProductsByPriceRangeUsingRepository(Double minPrice, Double maxPrice) {
         return productRepository.findByPriceBetween(minPrice, maxPrice);
     }
 
+    @Cacheable(sync = true)
     public List<ProductEntity> findProductsByQuantityRangeUsingRepository(Integer minQuantity, Integer maxQuantity) {
         return productRepository.findByQuantityBetween(minQuantity, maxQuantity);
     }
 
+    @Cacheable(sync = true)
     public List<ProductEntity> findProductsByRatingRangeUsingRepository(Double minRating, Double maxRating) {
         return productRepository.findByRatingBetween(minRating, maxRating);
     }
 
-    // ===== COUNT OPERATIONS USING CRITERIA =====
+    // ===== COUNT OPERATIONS IN FILTER CONTEXT =====
 
-    // Đếm products trong price range sử dụng Criteria
+    // Đếm products trong price range trong filter context
+    @Cacheable(sync = true)
     public long countProductsByPriceRange(Double minPrice, Double maxPrice) {
-        Criteria criteria = new Criteria("price").between(minPrice, maxPrice);
-        CriteriaQuery query = new CriteriaQuery(criteria);
+        NativeQuery query = FilterQueryBuilder.filter()
+                .between("price", minPrice, maxPrice)
+                .build();
 
         return elasticsearchOperations.count(query, ProductEntity.class);
     }
 
-    // Đếm products trong quantity range sử dụng Criteria
+    // Đếm products trong quantity range trong filter context
+    @Cacheable(sync = true)
     public long countProductsByQuantityRange(Integer minQuantity, Integer maxQuantity) {
-        Criteria criteria = new Criteria("quantity").between(minQuantity, maxQuantity);
-        CriteriaQuery query = new CriteriaQuery(criteria);
+        NativeQuery query = FilterQueryBuilder.filter()
+                .between("quantity", minQuantity, maxQuantity)
+                .build();
 
         return elasticsearchOperations.count(query, ProductEntity.class);
     }
 
-    // Đếm products trong rating range sử dụng Criteria
+    // Đếm products trong rating range trong filter context
+    @Cacheable(sync = true)
     public long countProductsByRatingRange(Double minRating, Double maxRating) {
-        Criteria criteria = new Criteria("rating").between(minRating, maxRating);
-        CriteriaQuery query = new CriteriaQuery(criteria);
+        NativeQuery query = FilterQueryBuilder.filter()
+                .between("rating", minRating, maxRating)
+                .build();
 
         return elasticsearchOperations.count(query, ProductEntity.class);
     }
 
-    // ===== ADVANCED NATIVE QUERIES USING BOOL QUERY =====
+    // ===== BUCKETED STATS USING RANGE AGGREGATION =====
 
-    // Range query với boost sử dụng MatchAll + Bool Query
-    public List<ProductEntity> findProductsByPriceRangeWithBoost(Double minPrice, Double maxPrice, float boost) {
-        // Sử dụng MatchAll query với boost và filter để tạo range effect
-        Query matchAllQuery = MatchAllQuery.of(m -> m.boost(boost))._toQuery();
+    // Đếm products theo nhiều range trên một field số trong một lần search:
+    // size 0 + range aggregation (kèm stats cho mỗi bucket), bật shard request cache
+    @Cacheable(sync = true)
+    public RangeStatsResponse getRangeStats(String field, List<RangeStatsRequest.Bucket> buckets) {
+        validateRangeStats(field, buckets);
+
+        List<AggregationRange> ranges = buckets.stream()
+                .map(bucket -> AggregationRange.of(r -> r
+                        .key(bucket.getKey())
+                        .from(bucket.getFrom())
+                        .to(bucket.getTo())))
+                .collect(Collectors.toList());
+
+        Aggregation rangeAggregation = Aggregation.of(a -> a
+                .range(r -> r.field(field).ranges(ranges))
+                .aggregations("stats", sub -> sub.stats(st -> st.field(field))));
 
         NativeQuery searchQuery = NativeQuery.builder()
-                .withQuery(matchAllQuery)
+                .withQuery(MatchAllQuery.of(m -> m)._toQuery())
+                .withAggregation("ranges", rangeAggregation)
+                .withMaxResults(0)
+                .withTrackTotalHits(true)
+                .withRequestCache(true)
                 .build();
 
         SearchHits<ProductEntity> searchHits = elasticsearchOperations.search(searchQuery, ProductEntity.class);
+        ElasticsearchAggregations aggregations = (ElasticsearchAggregations) searchHits.getAggregations();
+        List<RangeBucket> rangeBuckets = aggregations.get("ranges").aggregation().getAggregate()
+                .range().buckets().array();
+
+        // Range aggregation trả bucket đã sắp theo from rồi to, không theo thứ tự đã gửi
+        // (RATING_BUCKETS sẽ bị đảo ngược), nên đặt từng bucket lại đúng vị trí của nó trong request
+        RangeStatsResponse.BucketStats[] ordered = new RangeStatsResponse.BucketStats[buckets.size()];
+        for (RangeBucket bucket : rangeBuckets) {
+            StatsAggregate stats = bucket.aggregations().get("stats").stats();
+            RangeQueryResponse.RangeStatistics statistics = bucket.docCount() == 0 ? null
+                    : new RangeQueryResponse.RangeStatistics(stats.min(), stats.max(), stats.avg(), stats.count());
+            ordered[requestPosition(buckets, ordered, bucket)] = new RangeStatsResponse.BucketStats(bucket.key(),
+                    bucket.from(), bucket.to(), bucket.docCount(), statistics);
+        }
+
+        return new RangeStatsResponse(field, searchHits.getTotalHits(), Arrays.asList(ordered));
+    }
+
+    // Bucket có key khớp theo key, bucket không key khớp theo from/to; các range giống nhau giữ thứ tự gửi
+    private static int requestPosition(List<RangeStatsRequest.Bucket> buckets,
+                                       RangeStatsResponse.BucketStats[] ordered, RangeBucket bucket) {
+        int firstFree = -1;
+        for (int i = 0; i < buckets.size(); i++) {
+            if (ordered[i] != null) {
+                continue;
+            }
+            RangeStatsRequest.Bucket requested = buckets.get(i);
+            boolean matches = requested.getKey() != null
+                    ? requested.getKey().equals(bucket.key())
+                    : Objects.equals(requested.getFrom(), bucket.from()) && Objects.equals(requested.getTo(), bucket.to());
+            if (matches) {
+                return i;
+            }
+            if (firstFree < 0) {
+                firstFree = i;
+            }
+        }
+        // Không khớp được (ví dụ biên bị làm tròn): lấp chỗ trống đầu tiên thay vì làm hỏng cả response
+        return firstFree;
+    }
 
-        // Filter kết quả theo price range (post-processing)
+    private void validateRangeStats(String field, List<RangeStatsRequest.Bucket> buckets) {
+        if (field == null || !NUMERIC_FIELDS.contains(field)) {
+            throw new IllegalArgumentException("field must be one of " + NUMERIC_FIELDS);
+        }
+        if (buckets == null || buckets.isEmpty() || buckets.size() > MAX_STATS_BUCKETS) {
+            throw new IllegalArgumentException("between 1 and " + MAX_STATS_BUCKETS + " buckets are required");
+        }
+        Set<String> keys = new HashSet<>();
+        for (RangeStatsRequest.Bucket bucket : buckets) {
+            if (bucket == null || (bucket.getFrom() == null && bucket.getTo() == null)) {
+                throw new IllegalArgumentException("every bucket needs from, to or both");
+            }
+            if (bucket.getFrom() != null && bucket.getTo() != null && bucket.getFrom() >= bucket.getTo()) {
+                throw new IllegalArgumentException("bucket from must be less than to");
+            }
+            if (bucket.getKey() != null && !keys.add(bucket.getKey())) {
+                throw new IllegalArgumentException("duplicate bucket key: " + bucket.getKey());
+            }
+        }
+    }
+
+    // ===== ADVANCED NATIVE QUERIES USING BOOL QUERY =====
+
+    // Range query với boost: constant_score cho mọi product khớp score = boost.
+    // Lọc ở Elasticsearch thay vì lọc trang kết quả đầu tiên của MatchAll trong ứng dụng
+    @Cacheable(sync = true)
+    public List<ProductEntity> findProductsByPriceRangeWithBoost(Double minPrice, Double maxPrice, float boost) {
+        NativeQuery query = FilterQueryBuilder.filter()
+                .between("price", minPrice, maxPrice)
+                .boost(boost)
+                .sortBy("_score", SortOrder.Desc)
+                .sortBy("price", SortOrder.Asc)
+                .build();
+
+        SearchHits<ProductEntity> searchHits = elasticsearchOperations.search(query, ProductEntity.class);
         return searchHits.getSearchHits().stream()
                 .map(SearchHit::getContent)
-                .filter(product -> product.getPrice() >= minPrice && product.getPrice() <= maxPrice)
                 .collect(Collectors.toList());
     }
 
     // Complex bool query với multiple conditions
+    @Cacheable(sync = true)
     public List<ProductEntity> findProductsWithComplexConditions(Double minPrice, Double maxPrice,
                                                                 String category, Double minRating) {
-        Criteria priceCriteria = new Criteria("price").between(minPrice, maxPrice);
-        Criteria categoryCriteria = new Criteria("category").is(category);
-        Criteria ratingCriteria = new Criteria("rating").greaterThanEqual(minRating);
-
-        Criteria combinedCriteria = priceCriteria.and(categoryCriteria).and(ratingCriteria);
-        CriteriaQuery query = new CriteriaQuery(combinedCriteria);
+        NativeQuery query = FilterQueryBuilder.filter()
+                .between("price", minPrice, maxPrice)
+                .term("category", category)
+                .greaterThanEqual("rating", minRating)
+                .sortBy("rating", SortOrder.Desc)
+                .build();
 
         SearchHits<ProductEntity> searchHits = elasticsearchOperations.search(query, ProductEntity.class);
         return searchHits.getSearchHits().stream()
@@ -263,26 +435,31 @@ public class RangeQueryService {
     // ===== UTILITY METHODS =====
 
     // Save product
+    @CacheEvict(allEntries = true)
     public ProductEntity saveProduct(ProductEntity product) {
         return productRepository.save(product);
     }
 
     // Save multiple products
+    @CacheEvict(allEntries = true)
     public Iterable<ProductEntity> saveAllProducts(List<ProductEntity> products) {
         return productRepository.saveAll(products);
     }
 
     // Delete all products
+    @CacheEvict(allEntries = true)
     public void deleteAllProducts() {
         productRepository.deleteAll();
     }
 
     // Get all products (for getting all IDs)
+    @Cacheable(sync = true)
     public List<ProductEntity> findAllProducts() {
         return (List<ProductEntity>) productRepository.findAll();
     }
 
     // Tạo sample data cho ProductEntity
+    @CacheEvict(allEntries = true)
     public void createProductSampleData() {
         List<ProductEntity> sampleProducts = List.of(
                 new ProductEntity("iPhone 15", "Latest Apple smartphone", "Electronics", "Apple", 999.99, 50, 4.5, 0.2, 10),
@@ -3,6 +3,9 @@ package com.example.demo.fulltext.service;
 import com.example.demo.fulltext.model.DocumentEntity;
 import com.example.demo.fulltext.repository.DocumentRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.CacheConfig;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.elasticsearch.client.elc.NativeQuery;
@@ -18,6 +21,7 @@ import java.util.List;
 import java.util.stream.Collectors;
 
 @Service
+@CacheConfig(cacheNames = "documents", keyGenerator = "queryCacheKeyGenerator")
 public class SelectByIdsService {
 
     @Autowired
@@ -27,6 +31,7 @@ public class SelectByIdsService {
     private ElasticsearchOperations elasticsearchOperations;
 
     // SelectByIds query - Tìm documents theo danh sách IDs
+    @Cacheable(sync = true)
     public List<DocumentEntity> findDocumentsByIds(List<String> ids) {
         Query idsQuery = co.elastic.clients.elasticsearch._types.query_dsl.IdsQuery.of(i -> i.values(ids))._toQuery();
 
@@ -41,6 +46,7 @@ public class SelectByIdsService {
     }
 
     // SelectByIds với pagination
+    @Cacheable(sync = true)
     public List<DocumentEntity> findDocumentsByIdsWithPagination(List<String> ids, int page, int size) {
         Query idsQuery = co.elastic.clients.elasticsearch._types.query_dsl.IdsQuery.of(i -> i.values(ids))._toQuery();
         Pageable pageable = PageRequest.of(page, size);
@@ -57,6 +63,7 @@ public class SelectByIdsService {
     }
 
     // SelectByIds kết hợp với filter theo type
+    @Cacheable(sync = true)
     public List<DocumentEntity> findDocumentsByIdsAndType(List<String> ids, String type) {
         Query idsQuery = co.elastic.clients.elasticsearch._types.query_dsl.IdsQuery.of(i -> i.values(ids))._toQuery();
         Query termQuery = TermQuery.of(t -> t.field("type").value(type))._toQuery();
@@ -77,6 +84,7 @@ public class SelectByIdsService {
     }
 
     // SelectByIds kết hợp với filter theo status
+    @Cacheable(sync = true)
     public List<DocumentEntity> findDocumentsByIdsAndStatus(List<String> ids, String status) {
         Query idsQuery = co.elastic.clients.elasticsearch._types.query_dsl.IdsQuery.of(i -> i.values(ids))._toQuery();
         Query termQuery = TermQuery.of(t -> t.field("status").value(status))._toQuery();
@@ -97,6 +105,7 @@ public class SelectByIdsService {
     }
 
     // SelectByIds với boost
+    @Cacheable(sync = true)
     public List<DocumentEntity> findDocumentsByIdsWithBoost(List<String> ids, float boost) {
         Query idsQuery = co.elastic.clients.elasticsearch._types.query_dsl.IdsQuery.of(i ->
             i.values(ids).boost(boost)
@@ -113,6 +122,7 @@ public class SelectByIdsService {
     }
 
     // SelectByIds với multiple filters (type và status)
+    @Cacheable(sync = true)
     public List<DocumentEntity> findDocumentsByIdsWithMultipleFilters(List<String> ids, String type, String status) {
         Query idsQuery = co.elastic.clients.elasticsearch._types.query_dsl.IdsQuery.of(i -> i.values(ids))._toQuery();
         Query typeQuery = TermQuery.of(t -> t.field("type").value(type))._toQuery();
@@ -135,11 +145,13 @@ public class SelectByIdsService {
     }
 
     // Sử dụng repository method đơn giản cho SelectByIds
+    @Cacheable(sync = true)
     public List<DocumentEntity> findDocumentsByIdsUsingRepository(List<String> ids) {
         return (List<DocumentEntity>) documentRepository.findAllById(ids);
     }
 
     // Đếm số documents theo IDs
+    @Cacheable(sync = true)
     public long countDocumentsByIds(List<String> ids) {
         Query idsQuery = co.elastic.clients.elasticsearch._types.query_dsl.IdsQuery.of(i -> i.values(ids))._toQuery();
 
@@ -151,6 +163,7 @@ public class SelectByIdsService {
     }
 
     // Lấy danh sách tất cả IDs có trong index documents
+    @Cacheable(sync = true)
     public List<String> getAllDocumentIds() {
         Query matchAllQuery = co.elastic.clients.elasticsearch._types.query_dsl.MatchAllQuery.of(m -> m)._toQuery();
 
@@ -165,6 +178,7 @@ public class SelectByIdsService {
     }
 
     // Kiểm tra IDs nào tồn tại trong index
+    @Cacheable(sync = true)
     public List<String> checkExistingDocumentIds(List<String> ids) {
         List<DocumentEntity> foundDocuments = findDocumentsByIds(ids);
         return foundDocuments.stream()
@@ -173,6 +187,7 @@ public class SelectByIdsService {
     }
 
     // Lấy documents theo IDs và sắp xếp theo priority
+    @Cacheable(sync = true)
     public List<DocumentEntity> findDocumentsByIdsOrderByPriority(List<String> ids) {
         List<DocumentEntity> documents = findDocumentsByIds(ids);
         return documents.stream()
@@ -181,21 +196,25 @@ public class SelectByIdsService {
     }
 
     // Save document
+    @CacheEvict(allEntries = true)
     public DocumentEntity saveDocument(DocumentEntity document) {
         return documentRepository.save(document);
     }
 
     // Save multiple documents
+    @CacheEvict(allEntries = true)
     public Iterable<DocumentEntity> saveAllDocuments(List<DocumentEntity> documents) {
         return documentRepository.saveAll(documents);
     }
 
     // Delete all documents
+    @CacheEvict(allEntries = true)
     public void deleteAllDocuments() {
         documentRepository.deleteAll();
     }
 
     // Tạo sample data để test SelectByIds
+    @CacheEvict(allEntries = true)
     public void createDocumentSampleData() {
         List<DocumentEntity> sampleDocuments = List.of(
                 new DocumentEntity("User Manual", "Complete user guide for the application", "MANUAL", "ACTIVE", "guide,user,help", 5),
@@ -0,0 +1,24 @@
+package com.example.demo.importer.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportResult {
+    private String file;
+    private String target;
+    private String format; // NDJSON or JSON_ARRAY
+    private long fileBytes;
+    private long chunks;
+    private long records;
+    private long failedRecords;
+    private long elapsedMs;
+    private double docsPerSecond;
+    private double megabytesPerSecond;
+    private List<String> sampleErrors; // first few failures, with the byte offset of the record
+}
@@ -0,0 +1,241 @@
+package com.example.demo.importer.service;
+
+import co.elastic.clients.elasticsearch.core.bulk.BulkOperation;
+import co.elastic.clients.elasticsearch.core.bulk.BulkResponseItem;
+import co.elastic.clients.util.BinaryData;
+import co.elastic.clients.util.ContentType;
+import com.example.demo.bulk.dto.ProductDto;
+import com.example.demo.bulk.service.BulkLoadService;
+import com.example.demo.bulk.service.BulkLoadService.BulkLoadSession;
+import com.example.demo.bulk.service.BulkService;
+import com.example.demo.bulk.service.BulkWriteBuffer;
+import com.example.demo.bulk.service.IdGenerators;
+import com.example.demo.config.ImporterProperties;
+import com.example.demo.fulltext.model.Article;
+import com.example.demo.importer.dto.ImportResult;
+import com.example.demo.importer.service.RecordChunks.Chunk;
+import com.example.demo.importer.service.RecordChunks.Format;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Imports a large JSON or NDJSON dump into the products or articles index.
+ * <p>
+ * The file is memory-mapped and cut into slices on record boundaries. Slices are parsed in
+ * parallel, one per parser thread, and every record goes straight into the shared
+ * {@link BulkWriteBuffer}, so batching, the in-flight limit and retries are the same as for
+ * the bulk API. Each parser waits for its slice to be acknowledged before taking the next,
+ * which bounds memory to a few slices and lets a slow cluster throttle the import.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class FileImportService {
+
+    private static final String PRODUCT_INDEX = "products";
+    private static final String ARTICLE_INDEX = "articles";
+    private static final int MAX_SAMPLE_ERRORS = 10;
+
+    private final BulkWriteBuffer bulkWriteBuffer;
+    private final BulkLoadService bulkLoadService;
+    private final BulkService bulkService;
+    private final IdGenerators idGenerators;
+    private final ElasticsearchOperations elasticsearchOperations;
+    private final ObjectMapper objectMapper;
+
+    public ImportResult importFile(Path file, ImporterProperties properties) throws IOException {
+        RecordWriter writer = writerFor(properties.getTarget());
+        int parallelism = properties.getParallelism() > 0
+                ? properties.getParallelism()
+                : Runtime.getRuntime().availableProcessors();
+        long chunkSize = Math.max(1, properties.getChunkSize().toBytes());
+        long startTime = System.currentTimeMillis();
+
+        ImportProgress progress = new ImportProgress();
+        List<Future<?>> slices = new ArrayList<>();
+        ExecutorService parsers = Executors.newFixedThreadPool(parallelism,
+                Thread.ofPlatform().name("import-parser-", 0).factory());
+        // At most two slices per parser are mapped and waiting at any time
+        Semaphore queuedSlices = new Semaphore(parallelism * 2);
+
+        Format format;
+        long fileBytes;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+             BulkLoadSession ignored = properties.isBulkLoad()
+                     ? bulkLoadService.begin(writer.index(), properties.isDisableReplicas())
+                     : BulkLoadSession.NONE) {
+            fileBytes = channel.size();
+            format = "auto".equalsIgnoreCase(properties.getFormat())
+                    ? RecordChunks.detect(channel, file.getFileName().toString())
+                    : "json".equalsIgnoreCase(properties.getFormat()) ? Format.JSON_ARRAY : Format.NDJSON;
+            log.info("Importing {} ({} bytes, {}) into {} with {} parser threads",
+                    file, fileBytes, format, writer.index(), parallelism);
+
+            RecordChunks.plan(channel, format, chunkSize, chunk -> {
+                queuedSlices.acquireUninterruptibly();
+                try {
+                    slices.add(parsers.submit(() -> {
+                        try {
+                            importChunk(channel, chunk, format, writer, progress);
+                            return null;
+                        } finally {
+                            queuedSlices.release();
+                        }
+                    }));
+                } catch (RuntimeException e) {
+                    queuedSlices.release();
+                    throw e;
+                }
+            });
+
+            awaitAll(slices);
+        } finally {
+            parsers.shutdownNow();
+        }
+
+        long elapsedMs = Math.max(1, System.currentTimeMillis() - startTime);
+        ImportResult result = new ImportResult(file.toString(), writer.index(), format.name(), fileBytes,
+                slices.size(), progress.records.get(), progress.failed.get(), elapsedMs,
+                progress.records.get() * 1000.0 / elapsedMs, fileBytes / 1024.0 / 1024.0 * 1000.0 / elapsedMs,
+                List.copyOf(progress.sampleErrors));
+        log.info("Imported {}: {} records, {} failed, {} ms ({} docs/s)", file, result.getRecords(),
+                result.getFailedRecords(), elapsedMs, Math.round(result.getDocsPerSecond()));
+        return result;
+    }
+
+    private void importChunk(FileChannel channel, Chunk chunk, Format format, RecordWriter writer,
+                             ImportProgress progress) throws IOException {
+        MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, chunk.start(), chunk.length());
+        List<PendingRecord> pending = new ArrayList<>();
+
+        RecordChunks.forEachRecord(bytes, format, (offset, record, length) -> {
+            progress.records.incrementAndGet();
+            long fileOffset = chunk.start() + offset;
+            try {
+                pending.add(new PendingRecord(fileOffset, writer.write(record, length)));
+            } catch (Exception e) {
+                progress.fail(fileOffset, e.getMessage());
+            }
+        });
+
+        // The slice is complete; do not leave its tail to the buffer's linger timer
+        bulkWriteBuffer.flush();
+        for (PendingRecord record : pending) {
+            try {
+                BulkResponseItem item = record.future().join();
+                if (item.error() != null) {
+                    progress.fail(record.fileOffset(), item.error().type() + ": " + item.error().reason());
+                }
+            } catch (CompletionException e) {
+                progress.fail(record.fileOffset(), e.getCause().getMessage());
+            }
+        }
+    }
+
+    private RecordWriter writerFor(String target) {
+        return switch (target.toLowerCase()) {
+            case PRODUCT_INDEX -> new RecordWriter(PRODUCT_INDEX, objectMapper.readerFor(ProductDto.class)) {
+                @Override
+                CompletableFuture<BulkResponseItem> write(byte[] record, int length) throws IOException {
+                    ProductDto dto = reader.readValue(record, 0, length);
+                    String id = dto.getId() != null ? dto.getId() : idGenerators.forIndex(PRODUCT_INDEX).nextId();
+                    return queue(id, bulkService.newProductSource(id, dto, LocalDate.now()));
+                }
+            };
+            case ARTICLE_INDEX -> new RecordWriter(ARTICLE_INDEX, objectMapper.readerFor(Article.class)) {
+                @Override
+                CompletableFuture<BulkResponseItem> write(byte[] record, int length) throws IOException {
+                    Article article = reader.readValue(record, 0, length);
+                    if (article.getId() == null) {
+                        article.setId(idGenerators.forIndex(ARTICLE_INDEX).nextId());
+                    }
+                    byte[] source = elasticsearchOperations.getElasticsearchConverter()
+                            .mapObject(article)
+                            .toJson()
+                            .getBytes(StandardCharsets.UTF_8);
+                    return queue(article.getId(), source);
+                }
+            };
+            default -> throw new IllegalArgumentException("Unsupported import target: " + target);
+        };
+    }
+
+    private static void awaitAll(List<Future<?>> slices) throws IOException {
+        for (Future<?> slice : slices) {
+            try {
+                slice.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Import interrupted", e);
+            } catch (ExecutionException e) {
+                throw new IOException("Import of a file slice failed: " + e.getCause().getMessage(), e.getCause());
+            }
+        }
+    }
+
+    /**
+     * Turns one raw record into a queued index action on its target index.
+     */
+    private abstract class RecordWriter {
+        private final String index;
+        protected final ObjectReader reader;
+
+        RecordWriter(String index, ObjectReader reader) {
+            this.index = index;
+            this.reader = reader;
+        }
+
+        String index() {
+            return index;
+        }
+
+        abstract CompletableFuture<BulkResponseItem> write(byte[] record, int length) throws IOException;
+
+        protected CompletableFuture<BulkResponseItem> queue(String id, byte[] source) {
+            BulkOperation operation = BulkOperation.of(b -> b.index(i -> i
+                    .index(index)
+                    .id(id)
+                    .document(BinaryData.of(source, ContentType.APPLICATION_JSON))));
+            return bulkWriteBuffer.add(operation, source.length);
+        }
+    }
+
+    private static class ImportProgress {
+        private final AtomicLong records = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private final List<String> sampleErrors = Collections.synchronizedList(new ArrayList<>());
+
+        void fail(long fileOffset, String message) {
+            failed.incrementAndGet();
+            if (sampleErrors.size() < MAX_SAMPLE_ERRORS) {
+                sampleErrors.add("Record at byte " + fileOffset + ": " + message);
+            }
+        }
+    }
+
+    private record PendingRecord(long fileOffset, CompletableFuture<BulkResponseItem> future) {
+    }
+}
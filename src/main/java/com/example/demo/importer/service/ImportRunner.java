@@ -0,0 +1,43 @@
+package com.example.demo.importer.service;
+
+import com.example.demo.config.ImporterProperties;
+import com.example.demo.importer.dto.ImportResult;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Imports {@code importer.file} once the application has started. Used both for seeding at
+ * server startup and by the {@code import} command of {@link com.example.demo.DemoApplication}.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ImportRunner implements ApplicationRunner {
+
+    private final FileImportService fileImportService;
+    private final ImporterProperties importerProperties;
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        if (!StringUtils.hasText(importerProperties.getFile())) {
+            return;
+        }
+        Path file = Path.of(importerProperties.getFile());
+        if (!Files.isRegularFile(file)) {
+            throw new IllegalStateException("Import file not found: " + file);
+        }
+
+        ImportResult result = fileImportService.importFile(file, importerProperties);
+        if (result.getFailedRecords() > 0) {
+            log.warn("{} of {} records failed to import, first errors: {}",
+                    result.getFailedRecords(), result.getRecords(), result.getSampleErrors());
+        }
+    }
+}
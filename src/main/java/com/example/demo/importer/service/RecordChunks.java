@@ -0,0 +1,248 @@
+package com.example.demo.importer.service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.function.Consumer;
+
+/**
+ * Splits a memory-mapped JSON or NDJSON file into slices that start and end on record
+ * boundaries, and walks the records of one slice.
+ * <p>
+ * NDJSON is split at roughly equal offsets and each cut is moved forward to the next newline,
+ * so planning touches almost none of the file. A JSON array has to be scanned once for string
+ * and nesting state to find element boundaries; that scan is a tight byte loop and far cheaper
+ * than the parsing done afterwards on all cores.
+ */
+final class RecordChunks {
+
+    enum Format { NDJSON, JSON_ARRAY }
+
+    record Chunk(long start, long end) {
+        long length() {
+            return end - start;
+        }
+    }
+
+    @FunctionalInterface
+    interface RecordConsumer {
+        void accept(long offsetInChunk, byte[] bytes, int length);
+    }
+
+    // Files are mapped in windows because a single MappedByteBuffer is limited to 2 GB
+    private static final long SCAN_WINDOW = 64L * 1024 * 1024;
+    private static final long NEWLINE_WINDOW = 1024L * 1024;
+
+    private RecordChunks() {
+    }
+
+    static Format detect(FileChannel channel, String fileName) throws IOException {
+        String lower = fileName.toLowerCase();
+        if (lower.endsWith(".ndjson") || lower.endsWith(".jsonl")) {
+            return Format.NDJSON;
+        }
+        long size = channel.size();
+        MappedByteBuffer head = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(size, NEWLINE_WINDOW));
+        while (head.hasRemaining()) {
+            byte b = head.get();
+            if (!isWhitespace(b)) {
+                return b == '[' ? Format.JSON_ARRAY : Format.NDJSON;
+            }
+        }
+        return Format.NDJSON;
+    }
+
+    static void plan(FileChannel channel, Format format, long chunkSize, Consumer<Chunk> chunks) throws IOException {
+        if (format == Format.NDJSON) {
+            planLines(channel, chunkSize, chunks);
+        } else {
+            planArray(channel, chunkSize, chunks);
+        }
+    }
+
+    private static void planLines(FileChannel channel, long chunkSize, Consumer<Chunk> chunks) throws IOException {
+        long size = channel.size();
+        long start = 0;
+        while (start < size) {
+            long end = Math.min(start + chunkSize, size);
+            if (end < size) {
+                end = nextLineStart(channel, end, size);
+            }
+            chunks.accept(new Chunk(start, end));
+            start = end;
+        }
+    }
+
+    private static long nextLineStart(FileChannel channel, long from, long size) throws IOException {
+        for (long windowStart = from; windowStart < size; windowStart += NEWLINE_WINDOW) {
+            long windowLength = Math.min(NEWLINE_WINDOW, size - windowStart);
+            MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, windowLength);
+            for (int i = 0; i < windowLength; i++) {
+                if (window.get(i) == '\n') {
+                    return windowStart + i + 1;
+                }
+            }
+        }
+        return size;
+    }
+
+    private static void planArray(FileChannel channel, long chunkSize, Consumer<Chunk> chunks) throws IOException {
+        long size = channel.size();
+        boolean started = false;
+        boolean inString = false;
+        boolean escaped = false;
+        int depth = 0;
+        long chunkStart = 0;
+        // Whether the current slice has anything besides whitespace and commas
+        boolean chunkHasContent = false;
+
+        for (long windowStart = 0; windowStart < size; windowStart += SCAN_WINDOW) {
+            long windowLength = Math.min(SCAN_WINDOW, size - windowStart);
+            MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, windowLength);
+
+            for (int i = 0; i < windowLength; i++) {
+                byte b = window.get(i);
+                long position = windowStart + i;
+
+                if (!started) {
+                    if (isWhitespace(b)) {
+                        continue;
+                    }
+                    if (b != '[') {
+                        throw new IOException("Expected a JSON array at byte " + position);
+                    }
+                    started = true;
+                    depth = 1;
+                    chunkStart = position + 1;
+                    continue;
+                }
+                if (inString) {
+                    if (escaped) {
+                        escaped = false;
+                    } else if (b == '\\') {
+                        escaped = true;
+                    } else if (b == '"') {
+                        inString = false;
+                    }
+                    continue;
+                }
+
+                switch (b) {
+                    case '"' -> {
+                        inString = true;
+                        chunkHasContent = true;
+                    }
+                    case '{', '[' -> {
+                        depth++;
+                        chunkHasContent = true;
+                    }
+                    case '}', ']' -> {
+                        depth--;
+                        if (depth == 0) {
+                            // Closing bracket of the top-level array
+                            if (chunkHasContent) {
+                                chunks.accept(new Chunk(chunkStart, position));
+                            }
+                            return;
+                        }
+                        if (depth == 1 && position + 1 - chunkStart >= chunkSize) {
+                            chunks.accept(new Chunk(chunkStart, position + 1));
+                            chunkStart = position + 1;
+                            chunkHasContent = false;
+                        }
+                    }
+                    default -> {
+                        if (!isWhitespace(b) && b != ',') {
+                            chunkHasContent = true;
+                        }
+                    }
+                }
+            }
+        }
+        throw new IOException("JSON array is not closed");
+    }
+
+    /**
+     * Calls {@code records} for every record in {@code chunk}: each non-blank line for NDJSON,
+     * each top-level element (separated by commas) for a JSON array slice. The byte array is
+     * reused between calls.
+     */
+    static void forEachRecord(ByteBuffer chunk, Format format, RecordConsumer records) {
+        byte[] scratch = new byte[8192];
+        int limit = chunk.limit();
+        int position = 0;
+
+        while (position < limit) {
+            int start = position;
+            int end;
+            if (format == Format.NDJSON) {
+                end = start;
+                while (end < limit && chunk.get(end) != '\n') {
+                    end++;
+                }
+                position = end + 1;
+            } else {
+                while (start < limit && (isWhitespace(chunk.get(start)) || chunk.get(start) == ',')) {
+                    start++;
+                }
+                if (start == limit) {
+                    return;
+                }
+                end = elementEnd(chunk, start, limit);
+                position = end;
+            }
+
+            while (end > start && isWhitespace(chunk.get(end - 1))) {
+                end--;
+            }
+            while (start < end && isWhitespace(chunk.get(start))) {
+                start++;
+            }
+            int length = end - start;
+            if (length == 0) {
+                continue;
+            }
+            if (length > scratch.length) {
+                scratch = new byte[Math.max(length, scratch.length * 2)];
+            }
+            chunk.get(start, scratch, 0, length);
+            records.accept(start, scratch, length);
+        }
+    }
+
+    private static int elementEnd(ByteBuffer chunk, int start, int limit) {
+        boolean inString = false;
+        boolean escaped = false;
+        int depth = 0;
+        for (int i = start; i < limit; i++) {
+            byte b = chunk.get(i);
+            if (inString) {
+                if (escaped) {
+                    escaped = false;
+                } else if (b == '\\') {
+                    escaped = true;
+                } else if (b == '"') {
+                    inString = false;
+                }
+            } else if (b == '"') {
+                inString = true;
+            } else if (b == '{' || b == '[') {
+                depth++;
+            } else if (b == '}' || b == ']') {
+                depth--;
+                if (depth == 0) {
+                    return i + 1;
+                }
+            } else if (depth == 0 && b == ',') {
+                // Scalar element
+                return i;
+            }
+        }
+        return limit;
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\n' || b == '\r' || b == '\t';
+    }
+}
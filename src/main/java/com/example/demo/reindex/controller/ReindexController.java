@@ -0,0 +1,54 @@
+package com.example.demo.reindex.controller;
+
+import com.example.demo.reindex.dto.ReindexOptions;
+import com.example.demo.reindex.dto.ReindexStatus;
+import com.example.demo.reindex.service.ReindexService;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/reindex")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "*")
+public class ReindexController {
+
+    private static final Logger log = LoggerFactory.getLogger(ReindexController.class);
+    private final ReindexService reindexService;
+
+    @PostMapping("/{alias}")
+    public ResponseEntity<ReindexStatus> startReindex(@PathVariable String alias, ReindexOptions options) {
+        log.info("Starting reindex of {} with options {}", alias, options);
+        try {
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(reindexService.submit(alias, options));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+    }
+
+    @GetMapping("/jobs")
+    public ResponseEntity<List<ReindexStatus>> getAllJobs() {
+        return ResponseEntity.ok(reindexService.getAllStatuses());
+    }
+
+    @GetMapping("/jobs/{jobId}")
+    public ResponseEntity<ReindexStatus> getJobStatus(@PathVariable String jobId) {
+        return reindexService.getStatus(jobId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @DeleteMapping("/jobs/{jobId}")
+    public ResponseEntity<ReindexStatus> cancelJob(@PathVariable String jobId) {
+        return reindexService.cancel(jobId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.demo.reindex.dto;
+
+import lombok.Data;
+
+@Data
+public class ReindexOptions {
+    private String slices = "auto"; // "auto" (one slice per shard) or a fixed number of slices
+    private Float requestsPerSecond; // reindex throttle; null = unthrottled
+    private boolean blockWrites; // block writes on the old index while copying, not only from the count check on
+    private boolean deleteOld; // delete the previous versioned index once the alias has moved; forces blockWrites
+}
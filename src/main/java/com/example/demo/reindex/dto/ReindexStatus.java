@@ -0,0 +1,26 @@
+package com.example.demo.reindex.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReindexStatus {
+    private String jobId;
+    private String alias;
+    private List<String> sourceIndices;
+    private String targetIndex;
+    private String state; // QUEUED, RUNNING, COMPLETED, FAILED, CANCELLED
+    private String phase; // CREATING_INDEX, COPYING, VERIFYING, SWAPPING_ALIAS, DONE
+    private long totalDocuments;
+    private long copiedDocuments;
+    private Long sourceCount; // set once the copy has been verified
+    private Long targetCount;
+    private long elapsedMs;
+    private double docsPerSecond;
+    private String error;
+}
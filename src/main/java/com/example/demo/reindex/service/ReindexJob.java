@@ -0,0 +1,97 @@
+package com.example.demo.reindex.service;
+
+import com.example.demo.reindex.dto.ReindexStatus;
+
+import java.util.List;
+
+/**
+ * Mutable state of one background reindex. Written by the job thread, read by status polls.
+ */
+class ReindexJob {
+
+    enum State { QUEUED, RUNNING, COMPLETED, FAILED, CANCELLED }
+
+    enum Phase { CREATING_INDEX, COPYING, VERIFYING, SWAPPING_ALIAS, DONE }
+
+    private final String id;
+    private final String alias;
+
+    private volatile State state = State.QUEUED;
+    private volatile Phase phase;
+    private volatile List<String> sourceIndices = List.of();
+    private volatile String targetIndex;
+    private volatile long startedAt;
+    private volatile long finishedAt;
+    private volatile long total;
+    private volatile long copied;
+    private volatile Long sourceCount;
+    private volatile Long targetCount;
+    private volatile boolean cancelRequested;
+    private volatile String error;
+
+    ReindexJob(String id, String alias) {
+        this.id = id;
+        this.alias = alias;
+    }
+
+    String getId() {
+        return id;
+    }
+
+    String getAlias() {
+        return alias;
+    }
+
+    long getFinishedAt() {
+        return finishedAt;
+    }
+
+    boolean isFinished() {
+        return state == State.COMPLETED || state == State.FAILED || state == State.CANCELLED;
+    }
+
+    boolean isCancelRequested() {
+        return cancelRequested;
+    }
+
+    void requestCancel() {
+        cancelRequested = true;
+    }
+
+    void markRunning(List<String> sources, String target) {
+        sourceIndices = List.copyOf(sources);
+        targetIndex = target;
+        startedAt = System.currentTimeMillis();
+        state = State.RUNNING;
+    }
+
+    void enterPhase(Phase next) {
+        phase = next;
+    }
+
+    void recordProgress(long totalDocs, long copiedDocs) {
+        total = totalDocs;
+        copied = copiedDocs;
+    }
+
+    void recordCounts(long source, long target) {
+        sourceCount = source;
+        targetCount = target;
+    }
+
+    void finish(State finalState, String errorMessage) {
+        error = errorMessage;
+        finishedAt = System.currentTimeMillis();
+        state = finalState;
+    }
+
+    ReindexStatus toStatus() {
+        long end = isFinished() ? finishedAt : System.currentTimeMillis();
+        long elapsedMs = startedAt == 0 ? 0 : end - startedAt;
+        double docsPerSecond = elapsedMs > 0 ? copied * 1000.0 / elapsedMs : 0.0;
+
+        return new ReindexStatus(id, alias, sourceIndices, targetIndex, state.name(),
+                phase == null ? null : phase.name(), total, copied, sourceCount, targetCount,
+                elapsedMs, docsPerSecond, error);
+    }
+}
@@ -0,0 +1,303 @@
+package com.example.demo.reindex.service;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import com.example.demo.bulk.model.Product;
+import com.example.demo.bulk.service.BulkLoadService;
+import com.example.demo.bulk.service.BulkLoadService.BulkLoadSession;
+import com.example.demo.bulk.service.TaskPoller;
+import com.example.demo.cache.service.QueryCacheInvalidator;
+import com.example.demo.fulltext.model.Article;
+import com.example.demo.fulltext.model.DocumentEntity;
+import com.example.demo.fulltext.model.ProductEntity;
+import com.example.demo.reindex.dto.ReindexOptions;
+import com.example.demo.reindex.dto.ReindexStatus;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.document.Document;
+import org.springframework.data.elasticsearch.core.index.Settings;
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Rebuilds an index behind its alias without a window of empty or slow results.
+ * <p>
+ * A new index {@code <alias>_vN} is created from the current entity mappings and filled with a
+ * sliced, server-side reindex while the alias keeps pointing at the old index, so reads are
+ * never served by a half-built index. The copy runs with bulk-load settings on the new index,
+ * document counts of both sides are compared, and only then is the alias moved in a single
+ * atomic {@code _aliases} call. If the alias name is still a concrete index (the layout before
+ * the first reindex), that index is removed in the same call so the name can become an alias.
+ * <p>
+ * Writes to the old index are blocked from the count check until the alias has moved, so nothing
+ * can land on the old index after it has been verified. With {@code blockWrites} the block already
+ * starts before the copy, which rejects every write through the alias for the whole copy, so it is
+ * off by default. It is always used when the old index is deleted afterwards: the legacy conversion
+ * and {@code deleteOld}. Without it, documents added during the copy make the count check fail, but
+ * updates to existing documents made during the copy are not carried over. The old index is then
+ * kept, so they can still be recovered.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ReindexService implements DisposableBean {
+
+    // Entities whose mappings make up each aliased index; products is shared by the bulk and fulltext modules
+    private static final Map<String, List<Class<?>>> MAPPED_ENTITIES = Map.of(
+            "products", List.of(Product.class, ProductEntity.class),
+            "articles", List.of(Article.class),
+            "documents", List.of(DocumentEntity.class));
+
+    private final ElasticsearchClient elasticsearchClient;
+    private final ElasticsearchOperations elasticsearchOperations;
+    private final BulkLoadService bulkLoadService;
+    private final QueryCacheInvalidator queryCacheInvalidator;
+    private final TaskPoller taskPoller;
+
+    private final Map<String, ReindexJob> jobs = new ConcurrentHashMap<>();
+    private final ExecutorService jobExecutor = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("reindex-job-", 0).factory());
+
+    public synchronized ReindexStatus submit(String alias, ReindexOptions options) {
+        if (!MAPPED_ENTITIES.containsKey(alias)) {
+            throw new IllegalArgumentException("No entity mapping registered for alias: " + alias);
+        }
+        TaskPoller.parseSlices(options.getSlices());
+        boolean busy = jobs.values().stream().anyMatch(job -> job.getAlias().equals(alias) && !job.isFinished());
+        if (busy) {
+            throw new IllegalStateException("A reindex of " + alias + " is already running");
+        }
+
+        TaskPoller.evictFinishedJobs(jobs, ReindexJob::isFinished, ReindexJob::getFinishedAt);
+
+        ReindexJob job = new ReindexJob(UUID.randomUUID().toString(), alias);
+        jobs.put(job.getId(), job);
+        jobExecutor.execute(() -> run(job, options));
+
+        log.info("Submitted reindex job {} for alias {}", job.getId(), alias);
+        return job.toStatus();
+    }
+
+    public Optional<ReindexStatus> getStatus(String jobId) {
+        return Optional.ofNullable(jobs.get(jobId)).map(ReindexJob::toStatus);
+    }
+
+    public List<ReindexStatus> getAllStatuses() {
+        return jobs.values().stream().map(ReindexJob::toStatus).toList();
+    }
+
+    public Optional<ReindexStatus> cancel(String jobId) {
+        ReindexJob job = jobs.get(jobId);
+        if (job == null) {
+            return Optional.empty();
+        }
+        job.requestCancel();
+        log.info("Cancellation requested for reindex job {}", jobId);
+        return Optional.of(job.toStatus());
+    }
+
+    private void run(ReindexJob job, ReindexOptions options) {
+        String alias = job.getAlias();
+        List<String> sources = List.of();
+        boolean legacyIndex = false;
+        String target = null;
+        boolean targetCreated = false;
+        boolean writesBlocked = false;
+        boolean swapped = false;
+
+        ReindexJob.State finalState = ReindexJob.State.COMPLETED;
+        String error = null;
+
+        try {
+            sources = aliasIndices(alias);
+            if (sources.isEmpty()) {
+                if (!elasticsearchClient.indices().exists(e -> e.index(alias)).value()) {
+                    throw new IllegalStateException("Nothing to reindex: " + alias + " does not exist");
+                }
+                sources = List.of(alias);
+                legacyIndex = true;
+            }
+            target = nextVersionedIndex(alias);
+            job.markRunning(sources, target);
+
+            job.enterPhase(ReindexJob.Phase.CREATING_INDEX);
+            createIndex(target, MAPPED_ENTITIES.get(alias));
+            targetCreated = true;
+
+            // The old index is removed afterwards, so nothing may be written to it that the copy misses
+            if (options.isBlockWrites() || legacyIndex || options.isDeleteOld()) {
+                setWriteBlock(sources, true);
+                writesBlocked = true;
+            }
+
+            job.enterPhase(ReindexJob.Phase.COPYING);
+            // The new index takes no reads yet, so skip refreshes and replicas until the copy is done
+            try (BulkLoadSession ignored = bulkLoadService.begin(target, true)) {
+                copy(job, sources, target, options);
+            }
+
+            job.enterPhase(ReindexJob.Phase.VERIFYING);
+            if (!writesBlocked) {
+                // A write after the check would stay on the old index, behind the alias
+                setWriteBlock(sources, true);
+                writesBlocked = true;
+            }
+            verifyCounts(job, sources, target);
+
+            job.enterPhase(ReindexJob.Phase.SWAPPING_ALIAS);
+            swapAlias(alias, sources, target, legacyIndex);
+            swapped = true;
+            // Searches through the alias now read the new index
+            queryCacheInvalidator.invalidate(alias);
+
+            if (options.isDeleteOld() && !legacyIndex) {
+                List<String> oldIndices = sources;
+                elasticsearchClient.indices().delete(d -> d.index(oldIndices));
+                log.info("Deleted previous indices {}", oldIndices);
+            }
+            job.enterPhase(ReindexJob.Phase.DONE);
+        } catch (CancellationException e) {
+            finalState = ReindexJob.State.CANCELLED;
+        } catch (Exception e) {
+            log.error("Reindex job {} for {} failed: {}", job.getId(), alias, e.getMessage());
+            finalState = ReindexJob.State.FAILED;
+            error = e.getMessage();
+        }
+
+        // A legacy concrete index is gone once the alias has moved, so there is nothing left to unblock
+        if (writesBlocked && !(swapped && legacyIndex)) {
+            unblockWrites(sources);
+        }
+        if (targetCreated && !swapped) {
+            deleteQuietly(target);
+        }
+
+        job.finish(finalState, error);
+        log.info("Reindex job {} {}: {} -> {}", job.getId(), finalState, sources, target);
+    }
+
+    private List<String> aliasIndices(String alias) throws IOException {
+        if (!elasticsearchClient.indices().existsAlias(e -> e.name(alias)).value()) {
+            return List.of();
+        }
+        return new ArrayList<>(elasticsearchClient.indices().getAlias(g -> g.name(alias)).result().keySet());
+    }
+
+    private String nextVersionedIndex(String alias) throws IOException {
+        Pattern versioned = Pattern.compile(Pattern.quote(alias) + "_v(\\d+)");
+        int latest = 0;
+        for (String index : elasticsearchClient.indices().get(g -> g.index(alias + "_v*")).result().keySet()) {
+            Matcher matcher = versioned.matcher(index);
+            if (matcher.matches()) {
+                latest = Math.max(latest, Integer.parseInt(matcher.group(1)));
+            }
+        }
+        return alias + "_v" + (latest + 1);
+    }
+
+    private void createIndex(String index, List<Class<?>> entities) {
+        Class<?> primary = entities.get(0);
+        Settings settings = elasticsearchOperations.indexOps(primary).createSettings(primary);
+
+        // Fields declared by several entities keep the first definition
+        Map<String, Object> properties = new LinkedHashMap<>();
+        for (Class<?> entity : entities) {
+            Document entityMapping = elasticsearchOperations.indexOps(entity).createMapping(entity);
+            if (entityMapping.get("properties") instanceof Map<?, ?> entityProperties) {
+                entityProperties.forEach((field, definition) -> properties.putIfAbsent((String) field, definition));
+            }
+        }
+        Document mapping = Document.create();
+        mapping.put("properties", properties);
+
+        elasticsearchOperations.indexOps(IndexCoordinates.of(index)).create(settings, mapping);
+        log.info("Created index {} with {} mapped fields", index, properties.size());
+    }
+
+    private void copy(ReindexJob job, List<String> sources, String target, ReindexOptions options)
+            throws IOException, InterruptedException {
+        String taskId = elasticsearchClient.reindex(r -> r
+                .source(s -> s.index(sources))
+                .dest(d -> d.index(target))
+                .slices(TaskPoller.parseSlices(options.getSlices()))
+                .requestsPerSecond(options.getRequestsPerSecond())
+                .waitForCompletion(false)).task();
+        log.info("Reindex {} -> {} running as task {}", sources, target, taskId);
+
+        taskPoller.await(taskId, "Reindex", job::isCancelRequested, status -> job.recordProgress(
+                TaskPoller.number(status, "total"),
+                TaskPoller.number(status, "created") + TaskPoller.number(status, "updated")));
+    }
+
+    private void verifyCounts(ReindexJob job, List<String> sources, String target) throws IOException {
+        // The target was refreshed when the bulk-load session closed; the sources may have pending writes
+        elasticsearchClient.indices().refresh(r -> r.index(sources));
+        long sourceCount = elasticsearchClient.count(c -> c.index(sources)).count();
+        long targetCount = elasticsearchClient.count(c -> c.index(target)).count();
+        job.recordCounts(sourceCount, targetCount);
+
+        if (sourceCount != targetCount) {
+            throw new IllegalStateException("Document count mismatch: " + sources + " has " + sourceCount
+                    + ", " + target + " has " + targetCount);
+        }
+    }
+
+    private void swapAlias(String alias, List<String> sources, String target, boolean legacyIndex) throws IOException {
+        // All actions are applied atomically: readers see either the old index or the new one, never neither
+        elasticsearchClient.indices().updateAliases(u -> {
+            u.actions(a -> a.add(add -> add.index(target).alias(alias)));
+            if (legacyIndex) {
+                u.actions(a -> a.removeIndex(remove -> remove.index(alias)));
+            } else {
+                sources.forEach(source -> u.actions(a -> a.remove(remove -> remove.index(source).alias(alias))));
+            }
+            return u;
+        });
+        log.info("Alias {} now points to {} (was {})", alias, target, sources);
+    }
+
+    private void setWriteBlock(List<String> indices, boolean blocked) throws IOException {
+        elasticsearchClient.indices().putSettings(p -> p
+                .index(indices)
+                .settings(s -> s.blocks(b -> b.write(blocked))));
+        log.info("Write block on {} set to {}", indices, blocked);
+    }
+
+    private void unblockWrites(List<String> indices) {
+        try {
+            setWriteBlock(indices, false);
+        } catch (Exception e) {
+            log.error("Failed to lift write block on {}: {}", indices, e.getMessage());
+        }
+    }
+
+    private void deleteQuietly(String index) {
+        try {
+            elasticsearchClient.indices().delete(d -> d.index(index));
+            log.info("Deleted unfinished index {}", index);
+        } catch (Exception e) {
+            log.error("Failed to delete unfinished index {}: {}", index, e.getMessage());
+        }
+    }
+
+    @Override
+    public void destroy() {
+        jobs.values().forEach(ReindexJob::requestCancel);
+        jobExecutor.shutdown();
+    }
+}
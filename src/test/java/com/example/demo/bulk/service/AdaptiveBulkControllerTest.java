@@ -0,0 +1,160 @@
+package com.example.demo.bulk.service;
+
+import com.example.demo.config.BulkProperties;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdaptiveBulkControllerTest {
+
+    private static final long FAST = Duration.ofMillis(50).toNanos();
+    private static final long SLOW = Duration.ofSeconds(2).toNanos();
+
+    @Test
+    void limitsGrowOnceEveryFullRoundOfHealthyRequests() {
+        AdaptiveBulkController controller = controller(1000, 1);
+
+        controller.onCompleted(controller.epoch(), FAST, 1000, 0);
+        assertLimits(controller, 1100, 2);
+
+        // A round is now two requests
+        controller.onCompleted(controller.epoch(), FAST, 1100, 0);
+        assertLimits(controller, 1100, 2);
+        controller.onCompleted(controller.epoch(), FAST, 1100, 0);
+        assertLimits(controller, 1200, 3);
+        assertThat(controller.getStats()).containsEntry("increases", 2L);
+    }
+
+    @Test
+    void smallBatchesDoNotCountTowardsGrowth() {
+        AdaptiveBulkController controller = controller(1000, 1);
+
+        controller.onCompleted(controller.epoch(), FAST, 499, 0);
+
+        assertLimits(controller, 1000, 1);
+    }
+
+    @Test
+    void burstOfRejectionsCutsTheLimitsOncePerEpoch() {
+        AdaptiveBulkController controller = controller(2000, 4);
+        long sentIn = controller.epoch();
+
+        // Four requests that were in flight together all come back with rejections
+        for (int i = 0; i < 4; i++) {
+            controller.onCompleted(sentIn, FAST, 2000, 10);
+        }
+
+        assertLimits(controller, 1000, 2);
+        assertThat(controller.getStats())
+                .containsEntry("decreases", 1L)
+                .containsEntry("degradedRequests", 4L)
+                .containsEntry("rejectedActions", 40L);
+
+        controller.onCompleted(controller.epoch(), FAST, 1000, 1);
+        assertLimits(controller, 500, 1);
+    }
+
+    @Test
+    void slowOrFailedRequestCutsTheLimits() {
+        AdaptiveBulkController controller = controller(2000, 4);
+
+        controller.onCompleted(controller.epoch(), SLOW, 2000, 0);
+        assertLimits(controller, 1000, 2);
+
+        controller.onFailed(controller.epoch(), "status 503");
+        assertLimits(controller, 500, 1);
+    }
+
+    @Test
+    void reportsFromAnEarlierEpochAreIgnored() {
+        AdaptiveBulkController controller = controller(1000, 2);
+        long stale = controller.epoch();
+        controller.onCompleted(stale, SLOW, 1000, 0);
+        assertLimits(controller, 500, 1);
+
+        controller.onCompleted(stale, SLOW, 1000, 0);
+        controller.onFailed(stale, "timeout");
+        controller.onCompleted(stale, FAST, 1000, 0);
+
+        assertLimits(controller, 500, 1);
+        assertThat(controller.getStats()).containsEntry("decreases", 1L).containsEntry("increases", 0L);
+    }
+
+    @Test
+    void limitsStayWithinTheConfiguredBounds() {
+        AdaptiveBulkController controller = controller(10, 50);
+        assertLimits(controller, 100, 8);
+
+        for (int i = 0; i < 100; i++) {
+            for (int request = 0; request < controller.maxInFlight(); request++) {
+                controller.onCompleted(controller.epoch(), FAST, controller.batchActions(), 0);
+            }
+        }
+        assertLimits(controller, 5000, 8);
+        // Already at the top: nothing changes, so no new epoch either
+        long epoch = controller.epoch();
+        for (int request = 0; request < 8; request++) {
+            controller.onCompleted(epoch, FAST, 5000, 0);
+        }
+        assertThat(controller.epoch()).isEqualTo(epoch);
+
+        for (int i = 0; i < 20; i++) {
+            controller.onFailed(controller.epoch(), "down");
+        }
+        assertLimits(controller, 100, 1);
+    }
+
+    @Test
+    void untimedRequestsOnlyCountTheirRejections() {
+        AdaptiveBulkController controller = controller(1000, 1);
+        controller.onCompleted(controller.epoch(), FAST, 1000, 0);
+        assertLimits(controller, 1100, 2);
+
+        for (int i = 0; i < 4; i++) {
+            controller.onCompleted(controller.epoch(), AdaptiveBulkController.NOT_TIMED, 1100, 0);
+        }
+        assertLimits(controller, 1100, 2);
+        assertThat(controller.getStats()).containsEntry("lastLatencyMs", 50L).containsEntry("averageLatencyMs", 50L);
+
+        controller.onCompleted(controller.epoch(), AdaptiveBulkController.NOT_TIMED, 1100, 3);
+        assertLimits(controller, 550, 1);
+    }
+
+    @Test
+    void fixedLimitsWhenAdaptiveSizingIsOff() {
+        BulkProperties properties = properties(700, 3);
+        properties.setAdaptive(false);
+        AdaptiveBulkController controller = new AdaptiveBulkController(properties);
+
+        controller.onCompleted(controller.epoch(), FAST, 700, 0);
+        controller.onCompleted(controller.epoch(), SLOW, 700, 5);
+        controller.onFailed(controller.epoch(), "down");
+
+        assertLimits(controller, 700, 3);
+        assertThat(controller.getStats()).containsEntry("requests", 3L).containsEntry("degradedRequests", 2L);
+    }
+
+    private static AdaptiveBulkController controller(int maxActions, int maxConcurrentRequests) {
+        return new AdaptiveBulkController(properties(maxActions, maxConcurrentRequests));
+    }
+
+    private static BulkProperties properties(int maxActions, int maxConcurrentRequests) {
+        BulkProperties properties = new BulkProperties();
+        properties.setMaxActions(maxActions);
+        properties.setMaxConcurrentRequests(maxConcurrentRequests);
+        properties.setAdaptiveMinActions(100);
+        properties.setAdaptiveMaxActions(5000);
+        properties.setAdaptiveMaxConcurrentRequests(8);
+        properties.setAdaptiveTargetLatency(Duration.ofSeconds(1));
+        properties.setAdaptiveActionsStep(100);
+        properties.setAdaptiveDecreaseFactor(0.5);
+        return properties;
+    }
+
+    private static void assertLimits(AdaptiveBulkController controller, int batchActions, int maxInFlight) {
+        assertThat(controller.batchActions()).as("batch actions").isEqualTo(batchActions);
+        assertThat(controller.maxInFlight()).as("max in flight").isEqualTo(maxInFlight);
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.demo.bulk.service;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.Refresh;
+import co.elastic.clients.elasticsearch.core.MgetResponse;
+import co.elastic.clients.elasticsearch.core.bulk.BulkOperation;
+import co.elastic.clients.elasticsearch.core.bulk.BulkResponseItem;
+import co.elastic.clients.elasticsearch.core.bulk.OperationType;
+import co.elastic.clients.elasticsearch.core.bulk.UpdateAction;
+import co.elastic.clients.elasticsearch.core.mget.MultiGetResponseItem;
+import com.example.demo.bulk.dto.BulkOperationResult;
+import com.example.demo.bulk.dto.ProductDto;
+import com.example.demo.bulk.model.Product;
+import com.example.demo.bulk.repository.ProductRepository;
+import com.example.demo.cache.service.QueryCacheInvalidator;
+import com.example.demo.config.BulkProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.convert.ElasticsearchCustomConversions;
+import org.springframework.data.elasticsearch.core.convert.MappingElasticsearchConverter;
+import org.springframework.data.elasticsearch.core.mapping.SimpleElasticsearchMappingContext;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Upserts of products that already exist leave the decision to skip an unchanged product to
+ * Elasticsearch, so a write that lands between the content lookup and the upsert is not lost.
+ */
+class BulkServiceTest {
+
+    private final ElasticsearchClient client = mock(ElasticsearchClient.class);
+    private final BulkWriteBuffer bulkWriteBuffer = mock(BulkWriteBuffer.class);
+    private final BulkService service;
+
+    BulkServiceTest() {
+        ElasticsearchCustomConversions conversions = new ElasticsearchCustomConversions(List.of());
+        SimpleElasticsearchMappingContext mappingContext = new SimpleElasticsearchMappingContext();
+        mappingContext.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+        MappingElasticsearchConverter converter = new MappingElasticsearchConverter(mappingContext);
+        converter.setConversions(conversions);
+        converter.afterPropertiesSet();
+
+        ElasticsearchOperations operations = mock(ElasticsearchOperations.class);
+        when(operations.getElasticsearchConverter()).thenReturn(converter);
+        service = new BulkService(mock(ProductRepository.class), client, operations, new ObjectMapper(),
+                bulkWriteBuffer, mock(BulkLoadService.class), mock(IdGenerators.class), mock(UpdateCoalescer.class),
+                new ProductSourceWriter(), new BulkProperties(), mock(BulkSpool.class),
+                mock(QueryCacheInvalidator.class));
+    }
+
+    @Test
+    void storedProductIsUpsertedWithTheMergedHashAndTheVersionItWasReadAt() throws Exception {
+        stored(MultiGetResponseItem.of(i -> i.result(r -> r.index("products").id("p1").found(true).version(3L)
+                .source(Map.of("name", "Laptop", "price", 999.99, "stock", 5, "active", true, "contentHash", "old")))));
+        ArgumentCaptor<BulkOperation> sent = answer("noop");
+
+        BulkOperationResult result = upsert(product("p1", 6)).get(0);
+
+        UpdateAction<?, ?> action = sent.getValue().update().action();
+        Product merged = new Product();
+        merged.setName("Laptop");
+        merged.setPrice(new BigDecimal("999.99"));
+        merged.setStock(6);
+        merged.setActive(true);
+        assertThat(action.script().source()).contains("ctx.op = 'noop'");
+        assertThat(action.script().params().get("hash").to(String.class)).isEqualTo(ProductContentHash.of(merged));
+        assertThat(action.script().params().get("version").to(Long.class)).isEqualTo(3L);
+        assertThat(action.upsert()).isNotNull();
+        // Elasticsearch found the stored hash already matching and skipped the write
+        assertThat(result.getOperation()).isEqualTo("NOOP");
+        assertThat(result.isSuccess()).isTrue();
+    }
+
+    @Test
+    void productNotFoundInTheLookupIsUpsertedWithoutTheScript() throws Exception {
+        stored(MultiGetResponseItem.of(i -> i.result(r -> r.index("products").id("p2").found(false))));
+        ArgumentCaptor<BulkOperation> sent = answer("created");
+
+        BulkOperationResult result = upsert(product("p2", 1)).get(0);
+
+        UpdateAction<?, ?> action = sent.getValue().update().action();
+        assertThat(action.script()).isNull();
+        assertThat(action.doc()).isNotNull();
+        assertThat(result.getOperation()).isEqualTo("CREATE");
+    }
+
+    private List<BulkOperationResult> upsert(ProductDto dto) {
+        return service.bulkUpsertProducts(List.of(dto)).getResults();
+    }
+
+    private void stored(MultiGetResponseItem<Map<String, Object>> item) throws Exception {
+        MgetResponse<Map<String, Object>> response = MgetResponse.of(r -> r.docs(item));
+        doReturn(response).when(client).mget(any(Function.class), any(Class.class));
+    }
+
+    private ArgumentCaptor<BulkOperation> answer(String result) {
+        ArgumentCaptor<BulkOperation> sent = ArgumentCaptor.forClass(BulkOperation.class);
+        when(bulkWriteBuffer.add(sent.capture(), anyLong(), any(Refresh.class))).thenAnswer(invocation -> {
+            BulkOperation operation = invocation.getArgument(0);
+            return CompletableFuture.completedFuture(BulkResponseItem.of(i -> i.operationType(OperationType.Update)
+                    .index("products").id(operation.update().id()).status(200).result(result)));
+        });
+        return sent;
+    }
+
+    private static ProductDto product(String id, int stock) {
+        ProductDto dto = new ProductDto();
+        dto.setId(id);
+        dto.setStock(stock);
+        return dto;
+    }
+}
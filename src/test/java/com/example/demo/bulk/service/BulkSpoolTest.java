@@ -0,0 +1,451 @@
+package com.example.demo.bulk.service;
+
+import co.elastic.clients.elasticsearch.core.bulk.BulkOperation;
+import co.elastic.clients.elasticsearch.core.bulk.BulkResponseItem;
+import co.elastic.clients.elasticsearch.core.bulk.OperationType;
+import com.example.demo.bulk.service.BulkSpool.SpooledAction;
+import com.example.demo.config.BulkProperties;
+import com.example.demo.config.SpoolProperties;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class BulkSpoolTest {
+
+    @TempDir
+    Path dir;
+
+    private final List<BulkSpool> running = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        for (BulkSpool spool : running) {
+            spool.destroy();
+        }
+    }
+
+    @Test
+    void actionsAreReplayedInOrder() throws Exception {
+        List<String> replayed = new CopyOnWriteArrayList<>();
+        BulkSpool spool = start(DataSize.ofMegabytes(1), accepting(replayed));
+
+        append(spool, "a", "b", "c");
+
+        await(() -> replayed.size() == 3);
+        assertThat(replayed).containsExactly("a", "b", "c");
+        await(() -> drained(spool));
+        assertThat(spool.getStats()).containsEntry("replayedActions", 3L).containsEntry("pendingBytes", 0L);
+    }
+
+    @Test
+    void segmentsRollOverAndAreDeletedOnceReplayed() throws Exception {
+        List<String> replayed = new CopyOnWriteArrayList<>();
+        // One byte: every action starts a new segment
+        BulkSpool spool = start(DataSize.ofBytes(1), accepting(replayed));
+
+        append(spool, "a", "b", "c", "d", "e");
+
+        await(() -> replayed.size() == 5);
+        assertThat(replayed).containsExactly("a", "b", "c", "d", "e");
+        await(() -> segmentFiles().size() <= 2);
+    }
+
+    @Test
+    void replayedSegmentsAreDeletedWhileTheDrainerIsNeverIdle() throws Exception {
+        BulkSpool first = start(DataSize.ofBytes(1), rejecting());
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            ids.add("a" + i);
+        }
+        append(first, ids.toArray(String[]::new));
+        stop(first);
+        assertThat(segmentFiles()).hasSizeGreaterThanOrEqualTo(30);
+
+        // The drainer works through the backlog without a pause until it blocks on a20
+        CountDownLatch reached = new CountDownLatch(1);
+        CompletableFuture<BulkResponseItem> release = new CompletableFuture<>();
+        List<String> replayed = new CopyOnWriteArrayList<>();
+        start(DataSize.ofBytes(1), buffer(id -> {
+            replayed.add(id);
+            if (id.equals("a20")) {
+                reached.countDown();
+                return release;
+            }
+            return CompletableFuture.completedFuture(item(id, 200));
+        }));
+
+        assertThat(reached.await(10, TimeUnit.SECONDS)).isTrue();
+        // a0..a18 are gone, the segment of a19 holds the checkpoint, then a20..a29 and the new active segment
+        assertThat(segmentFiles()).hasSizeLessThanOrEqualTo(12);
+        release.complete(item("a20", 200));
+        await(() -> replayed.size() == 30);
+        assertThat(replayed).isEqualTo(ids);
+    }
+
+    @Test
+    void replayResumesFromTheCheckpointAfterARestart() throws Exception {
+        List<String> firstRun = new CopyOnWriteArrayList<>();
+        BulkSpool first = start(DataSize.ofMegabytes(1), accepting(firstRun));
+        append(first, "a", "b", "c");
+        await(() -> firstRun.size() == 3 && checkpointAtTheEndOf(lastNonEmptySegment()));
+        stop(first);
+
+        List<String> secondRun = new CopyOnWriteArrayList<>();
+        BulkSpool second = start(DataSize.ofMegabytes(1), accepting(secondRun));
+        append(second, "d");
+
+        await(() -> secondRun.size() == 1);
+        assertThat(secondRun).containsExactly("d");
+    }
+
+    @Test
+    void tornTailIsTruncatedOnStartup() throws Exception {
+        BulkSpool first = start(DataSize.ofMegabytes(1), rejecting());
+        append(first, "a", "b", "c");
+        stop(first);
+        Path last = lastNonEmptySegment();
+        long size = Files.size(last);
+        // A crash in the middle of writing c
+        truncate(last, size - 3);
+
+        List<String> replayed = new CopyOnWriteArrayList<>();
+        CompletableFuture<Void> release = new CompletableFuture<>();
+        BulkSpool second = start(DataSize.ofMegabytes(1), blocked(replayed, release));
+        // Startup cut the segment back to the end of b
+        assertThat(Files.size(last)).isLessThan(size - 3);
+        append(second, "d");
+        release.complete(null);
+
+        await(() -> replayed.size() == 3);
+        assertThat(replayed).containsExactly("a", "b", "d");
+    }
+
+    @Test
+    void crcMismatchAtTheTailIsTruncatedOnStartup() throws Exception {
+        BulkSpool first = start(DataSize.ofMegabytes(1), rejecting());
+        append(first, "a", "b", "c");
+        stop(first);
+        flipLastByte(lastNonEmptySegment());
+
+        List<String> replayed = new CopyOnWriteArrayList<>();
+        BulkSpool second = start(DataSize.ofMegabytes(1), accepting(replayed));
+        append(second, "d");
+
+        await(() -> replayed.size() == 3);
+        assertThat(replayed).containsExactly("a", "b", "d");
+    }
+
+    @Test
+    void crcMismatchInAnOlderSegmentIsSkipped() throws Exception {
+        BulkSpool first = start(DataSize.ofBytes(1), rejecting());
+        append(first, "a", "b", "c");
+        stop(first);
+        List<Path> segments = segmentFiles().stream().filter(BulkSpoolTest::nonEmpty).toList();
+        assertThat(segments).hasSize(3);
+        // Startup only checks the last segment; b's segment is found corrupt while replaying
+        flipLastByte(segments.get(1));
+
+        List<String> replayed = new CopyOnWriteArrayList<>();
+        BulkSpool second = start(DataSize.ofBytes(1), accepting(replayed));
+
+        await(() -> replayed.size() == 2);
+        assertThat(replayed).containsExactly("a", "c");
+        await(() -> drained(second));
+    }
+
+    @Test
+    void unreadableCheckpointReplaysFromTheOldestSegment() throws Exception {
+        BulkSpool first = start(DataSize.ofMegabytes(1), rejecting());
+        append(first, "a", "b");
+        stop(first);
+
+        for (String checkpoint : new String[]{"", "12", "3 x", "-1 0", "\u0000\u0000ÿ"}) {
+            Files.write(dir.resolve("checkpoint"), checkpoint.getBytes(StandardCharsets.ISO_8859_1));
+
+            BulkSpool spool = start(DataSize.ofMegabytes(1), rejecting());
+            assertThat(spool.getStats()).as("checkpoint '%s'", checkpoint).containsEntry("segments", segmentFiles().size());
+            assertThat((Long) spool.getStats().get("pendingBytes")).isPositive();
+            stop(spool);
+        }
+
+        Files.writeString(dir.resolve("checkpoint"), "garbage");
+        List<String> replayed = new CopyOnWriteArrayList<>();
+        start(DataSize.ofMegabytes(1), accepting(replayed));
+        await(() -> replayed.size() == 2);
+        assertThat(replayed).containsExactly("a", "b");
+        // Rewritten once the drainer has handed both on
+        await(() -> readCheckpoint().matches("\\d+ \\d+"));
+    }
+
+    @Test
+    void corruptEntryInTheMiddleIsSetAsideAndReplayResumesAfterIt() throws Exception {
+        BulkSpool first = start(DataSize.ofMegabytes(1), rejecting());
+        append(first, "a", "b", "c");
+        stop(first);
+        Path segment = lastNonEmptySegment();
+        long frame = Files.size(segment) / 3;
+        // Inside b's payload; a and c stay intact
+        flipByte(segment, frame + frame / 2);
+
+        List<String> replayed = new CopyOnWriteArrayList<>();
+        BulkSpool second = start(DataSize.ofMegabytes(1), accepting(replayed));
+        assertThat(Files.size(segment)).isEqualTo(3 * frame);
+
+        await(() -> replayed.size() == 2);
+        assertThat(replayed).containsExactly("a", "c");
+        await(() -> drained(second));
+        assertThat(second.getStats()).containsEntry("corruptBytes", frame);
+        try (Stream<Path> files = Files.list(dir)) {
+            List<Path> aside = files.filter(path -> path.getFileName().toString().startsWith("corrupt-")).toList();
+            assertThat(aside).hasSize(1);
+            assertThat(Files.size(aside.get(0))).isEqualTo(frame);
+        }
+    }
+
+    @Test
+    void writeBlocksAreRetriedUntilLifted() throws Exception {
+        List<String> replayed = new CopyOnWriteArrayList<>();
+        AtomicInteger blocked = new AtomicInteger(3);
+        BulkSpool spool = start(DataSize.ofMegabytes(1), buffer(id -> {
+            if (blocked.getAndDecrement() > 0) {
+                return CompletableFuture.completedFuture(item(id, 403, "cluster_block_exception"));
+            }
+            replayed.add(id);
+            return CompletableFuture.completedFuture(item(id, 200));
+        }));
+
+        append(spool, "a");
+
+        await(() -> replayed.size() == 1);
+        await(() -> drained(spool));
+        assertThat(spool.getStats()).containsEntry("replayedActions", 1L).containsEntry("failedActions", 0L);
+        assertThat(dir.resolve("dead-letter.jsonl")).doesNotExist();
+    }
+
+    @Test
+    void rejectedActionsGoToTheDeadLetterFile() throws Exception {
+        List<String> replayed = new CopyOnWriteArrayList<>();
+        BulkSpool spool = start(DataSize.ofMegabytes(1), buffer(id -> {
+            replayed.add(id);
+            return CompletableFuture.completedFuture(id.equals("b")
+                    ? item(id, 403, "security_exception") : item(id, 200));
+        }));
+
+        append(spool, "a", "b", "c");
+
+        await(() -> drained(spool) && replayed.size() == 3);
+        assertThat(spool.getStats()).containsEntry("replayedActions", 2L).containsEntry("failedActions", 1L);
+        List<String> lines = Files.readAllLines(dir.resolve("dead-letter.jsonl"));
+        assertThat(lines).hasSize(1);
+        JsonNode line = new ObjectMapper().readTree(lines.get(0));
+        assertThat(line.get("type").asText()).isEqualTo("INDEX");
+        assertThat(line.get("id").asText()).isEqualTo("b");
+        assertThat(line.get("status").asInt()).isEqualTo(403);
+        assertThat(line.get("error").asText()).startsWith("security_exception");
+        assertThat(line.get("body").get("name").asText()).isEqualTo("b");
+    }
+
+    @Test
+    void directoryIsRequiredOnceEnabled() {
+        SpoolProperties properties = new SpoolProperties();
+        properties.setEnabled(true);
+
+        assertThatThrownBy(() -> new BulkSpool(properties, new BulkProperties(), mock(BulkWriteBuffer.class),
+                new ObjectMapper()))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("bulk.spool.directory");
+        assertThat(new SpoolProperties().isEnabled()).isFalse();
+    }
+
+    @Test
+    void idsLongerThanAShortAreKept() throws Exception {
+        List<String> replayed = new CopyOnWriteArrayList<>();
+        BulkSpool spool = start(DataSize.ofMegabytes(1), accepting(replayed));
+        String id = "x".repeat(40_000);
+
+        append(spool, id);
+
+        await(() -> replayed.size() == 1);
+        assertThat(replayed.get(0)).isEqualTo(id);
+    }
+
+    @Test
+    void oversizedIdIsRejected() throws Exception {
+        BulkSpool spool = start(DataSize.ofMegabytes(1), rejecting());
+
+        CompletableFuture<Void> future = spool.append(SpooledAction.delete("products", "é".repeat(40_000)));
+
+        assertThat(future).isCompletedExceptionally();
+        assertThat(future.handle((ignored, e) -> e).get()).isInstanceOf(IllegalArgumentException.class);
+        assertThat(spool.getStats()).containsEntry("appendedActions", 0L);
+    }
+
+    private BulkSpool start(DataSize segmentSize, BulkWriteBuffer buffer) throws IOException {
+        SpoolProperties properties = new SpoolProperties();
+        properties.setEnabled(true);
+        properties.setDirectory(dir.toString());
+        properties.setSegmentSize(segmentSize);
+        properties.setFsyncInterval(Duration.ofMillis(1));
+        properties.setDrainPollInterval(Duration.ofMillis(10));
+        BulkProperties bulkProperties = new BulkProperties();
+        bulkProperties.setInitialBackoff(Duration.ofMillis(10));
+        bulkProperties.setMaxBackoff(Duration.ofMillis(50));
+
+        BulkSpool spool = new BulkSpool(properties, bulkProperties, buffer, new ObjectMapper());
+        running.add(spool);
+        return spool;
+    }
+
+    private void stop(BulkSpool spool) throws InterruptedException {
+        running.remove(spool);
+        spool.destroy();
+    }
+
+    private static void append(BulkSpool spool, String... ids) throws Exception {
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (String id : ids) {
+            futures.add(spool.append(SpooledAction.index("products", id,
+                    ("{\"name\":\"" + id.substring(0, Math.min(id.length(), 10)) + "\"}").getBytes(StandardCharsets.UTF_8))));
+        }
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).get(5, TimeUnit.SECONDS);
+    }
+
+    private static BulkWriteBuffer accepting(List<String> replayed) {
+        return buffer(id -> {
+            replayed.add(id);
+            return CompletableFuture.completedFuture(item(id, 200));
+        });
+    }
+
+    // Replays nothing until released, so segments are not compacted away before they are inspected
+    private static BulkWriteBuffer blocked(List<String> replayed, CompletableFuture<Void> release) {
+        return buffer(id -> {
+            replayed.add(id);
+            return release.thenApply(ignored -> item(id, 200));
+        });
+    }
+
+    // Keeps everything in the spool: every replay fails with a retryable error
+    private static BulkWriteBuffer rejecting() {
+        return buffer(id -> CompletableFuture.completedFuture(item(id, 503)));
+    }
+
+    private static BulkWriteBuffer buffer(Function<String, CompletableFuture<BulkResponseItem>> onAdd) {
+        BulkWriteBuffer buffer = mock(BulkWriteBuffer.class);
+        when(buffer.add(any(BulkOperation.class), anyLong()))
+                .thenAnswer(invocation -> onAdd.apply(invocation.<BulkOperation>getArgument(0).index().id()));
+        return buffer;
+    }
+
+    private static BulkResponseItem item(String id, int status) {
+        return item(id, status, "unavailable_shards_exception");
+    }
+
+    private static BulkResponseItem item(String id, int status, String errorType) {
+        return BulkResponseItem.of(i -> {
+            i.operationType(OperationType.Index).index("products").id(id).status(status);
+            if (status >= 300) {
+                i.error(e -> e.type(errorType).reason("rejected by the test"));
+            }
+            return i;
+        });
+    }
+
+    private List<Path> segmentFiles() {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(path -> path.getFileName().toString().endsWith(".spool")).sorted().toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Path lastNonEmptySegment() {
+        return segmentFiles().stream().filter(BulkSpoolTest::nonEmpty).reduce((a, b) -> b).orElseThrow();
+    }
+
+    // The buffer sees an action before the drainer moves the checkpoint past it
+    private static boolean drained(BulkSpool spool) {
+        return Long.valueOf(0).equals(spool.getStats().get("pendingBytes"));
+    }
+
+    private boolean checkpointAtTheEndOf(Path segment) {
+        try {
+            return readCheckpoint().equals(
+                    Long.parseLong(segment.getFileName().toString().replaceAll("\\D", "")) + " " + Files.size(segment));
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private String readCheckpoint() {
+        try {
+            Path file = dir.resolve("checkpoint");
+            return Files.exists(file) ? Files.readString(file) : "";
+        } catch (IOException e) {
+            return "";
+        }
+    }
+
+    private static boolean nonEmpty(Path path) {
+        try {
+            return Files.size(path) > 0;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static void truncate(Path file, long size) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(size);
+        }
+    }
+
+    private static void flipLastByte(Path file) throws IOException {
+        flipByte(file, Files.size(file) - 1);
+    }
+
+    private static void flipByte(Path file, long position) throws IOException {
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[Math.toIntExact(position)] ^= 0x01;
+        Files.write(file, bytes);
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                throw new AssertionError("Condition not met within 10 seconds");
+            }
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.demo.bulk.service;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.Refresh;
+import co.elastic.clients.elasticsearch.core.BulkRequest;
+import co.elastic.clients.elasticsearch.core.BulkResponse;
+import co.elastic.clients.elasticsearch.core.bulk.BulkOperation;
+import co.elastic.clients.elasticsearch.core.bulk.BulkResponseItem;
+import co.elastic.clients.elasticsearch.core.bulk.OperationType;
+import com.example.demo.cache.service.QueryCacheInvalidator;
+import com.example.demo.config.BulkProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class BulkWriteBufferTest {
+
+    private final ElasticsearchClient client = mock(ElasticsearchClient.class);
+    private final List<String> requests = new CopyOnWriteArrayList<>();
+    private final BulkWriteBuffer buffer;
+
+    BulkWriteBufferTest() throws Exception {
+        BulkProperties properties = new BulkProperties();
+        properties.setMaxActions(100);
+        properties.setMaxLinger(Duration.ofHours(1));
+        properties.setAdaptive(false);
+        buffer = new BulkWriteBuffer(client, properties, new AdaptiveBulkController(properties),
+                mock(QueryCacheInvalidator.class), mock(BulkLoadService.class));
+
+        when(client.bulk(any(BulkRequest.class))).thenAnswer(invocation -> {
+            BulkRequest request = invocation.getArgument(0);
+            List<BulkResponseItem> items = new ArrayList<>();
+            StringBuilder sent = new StringBuilder(request.refresh().jsonValue()).append(':');
+            for (BulkOperation operation : request.operations()) {
+                String id = operation.isIndex() ? operation.index().id()
+                        : operation.isUpdate() ? operation.update().id() : operation.delete().id();
+                sent.append(' ').append(operation._kind().jsonValue()).append('/').append(id);
+                items.add(BulkResponseItem.of(i -> i.operationType(OperationType.Index).index("products")
+                        .id(id).status(200)));
+            }
+            requests.add(sent.toString());
+            return BulkResponse.of(r -> r.items(items).errors(false).took(1));
+        });
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        buffer.destroy();
+    }
+
+    @Test
+    void refreshPoliciesAreSentAsRunsInArrivalOrder() throws Exception {
+        List<CompletableFuture<BulkResponseItem>> futures = List.of(
+                buffer.add(index("a"), 10, Refresh.False),
+                buffer.add(index("b"), 10, Refresh.WaitFor),
+                buffer.add(delete("b"), 0, Refresh.False),
+                buffer.add(delete("a"), 0, Refresh.False),
+                buffer.add(index("c"), 10, Refresh.True));
+
+        buffer.flush();
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).get(5, TimeUnit.SECONDS);
+
+        // The wait_for create of b goes out before the delete that follows it
+        assertThat(requests).containsExactly(
+                "false: index/a",
+                "wait_for: index/b",
+                "false: delete/b delete/a",
+                "true: index/c");
+    }
+
+    private static BulkOperation index(String id) {
+        return BulkOperation.of(b -> b.index(i -> i.index("products").id(id).document(Map.of("name", id))));
+    }
+
+    private static BulkOperation delete(String id) {
+        return BulkOperation.of(b -> b.delete(d -> d.index("products").id(id)));
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.demo.bulk.service;
+
+import com.example.demo.bulk.dto.ProductDto;
+import com.example.demo.bulk.model.Product;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProductContentHashTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void hashIsTwentyTwoUrlSafeCharacters() {
+        assertThat(ProductContentHash.of(dto("Laptop", "999.99"))).matches("[-0-9A-Z_a-z]{22}");
+    }
+
+    @Test
+    void fieldOrderOfTheRequestDoesNotMatter() throws Exception {
+        ProductDto first = objectMapper.readValue("""
+                {"name":"Laptop","description":"Fast","category":"Electronics","price":999.99,
+                 "stock":3,"active":true,"brand":"Acme","sku":"SKU-1"}""", ProductDto.class);
+        ProductDto second = objectMapper.readValue("""
+                {"sku":"SKU-1","brand":"Acme","active":true,"stock":3,"price":999.99,
+                 "category":"Electronics","description":"Fast","name":"Laptop"}""", ProductDto.class);
+
+        assertThat(ProductContentHash.of(first)).isEqualTo(ProductContentHash.of(second));
+    }
+
+    @Test
+    void priceScaleDoesNotMatter() {
+        String hash = ProductContentHash.of(dto("Laptop", "10"));
+
+        for (String price : new String[]{"10.0", "10.00", "1E+1", "10.000000"}) {
+            assertThat(ProductContentHash.of(dto("Laptop", price))).as(price).isEqualTo(hash);
+        }
+        assertThat(ProductContentHash.of(dto("Laptop", "10.01"))).isNotEqualTo(hash);
+    }
+
+    @Test
+    void priceReadBackAsDoubleMatchesThePriceSent() {
+        Product stored = product(dto("Laptop", "0.10"));
+        // What the converter returns for the double Elasticsearch stores
+        stored.setPrice(BigDecimal.valueOf(0.1d));
+
+        assertThat(ProductContentHash.of(stored)).isEqualTo(ProductContentHash.of(dto("Laptop", "0.10")));
+    }
+
+    @Test
+    void dtoAndProductWithTheSameContentMatch() {
+        ProductDto dto = dto("Laptop", "999.99");
+        dto.setDescription("Fast");
+        dto.setCategory("Electronics");
+        dto.setStock(3);
+        dto.setBrand("Acme");
+        dto.setSku("SKU-1");
+
+        Product product = product(dto);
+        product.setId("other-id");
+        product.setCreatedAt(LocalDate.of(2020, 1, 1));
+        product.setUpdatedAt(LocalDate.of(2026, 1, 1));
+
+        assertThat(ProductContentHash.of(product)).isEqualTo(ProductContentHash.of(dto));
+    }
+
+    @Test
+    void missingActiveDefaultsToTrue() {
+        ProductDto dto = dto("Laptop", "1");
+        Product product = product(dto);
+
+        assertThat(ProductContentHash.of(dto)).isEqualTo(ProductContentHash.of(product));
+        product.setActive(false);
+        assertThat(ProductContentHash.of(dto)).isNotEqualTo(ProductContentHash.of(product));
+    }
+
+    @Test
+    void missingAndEmptyFieldsDiffer() {
+        ProductDto missing = dto("Laptop", "1");
+        ProductDto empty = dto("Laptop", "1");
+        empty.setDescription("");
+
+        assertThat(ProductContentHash.of(missing)).isNotEqualTo(ProductContentHash.of(empty));
+    }
+
+    @Test
+    void valuesCannotRunIntoTheNextField() {
+        ProductDto first = dto("ab", "1");
+        first.setDescription("c");
+        ProductDto second = dto("a", "1");
+        second.setDescription("bc");
+
+        assertThat(ProductContentHash.of(first)).isNotEqualTo(ProductContentHash.of(second));
+    }
+
+    private static ProductDto dto(String name, String price) {
+        ProductDto dto = new ProductDto();
+        dto.setName(name);
+        dto.setPrice(new BigDecimal(price));
+        return dto;
+    }
+
+    // What BulkService builds when it creates a product
+    private static Product product(ProductDto dto) {
+        Product product = new Product();
+        product.setName(dto.getName());
+        product.setDescription(dto.getDescription());
+        product.setCategory(dto.getCategory());
+        product.setPrice(dto.getPrice());
+        product.setStock(dto.getStock());
+        product.setActive(dto.getActive() != null ? dto.getActive() : Boolean.TRUE);
+        product.setBrand(dto.getBrand());
+        product.setSku(dto.getSku());
+        return product;
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.demo.bulk.service;
+
+import com.example.demo.bulk.model.Product;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.IndexOperations;
+import org.springframework.data.elasticsearch.core.convert.ElasticsearchCustomConversions;
+import org.springframework.data.elasticsearch.core.convert.MappingElasticsearchConverter;
+import org.springframework.data.elasticsearch.core.document.Document;
+import org.springframework.data.elasticsearch.core.index.MappingBuilder;
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
+import org.springframework.data.elasticsearch.core.mapping.SimpleElasticsearchMappingContext;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ProductMappingUpdaterTest {
+
+    private final ElasticsearchOperations operations = mock(ElasticsearchOperations.class);
+    private final IndexOperations indexOps = mock(IndexOperations.class);
+    private final ProductMappingUpdater updater = new ProductMappingUpdater(operations);
+
+    @BeforeEach
+    void setUp() {
+        when(operations.indexOps(Product.class)).thenReturn(indexOps);
+        when(indexOps.exists()).thenReturn(true);
+        when(indexOps.createMapping(Product.class)).thenReturn(entityMapping());
+        when(indexOps.getIndexCoordinates()).thenReturn(IndexCoordinates.of("products"));
+    }
+
+    @Test
+    void missingFieldIsAddedToTheExistingIndex() {
+        when(indexOps.getMapping()).thenReturn(Map.of("properties", Map.of("name", Map.of("type", "text"))));
+
+        updater.run(null);
+
+        verify(indexOps).putMapping(Document.from(Map.of("properties", Map.of(ProductContentHash.FIELD,
+                Map.of("type", "keyword", "index", false, "doc_values", false)))));
+    }
+
+    @Test
+    void fieldMappedAsExpectedIsLeftAlone() {
+        when(indexOps.getMapping()).thenReturn(Map.of("properties", Map.of(ProductContentHash.FIELD,
+                Map.of("type", "keyword", "index", false, "doc_values", false))));
+
+        updater.run(null);
+
+        verify(indexOps, never()).putMapping(any(Document.class));
+    }
+
+    @Test
+    void dynamicallyMappedFieldIsNotChanged() {
+        when(indexOps.getMapping()).thenReturn(Map.of("properties", Map.of(ProductContentHash.FIELD,
+                Map.of("type", "text", "fields", Map.of("keyword", Map.of("type", "keyword"))))));
+
+        updater.run(null);
+
+        verify(indexOps, never()).putMapping(any(Document.class));
+    }
+
+    @Test
+    void missingIndexIsLeftToTheRepository() {
+        when(indexOps.exists()).thenReturn(false);
+
+        updater.run(null);
+
+        verify(indexOps, never()).getMapping();
+        verify(indexOps, never()).putMapping(any(Document.class));
+    }
+
+    @Test
+    void unreachableClusterDoesNotFailStartup() {
+        when(indexOps.exists()).thenThrow(new IllegalStateException("Connection refused"));
+
+        updater.run(null);
+
+        verify(indexOps, never()).putMapping(any(Document.class));
+    }
+
+    // The mapping Spring Data derives from the entity, as IndexOperations.createMapping returns it
+    private static Document entityMapping() {
+        ElasticsearchCustomConversions conversions = new ElasticsearchCustomConversions(List.of());
+        SimpleElasticsearchMappingContext mappingContext = new SimpleElasticsearchMappingContext();
+        mappingContext.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+        MappingElasticsearchConverter converter = new MappingElasticsearchConverter(mappingContext);
+        converter.setConversions(conversions);
+        converter.afterPropertiesSet();
+        return Document.parse(new MappingBuilder(converter).buildPropertyMapping(Product.class));
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.demo.bulk.service;
+
+import com.example.demo.bulk.dto.ProductDto;
+import com.example.demo.bulk.model.Product;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.data.elasticsearch.core.convert.ElasticsearchCustomConversions;
+import org.springframework.data.elasticsearch.core.convert.MappingElasticsearchConverter;
+import org.springframework.data.elasticsearch.core.mapping.SimpleElasticsearchMappingContext;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * {@link ProductSourceWriter} must write exactly the bytes the Spring Data converter writes for
+ * the same product, which is what {@link BulkService#serializeWithConverter} sends when
+ * {@code bulk.ingest.direct-serialization} is off.
+ */
+class ProductSourceWriterTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2026, 3, 9);
+
+    private static MappingElasticsearchConverter converter;
+    private final ProductSourceWriter writer = new ProductSourceWriter();
+
+    @BeforeAll
+    static void createConverter() {
+        // Set up as Spring Boot does, so BigDecimal is written through the default conversions
+        ElasticsearchCustomConversions conversions = new ElasticsearchCustomConversions(List.of());
+        SimpleElasticsearchMappingContext mappingContext = new SimpleElasticsearchMappingContext();
+        mappingContext.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+        converter = new MappingElasticsearchConverter(mappingContext);
+        converter.setConversions(conversions);
+        converter.afterPropertiesSet();
+    }
+
+    @Test
+    void fullProduct() {
+        assertSameBytes(product("Laptop", "A fast laptop", "Electronics", new BigDecimal("999.99"), 12, true,
+                "Acme", "SKU-1"));
+    }
+
+    @Test
+    void nullFieldsAreLeftOut() {
+        ProductDto dto = product("Only a name", null, null, null, null, null, null, null);
+
+        assertSameBytes(dto);
+        assertThat(source(dto)).doesNotContain("description", "price", "stock", "brand").contains("\"active\":true");
+    }
+
+    @Test
+    void inactiveProduct() {
+        assertSameBytes(product("Old", null, "Misc", BigDecimal.ONE, 0, false, null, null));
+    }
+
+    @Test
+    void emptyStrings() {
+        assertSameBytes(product("", "", "", BigDecimal.ZERO, 0, true, "", ""));
+    }
+
+    @Test
+    void charactersThatNeedEscaping() {
+        assertSameBytes(product("Quote \" and backslash \\", "Line\nbreak\ttab\rreturn\b\f",
+                "Control \u0001\u001f\u007f", null, null, null, "</script>&<>'", "slash/ok"));
+    }
+
+    @Test
+    void nonAsciiText() {
+        assertSameBytes(product("Điện thoại thông minh", "日本語のテキスト, Ελληνικά, עברית",
+                "Ümlaut ß", new BigDecimal("1.5"), 3, true, "Emoji 😀 and 𝄞", "   ﻿"));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"10", "10.0", "10.00", "0.1", "1E+3", "1.10", "-0.5", "12345678.90",
+            "0.000001", "99999999999.99", "1E-10", "123456789012345678901234567890"})
+    void priceScale(String price) {
+        assertSameBytes(product("Priced", null, null, new BigDecimal(price), null, null, null, null));
+    }
+
+    private void assertSameBytes(ProductDto dto) {
+        byte[] expected = converter.mapObject(entity("0VQkXhK0-----a3b2c1d0", dto)).toJson()
+                .getBytes(StandardCharsets.UTF_8);
+        byte[] actual = writer.writeNewProduct("0VQkXhK0-----a3b2c1d0", dto, TODAY);
+
+        assertThat(new String(actual, StandardCharsets.UTF_8)).isEqualTo(new String(expected, StandardCharsets.UTF_8));
+        assertThat(actual).isEqualTo(expected);
+    }
+
+    private String source(ProductDto dto) {
+        return new String(writer.writeNewProduct("id", dto, TODAY), StandardCharsets.UTF_8);
+    }
+
+    // What BulkService.serializeWithConverter builds
+    private static Product entity(String id, ProductDto dto) {
+        Product product = new Product();
+        product.setId(id);
+        product.setName(dto.getName());
+        product.setDescription(dto.getDescription());
+        product.setCategory(dto.getCategory());
+        product.setPrice(dto.getPrice());
+        product.setStock(dto.getStock());
+        product.setActive(dto.getActive() != null ? dto.getActive() : Boolean.TRUE);
+        product.setBrand(dto.getBrand());
+        product.setSku(dto.getSku());
+        product.setCreatedAt(TODAY);
+        product.setUpdatedAt(TODAY);
+        product.setContentHash(ProductContentHash.of(product));
+        return product;
+    }
+
+    private static ProductDto product(String name, String description, String category, BigDecimal price,
+                                      Integer stock, Boolean active, String brand, String sku) {
+        return new ProductDto(null, name, description, category, price, stock, active, brand, sku);
+    }
+}
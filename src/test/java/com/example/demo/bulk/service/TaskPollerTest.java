@@ -0,0 +1,99 @@
+package com.example.demo.bulk.service;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.Slices;
+import co.elastic.clients.elasticsearch._types.SlicesCalculation;
+import co.elastic.clients.elasticsearch.tasks.ElasticsearchTasksClient;
+import co.elastic.clients.elasticsearch.tasks.GetTasksResponse;
+import co.elastic.clients.elasticsearch.tasks.TaskInfo;
+import co.elastic.clients.json.JsonData;
+import jakarta.json.Json;
+import jakarta.json.JsonObject;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TaskPollerTest {
+
+    private final ElasticsearchClient client = mock(ElasticsearchClient.class);
+    private final ElasticsearchTasksClient tasks = mock(ElasticsearchTasksClient.class);
+    private final TaskPoller poller = new TaskPoller(client);
+    private final List<Long> deleted = new CopyOnWriteArrayList<>();
+
+    TaskPollerTest() {
+        when(client.tasks()).thenReturn(tasks);
+    }
+
+    @Test
+    void progressEndsWithTheTotalsOfTheFinalResponse() throws Exception {
+        GetTasksResponse running = running(Json.createObjectBuilder().add("total", 10).add("deleted", 4).build());
+        GetTasksResponse completed = completed(Json.createObjectBuilder().add("total", 10).add("deleted", 10).build());
+        when(tasks.get(any(Function.class))).thenReturn(running, completed);
+
+        poller.await("node:1", "Delete-by-query", () -> false,
+                status -> deleted.add(TaskPoller.number(status, "deleted")));
+
+        assertThat(deleted).containsExactly(4L, 10L);
+    }
+
+    @Test
+    void failuresInTheResponseFailTheTask() throws Exception {
+        GetTasksResponse completed = completed(Json.createObjectBuilder()
+                .add("deleted", 3)
+                .add("failures", Json.createArrayBuilder().add(Json.createObjectBuilder().add("id", "a")))
+                .build());
+        when(tasks.get(any(Function.class))).thenReturn(completed);
+
+        assertThatThrownBy(() -> poller.await("node:1", "Reindex", () -> false, status -> { }))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageStartingWith("Reindex finished with 1 failures");
+    }
+
+    @Test
+    void cancelRequestCancelsTheTask() throws Exception {
+        assertThatThrownBy(() -> poller.await("node:1", "Reindex", () -> true, status -> { }))
+                .isInstanceOf(CancellationException.class);
+
+        verify(tasks).cancel(any(Function.class));
+        verify(tasks, never()).get(any(Function.class));
+    }
+
+    @Test
+    void slicesAreAutoOrAPositiveCount() {
+        assertThat(TaskPoller.parseSlices(null).computed()).isEqualTo(SlicesCalculation.Auto);
+        assertThat(TaskPoller.parseSlices("AUTO").computed()).isEqualTo(SlicesCalculation.Auto);
+        assertThat(TaskPoller.parseSlices("4")).extracting(Slices::value).isEqualTo(4);
+
+        for (String invalid : List.of("0", "-2", "many")) {
+            assertThatThrownBy(() -> TaskPoller.parseSlices(invalid))
+                    .as(invalid)
+                    .isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+
+    private static GetTasksResponse running(JsonObject status) {
+        return GetTasksResponse.of(r -> r.completed(false).task(task(JsonData.of(status))));
+    }
+
+    private static GetTasksResponse completed(JsonObject response) {
+        return GetTasksResponse.of(r -> r.completed(true).task(task(null)).response(JsonData.of(response)));
+    }
+
+    private static TaskInfo task(JsonData status) {
+        return TaskInfo.taskInfoOf(t -> t.action("indices:data/write/delete/byquery").cancellable(true).id(1)
+                .node("node").headers(Map.of()).runningTimeInNanos(1).startTimeInMillis(1).type("transport")
+                .status(status));
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.demo.bulk.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TimeOrderedIdGeneratorTest {
+
+    private static final long NODE_ID = 0x1234_5678_9ABCL;
+
+    @Test
+    void idsAreTwentyUrlSafeCharacters() {
+        String id = new TimeOrderedIdGenerator().nextId();
+
+        assertThat(id).hasSize(20).matches("[-0-9A-Z_a-z]{20}");
+    }
+
+    @Test
+    void idsWithinTheSameMillisecondAreStrictlyIncreasing() {
+        TimeOrderedIdGenerator generator = new TimeOrderedIdGenerator(() -> 1_700_000_000_000L, NODE_ID);
+
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            ids.add(generator.nextId());
+        }
+
+        assertThat(ids).isSortedAccordingTo(String::compareTo).doesNotHaveDuplicates();
+    }
+
+    @Test
+    void laterMillisecondsSortAfterEarlierOnes() {
+        AtomicLong clock = new AtomicLong(1_700_000_000_000L);
+        TimeOrderedIdGenerator generator = new TimeOrderedIdGenerator(clock::get, NODE_ID);
+
+        String first = generator.nextId();
+        generator.nextId();
+        clock.addAndGet(1);
+        String later = generator.nextId();
+
+        assertThat(later).isGreaterThan(first);
+        // Same node, close timestamps: only the tail of the timestamp and the sequence differ
+        assertThat(later).startsWith(first.substring(0, 6)).endsWith(first.substring(12));
+    }
+
+    @Test
+    void clockGoingBackwardsKeepsIdsIncreasing() {
+        AtomicLong clock = new AtomicLong(1_700_000_000_000L);
+        TimeOrderedIdGenerator generator = new TimeOrderedIdGenerator(clock::get, NODE_ID);
+
+        List<String> ids = new ArrayList<>();
+        ids.add(generator.nextId());
+        ids.add(generator.nextId());
+        clock.addAndGet(-5_000);
+        ids.add(generator.nextId());
+        ids.add(generator.nextId());
+        clock.addAndGet(10_000);
+        ids.add(generator.nextId());
+
+        assertThat(ids).isSortedAccordingTo(String::compareTo).doesNotHaveDuplicates();
+    }
+
+    @Test
+    void exhaustedSequenceMovesToTheNextMillisecond() {
+        TimeOrderedIdGenerator generator = new TimeOrderedIdGenerator(() -> 1_700_000_000_000L, NODE_ID);
+
+        String previous = generator.nextId();
+        // One more than a millisecond's 2^24 sequence values
+        for (int i = 0; i < 1 << 24; i++) {
+            String id = generator.nextId();
+            if (id.compareTo(previous) <= 0) {
+                throw new AssertionError("ID " + id + " does not sort after " + previous);
+            }
+            previous = id;
+        }
+
+        assertThat(previous.substring(8, 12)).isEqualTo("----");
+    }
+
+    @Test
+    void idsAreUniqueAcrossThreads() throws Exception {
+        TimeOrderedIdGenerator generator = new TimeOrderedIdGenerator();
+        int threads = 8;
+        int perThread = 50_000;
+        Set<String> ids = ConcurrentHashMap.newKeySet();
+        CountDownLatch start = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    List<String> own = new ArrayList<>(perThread);
+                    for (int i = 0; i < perThread; i++) {
+                        own.add(generator.nextId());
+                    }
+                    // Each thread sees its own IDs in creation order
+                    assertThat(own).isSortedAccordingTo(String::compareTo);
+                    ids.addAll(own);
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(ids).hasSize(threads * perThread);
+    }
+}
@@ -0,0 +1,241 @@
+package com.example.demo.bulk.service;
+
+import co.elastic.clients.elasticsearch._types.Refresh;
+import co.elastic.clients.elasticsearch.core.bulk.BulkResponseItem;
+import co.elastic.clients.elasticsearch.core.bulk.OperationType;
+import com.example.demo.bulk.dto.ProductDto;
+import com.example.demo.config.BulkProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class UpdateCoalescerTest {
+
+    private final List<Write> writes = new CopyOnWriteArrayList<>();
+    private UpdateCoalescer coalescer;
+
+    @AfterEach
+    void tearDown() {
+        if (coalescer != null) {
+            coalescer.destroy();
+        }
+    }
+
+    @Test
+    void laterNonNullFieldsWinAndEveryCallerSharesOneWrite() {
+        coalescer = coalescer(Duration.ofMinutes(1));
+
+        CompletableFuture<BulkResponseItem> first = coalescer.submit("p1",
+                changes("Old name", new BigDecimal("10.00"), 5), Refresh.False, false, this::record);
+        CompletableFuture<BulkResponseItem> second = coalescer.submit("p1",
+                changes("New name", null, 7), Refresh.WaitFor, false, this::record);
+        coalescer.flush();
+
+        assertThat(writes).hasSize(1);
+        Write write = writes.get(0);
+        assertThat(write.id()).isEqualTo("p1");
+        assertThat(write.changes().getName()).isEqualTo("New name");
+        assertThat(write.changes().getPrice()).isEqualByComparingTo("10.00");
+        assertThat(write.changes().getStock()).isEqualTo(7);
+        assertThat(write.refresh()).isEqualTo(Refresh.WaitFor);
+        assertThat(first).isSameAs(second).isCompleted();
+        assertThat(coalescer.getReceivedUpdates()).isEqualTo(2);
+        assertThat(coalescer.getWrittenUpdates()).isEqualTo(1);
+    }
+
+    @Test
+    void productsAreWrittenInArrivalOrder() {
+        coalescer = coalescer(Duration.ofMinutes(1));
+
+        coalescer.submit("b", changes("B", null, null), Refresh.False, false, this::record);
+        coalescer.submit("a", changes("A", null, null), Refresh.False, false, this::record);
+        coalescer.submit("b", changes(null, null, 1), Refresh.False, false, this::record);
+        coalescer.flush();
+
+        assertThat(writes).extracting(Write::id).containsExactly("b", "a");
+    }
+
+    @Test
+    void pendingUpdateIsWrittenOnceItsWindowEnds() throws Exception {
+        coalescer = coalescer(Duration.ofMillis(40));
+
+        CompletableFuture<BulkResponseItem> future =
+                coalescer.submit("p1", changes("Name", null, null), Refresh.False, false, this::record);
+
+        future.get(5, TimeUnit.SECONDS);
+        assertThat(writes).hasSize(1);
+        assertThat(coalescer.getPendingUpdates()).isZero();
+    }
+
+    @Test
+    void flushingIdsWaitsForTheirPendingWriteBeforeADirectWrite() throws Exception {
+        coalescer = coalescer(Duration.ofMinutes(1));
+        CompletableFuture<BulkResponseItem> applied = new CompletableFuture<>();
+        coalescer.submit("p1", changes("Coalesced", null, null), Refresh.False, false, (id, merged, refresh) -> {
+            writes.add(new Write(id, merged, refresh));
+            return applied;
+        });
+        coalescer.submit("p2", changes("Untouched", null, null), Refresh.False, false, this::record);
+
+        Thread direct = Thread.ofVirtual().start(() -> {
+            coalescer.flush(Set.of("p1", "unknown"));
+            // What BulkService does next: queue the write that bypasses the coalescer
+            writes.add(new Write("p1", changes("Direct", null, null), Refresh.False));
+        });
+
+        Thread.sleep(100);
+        // The coalesced update has been sent but not applied, so the direct write has to wait
+        assertThat(writes).extracting(Write::id).containsExactly("p1");
+        assertThat(direct.isAlive()).isTrue();
+
+        applied.complete(item("p1"));
+        direct.join(5000);
+
+        assertThat(writes).extracting(write -> write.changes().getName()).containsExactly("Coalesced", "Direct");
+        // Updates of other products stay pending
+        assertThat(coalescer.getPendingUpdates()).isEqualTo(1);
+    }
+
+    @Test
+    void flushingIdsAlsoWaitsForUpdatesAlreadyDrained() throws Exception {
+        coalescer = coalescer(Duration.ofMinutes(1));
+        CountDownLatch inWriter = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        coalescer.submit("p1", changes("Coalesced", null, null), Refresh.False, false, (id, merged, refresh) -> {
+            inWriter.countDown();
+            // A window flush that has drained p1 but not yet queued it
+            await(release);
+            writes.add(new Write(id, merged, refresh));
+            return CompletableFuture.completedFuture(item(id));
+        });
+        Thread window = Thread.ofVirtual().start(coalescer::flush);
+        assertThat(inWriter.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(coalescer.getPendingUpdates()).isZero();
+
+        Thread direct = Thread.ofVirtual().start(() -> {
+            coalescer.flush(Set.of("p1"));
+            writes.add(new Write("p1", changes("Direct", null, null), Refresh.False));
+        });
+        Thread.sleep(100);
+        assertThat(direct.isAlive()).isTrue();
+
+        release.countDown();
+        window.join(5000);
+        direct.join(5000);
+        assertThat(writes).extracting(write -> write.changes().getName()).containsExactly("Coalesced", "Direct");
+    }
+
+    @Test
+    void flushingIdsWaitsForAnInFlightWrite() throws Exception {
+        coalescer = coalescer(Duration.ofMinutes(1));
+        CompletableFuture<BulkResponseItem> applied = new CompletableFuture<>();
+        coalescer.submit("p1", changes("Coalesced", null, null), Refresh.False, false, (id, merged, refresh) -> applied);
+        coalescer.flush();
+
+        Thread direct = Thread.ofVirtual().start(() -> coalescer.flush(Set.of("p1")));
+        Thread.sleep(100);
+        assertThat(direct.isAlive()).isTrue();
+
+        applied.complete(item("p1"));
+        direct.join(5000);
+        assertThat(direct.isAlive()).isFalse();
+        // Nothing is left to wait for once the write has been applied
+        coalescer.flush(Set.of("p1"));
+    }
+
+    @Test
+    void updateInAnotherWriteModeIsNotMergedIntoThePendingOne() {
+        coalescer = coalescer(Duration.ofMinutes(1));
+        List<String> modes = new CopyOnWriteArrayList<>();
+
+        CompletableFuture<BulkResponseItem> direct = coalescer.submit("p1", changes("Direct", null, null),
+                Refresh.False, false, (id, merged, refresh) -> {
+                    modes.add("direct");
+                    return record(id, merged, refresh);
+                });
+        CompletableFuture<BulkResponseItem> spooled = coalescer.submit("p1", changes(null, null, 3),
+                Refresh.False, true, (id, merged, refresh) -> {
+                    modes.add("spool");
+                    return record(id, merged, refresh);
+                });
+
+        // The direct update went out through its own writer before the spooled one was queued
+        assertThat(direct).isCompleted();
+        assertThat(spooled).isNotSameAs(direct).isNotDone();
+        coalescer.flush();
+
+        assertThat(modes).containsExactly("direct", "spool");
+        assertThat(writes.get(0).changes().getStock()).isNull();
+        assertThat(writes.get(1).changes().getName()).isNull();
+        assertThat(writes.get(1).changes().getStock()).isEqualTo(3);
+    }
+
+    @Test
+    void flushingIdsWithoutPendingUpdatesWritesNothing() {
+        coalescer = coalescer(Duration.ofMinutes(1));
+        coalescer.submit("p1", changes("Name", null, null), Refresh.False, false, this::record);
+
+        coalescer.flush(Set.of("p2"));
+
+        assertThat(writes).isEmpty();
+        assertThat(coalescer.getPendingUpdates()).isEqualTo(1);
+    }
+
+    @Test
+    void failedFlushedWriteReachesItsCallersButDoesNotBlockTheDirectWrite() {
+        coalescer = coalescer(Duration.ofMinutes(1));
+        CompletableFuture<BulkResponseItem> future = coalescer.submit("p1", changes("Name", null, null),
+                Refresh.False, false, (id, merged, refresh) -> CompletableFuture.failedFuture(new IllegalStateException("down")));
+
+        coalescer.flush(Set.of("p1"));
+
+        assertThat(future).isCompletedExceptionally();
+        assertThat(coalescer.getPendingUpdates()).isZero();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private UpdateCoalescer coalescer(Duration window) {
+        BulkProperties properties = new BulkProperties();
+        properties.setCoalesceWindow(window);
+        return new UpdateCoalescer(mock(BulkWriteBuffer.class), properties);
+    }
+
+    private CompletableFuture<BulkResponseItem> record(String id, ProductDto merged, Refresh refresh) {
+        writes.add(new Write(id, merged, refresh));
+        return CompletableFuture.completedFuture(item(id));
+    }
+
+    private static BulkResponseItem item(String id) {
+        return BulkResponseItem.of(i -> i.operationType(OperationType.Update).index("products").id(id).status(200));
+    }
+
+    private static ProductDto changes(String name, BigDecimal price, Integer stock) {
+        ProductDto dto = new ProductDto();
+        dto.setName(name);
+        dto.setPrice(price);
+        dto.setStock(stock);
+        return dto;
+    }
+
+    private record Write(String id, ProductDto changes, Refresh refresh) {
+    }
+}
@@ -0,0 +1,292 @@
+package com.example.demo.cache.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class QueryResultCacheTest {
+
+    private static final long HOUR = Duration.ofHours(1).toNanos();
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    void cachedResultIsReturnedWithoutLoadingAgain() {
+        QueryResultCache cache = new QueryResultCache("products", 10, HOUR, true);
+
+        assertThat(cache.get("q", () -> load("result"))).isEqualTo("result");
+        assertThat(cache.get("q", () -> load("other"))).isEqualTo("result");
+
+        assertThat(loads).hasValue(1);
+        assertThat(cache.getStats()).containsEntry("hits", 1L).containsEntry("misses", 1L).containsEntry("size", 1);
+    }
+
+    @Test
+    void entryExpiresAfterTheTtl() throws InterruptedException {
+        QueryResultCache cache = new QueryResultCache("products", 10, Duration.ofMillis(50).toNanos(), true);
+        cache.get("q", () -> load("first"));
+
+        Thread.sleep(80);
+
+        assertThat(cache.get("q", () -> load("second"))).isEqualTo("second");
+        assertThat(loads).hasValue(2);
+        assertThat(cache.getStats()).containsEntry("expirations", 1L);
+    }
+
+    @Test
+    void expiredEntriesMakeRoomBeforeAnyLiveEntryIsEvicted() throws InterruptedException {
+        QueryResultCache cache = new QueryResultCache("products", 2, Duration.ofMillis(50).toNanos(), true);
+        cache.put("old", "old");
+        Thread.sleep(80);
+        cache.put("a", "a");
+
+        cache.put("b", "b");
+
+        assertThat(cache.getStats()).containsEntry("size", 2).containsEntry("expirations", 1L)
+                .containsEntry("evictions", 0L);
+        assertThat(cache.get("a")).isNotNull();
+        assertThat(cache.get("b")).isNotNull();
+    }
+
+    @Test
+    void leastFrequentlyUsedEntryIsEvictedFirst() {
+        QueryResultCache cache = new QueryResultCache("products", 3, HOUR, true);
+        cache.put("a", "a");
+        cache.put("b", "b");
+        cache.put("c", "c");
+        cache.get("a");
+        cache.get("a");
+        cache.get("c");
+
+        cache.put("d", "d");
+
+        assertThat(cache.get("b")).isNull();
+        assertThat(cache.get("a")).isNotNull();
+        assertThat(cache.get("c")).isNotNull();
+        assertThat(cache.get("d")).isNotNull();
+        assertThat(cache.getStats()).containsEntry("evictions", 1L);
+    }
+
+    @Test
+    void oldestEntryGoesAmongEquallyUsedOnes() {
+        QueryResultCache cache = new QueryResultCache("products", 2, HOUR, true);
+        cache.put("a", "a");
+        cache.put("b", "b");
+
+        cache.put("c", "c");
+
+        assertThat(cache.get("a")).isNull();
+        assertThat(cache.get("b")).isNotNull();
+        assertThat(cache.get("c")).isNotNull();
+    }
+
+    @Test
+    void clearDropsEverything() {
+        QueryResultCache cache = new QueryResultCache("products", 10, HOUR, true);
+        cache.put("a", "a");
+        cache.put("b", "b");
+
+        cache.clear();
+
+        assertThat(cache.get("a")).isNull();
+        assertThat(cache.getStats()).containsEntry("size", 0).containsEntry("invalidations", 1L);
+    }
+
+    @Test
+    void loadOverlappingAClearIsReturnedButNotStored() {
+        QueryResultCache cache = new QueryResultCache("products", 10, HOUR, true);
+
+        String result = cache.get("q", () -> {
+            // A write to the index lands while the search is running
+            cache.clear();
+            return load("stale");
+        });
+
+        assertThat(result).isEqualTo("stale");
+        assertThat(cache.getStats()).containsEntry("size", 0);
+        assertThat(cache.get("q", () -> load("fresh"))).isEqualTo("fresh");
+        assertThat(cache.get("q", () -> load("unused"))).isEqualTo("fresh");
+    }
+
+    @Test
+    void nothingIsStoredWithoutEntries() {
+        QueryResultCache cache = new QueryResultCache("products", 0, HOUR, true);
+
+        cache.get("q", () -> load("first"));
+        cache.get("q", () -> load("second"));
+
+        assertThat(loads).hasValue(2);
+        assertThat(cache.getStats()).containsEntry("size", 0);
+    }
+
+    @Test
+    void nullResultsAreCached() {
+        QueryResultCache cache = new QueryResultCache("products", 10, HOUR, true);
+
+        assertThat(cache.<String>get("q", () -> {
+            loads.incrementAndGet();
+            return null;
+        })).isNull();
+        assertThat(cache.get("q", () -> load("loaded"))).isNull();
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void cachedCollectionsAreReadOnlyCopies() {
+        QueryResultCache cache = new QueryResultCache("products", 10, HOUR, true);
+        List<String> loaded = new ArrayList<>(List.of("a", "b"));
+
+        List<String> first = cache.get("q", () -> loaded);
+        loaded.add("changed after loading");
+        List<String> second = cache.get("q", () -> List.of());
+
+        assertThat(second).isSameAs(first).containsExactly("a", "b");
+        assertThatThrownBy(() -> first.add("c")).isInstanceOf(UnsupportedOperationException.class);
+
+        cache.put("m", new HashMap<>(Map.of("k", "v")));
+        @SuppressWarnings("unchecked")
+        Map<String, String> map = (Map<String, String>) cache.get("m").get();
+        assertThatThrownBy(() -> map.put("k", "changed")).isInstanceOf(UnsupportedOperationException.class);
+    }
+
+    @Test
+    void concurrentMissesShareOneLoad() throws Exception {
+        QueryResultCache cache = new QueryResultCache("products", 10, HOUR, true);
+        CountDownLatch release = new CountDownLatch(1);
+        int callers = 16;
+
+        List<Future<String>> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(callers)) {
+            for (int i = 0; i < callers; i++) {
+                results.add(executor.submit(() -> cache.get("q", () -> {
+                    release.await();
+                    return load("shared");
+                })));
+            }
+            await(() -> (long) cache.getStats().get("coalesced") == callers - 1);
+            assertThat(cache.getStats()).containsEntry("inFlight", 1);
+
+            release.countDown();
+            for (Future<String> result : results) {
+                assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo("shared");
+            }
+        }
+
+        assertThat(loads).hasValue(1);
+        assertThat(cache.getStats()).containsEntry("loads", 1L).containsEntry("inFlight", 0);
+    }
+
+    @Test
+    void failedLoadReachesEveryWaiterAndIsNotCached() throws Exception {
+        QueryResultCache cache = new QueryResultCache("products", 10, HOUR, true);
+        CountDownLatch release = new CountDownLatch(1);
+        IllegalStateException failure = new IllegalStateException("cluster unavailable");
+        int callers = 4;
+
+        List<Future<String>> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(callers)) {
+            for (int i = 0; i < callers; i++) {
+                results.add(executor.submit(() -> cache.get("q", () -> {
+                    loads.incrementAndGet();
+                    release.await();
+                    throw failure;
+                })));
+            }
+            await(() -> (long) cache.getStats().get("coalesced") == callers - 1);
+            release.countDown();
+
+            for (Future<String> result : results) {
+                assertThatThrownBy(() -> result.get(5, TimeUnit.SECONDS))
+                        .isInstanceOf(ExecutionException.class)
+                        .cause().isInstanceOf(Cache.ValueRetrievalException.class)
+                        .cause().isSameAs(failure);
+            }
+        }
+
+        assertThat(loads).hasValue(1);
+        assertThat(cache.getStats()).containsEntry("loadFailures", 1L).containsEntry("inFlight", 0);
+        assertThat(cache.get("q", () -> load("retried"))).isEqualTo("retried");
+    }
+
+    @Test
+    void callersAfterAClearDoNotJoinTheRunningLoad() throws Exception {
+        QueryResultCache cache = new QueryResultCache("products", 10, HOUR, true);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        try (ExecutorService executor = Executors.newSingleThreadExecutor()) {
+            Future<String> before = executor.submit(() -> cache.get("q", () -> {
+                started.countDown();
+                release.await();
+                return load("before the write");
+            }));
+            assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+            cache.clear();
+            // Runs its own search while the first one is still out
+            assertThat(cache.get("q", () -> load("after the write"))).isEqualTo("after the write");
+
+            release.countDown();
+            assertThat(before.get(5, TimeUnit.SECONDS)).isEqualTo("before the write");
+        }
+
+        assertThat(loads).hasValue(2);
+        assertThat(cache.getStats()).containsEntry("coalesced", 0L);
+        // The overlapping load did not replace the newer result
+        assertThat(cache.get("q", () -> load("unused"))).isEqualTo("after the write");
+    }
+
+    @Test
+    void everyCallerLoadsWhenCoalescingIsOff() throws Exception {
+        QueryResultCache cache = new QueryResultCache("products", 0, HOUR, false);
+        CountDownLatch bothStarted = new CountDownLatch(2);
+
+        try (ExecutorService executor = Executors.newFixedThreadPool(2)) {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 2; i++) {
+                results.add(executor.submit(() -> cache.get("q", () -> {
+                    bothStarted.countDown();
+                    // Only returns once the other caller is loading too
+                    assertThat(bothStarted.await(5, TimeUnit.SECONDS)).isTrue();
+                    return load("own");
+                })));
+            }
+            for (Future<String> result : results) {
+                assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo("own");
+            }
+        }
+
+        assertThat(loads).hasValue(2);
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                throw new AssertionError("Condition not met within 5 seconds");
+            }
+            Thread.sleep(5);
+        }
+    }
+
+    private String load(String value) {
+        loads.incrementAndGet();
+        return value;
+    }
+}
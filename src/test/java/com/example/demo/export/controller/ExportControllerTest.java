@@ -0,0 +1,50 @@
+package com.example.demo.export.controller;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import com.example.demo.export.service.IndexExportService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class ExportControllerTest {
+
+    private final IndexExportService exportService =
+            spy(new IndexExportService(mock(ElasticsearchClient.class), new ObjectMapper()));
+    private final MockMvc mockMvc = MockMvcBuilders.standaloneSetup(new ExportController(exportService))
+            .setAsyncRequestTimeout(30_000)
+            .build();
+
+    @Test
+    void exportRunsWithoutTheDefaultAsyncTimeout() throws Exception {
+        doNothing().when(exportService).validate(anyString(), anyInt(), anyInt(), anyString());
+        doReturn(0L).when(exportService).export(anyString(), anyInt(), anyInt(), anyString(), any());
+
+        MvcResult result = mockMvc.perform(get("/api/export/products"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        assertThat(result.getRequest().getAsyncContext().getTimeout()).isEqualTo(-1);
+    }
+
+    @Test
+    void invalidKeepAliveIsRejected() throws Exception {
+        for (String keepAlive : new String[]{"1", "1x", "-1m", "0s", "2h", "1m; DROP", "99999999999s"}) {
+            mockMvc.perform(get("/api/export/products").param("keepAlive", keepAlive))
+                    .andExpect(status().isBadRequest());
+        }
+    }
+}
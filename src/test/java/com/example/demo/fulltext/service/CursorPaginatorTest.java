@@ -0,0 +1,174 @@
+package com.example.demo.fulltext.service;
+
+import com.example.demo.fulltext.dto.CursorPage;
+import com.example.demo.fulltext.model.ProductEntity;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.elasticsearch.ResourceNotFoundException;
+import org.springframework.data.elasticsearch.UncategorizedElasticsearchException;
+import org.springframework.data.elasticsearch.client.elc.NativeQuery;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.SearchHit;
+import org.springframework.data.elasticsearch.core.SearchHits;
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CursorPaginatorTest {
+
+    private static final List<Object> PARAMS = List.of(10.0, 500.0);
+
+    private final ElasticsearchOperations elasticsearchOperations = mock(ElasticsearchOperations.class);
+    private final CursorPaginator paginator = new CursorPaginator();
+
+    CursorPaginatorTest() {
+        ReflectionTestUtils.setField(paginator, "elasticsearchOperations", elasticsearchOperations);
+        ReflectionTestUtils.setField(paginator, "objectMapper", new ObjectMapper());
+        when(elasticsearchOperations.getIndexCoordinatesFor(ProductEntity.class))
+                .thenReturn(IndexCoordinates.of("products"));
+        when(elasticsearchOperations.openPointInTime(any(IndexCoordinates.class), any(Duration.class)))
+                .thenReturn("pit-1");
+    }
+
+    @Test
+    void cursorCarriesThePitAndSortValuesToTheNextPage() {
+        answer("pit-2", hit("a", 10.5, 3), hit("b", 12.0, 7));
+        CursorPage<ProductEntity> first = paginator.page(query(), ProductEntity.class, PARAMS, null, 2);
+
+        assertThat(first.getItems()).extracting(ProductEntity::getName).containsExactly("a", "b");
+        assertThat(first.getNextCursor()).matches("[-0-9A-Za-z_]+");
+
+        answer(null, hit("c", 20.0, 1));
+        CursorPage<ProductEntity> second = paginator.page(query(), ProductEntity.class, PARAMS, first.getNextCursor(), 2);
+
+        NativeQuery sent = lastQuery();
+        assertThat(sent.getPointInTime().id()).isEqualTo("pit-2");
+        assertThat(sent.getSearchAfter()).containsExactly(12.0, 7);
+        assertThat(second.getItems()).extracting(ProductEntity::getName).containsExactly("c");
+        // Last page: no cursor, and the PIT is closed
+        assertThat(second.getNextCursor()).isNull();
+        verify(elasticsearchOperations).openPointInTime(any(IndexCoordinates.class), any(Duration.class));
+        verify(elasticsearchOperations).closePointInTime("pit-2");
+    }
+
+    @Test
+    void cursorFromADifferentQueryIsRejected() {
+        answer(null, hit("a", 10.5, 3));
+        String cursor = paginator.page(query(), ProductEntity.class, PARAMS, null, 1).getNextCursor();
+
+        assertThatThrownBy(() -> paginator.page(query(), ProductEntity.class, List.of(10.0, 900.0), cursor, 1))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("different query");
+        // Only the first page reached Elasticsearch
+        verify(elasticsearchOperations).search(any(NativeQuery.class), eq(ProductEntity.class));
+    }
+
+    @Test
+    void malformedCursorsAreRejected() {
+        List<String> cursors = List.of("not base64!", encode("not json"), encode("[]"), encode("{}"),
+                encode("{\"pit\":1,\"after\":[1]}"), encode("{\"pit\":\"pit-1\",\"after\":\"1\"}"));
+
+        for (String cursor : cursors) {
+            assertThatThrownBy(() -> paginator.page(query(), ProductEntity.class, PARAMS, cursor, 10))
+                    .as(cursor)
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessage("invalid cursor");
+        }
+        verify(elasticsearchOperations, never()).search(any(NativeQuery.class), eq(ProductEntity.class));
+    }
+
+    @Test
+    void sizeOutsideTheLimitsIsRejected() {
+        for (int size : new int[]{0, -1, 10_001}) {
+            assertThatThrownBy(() -> paginator.page(query(), ProductEntity.class, PARAMS, null, size))
+                    .isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+
+    @Test
+    void expiredPitTellsTheClientToRestart() {
+        String cursor = cursor();
+        ResourceNotFoundException missing = new ResourceNotFoundException("all shards failed");
+        when(elasticsearchOperations.search(any(NativeQuery.class), eq(ProductEntity.class))).thenThrow(missing);
+
+        assertThatThrownBy(() -> paginator.page(query(), ProductEntity.class, PARAMS, cursor, 1))
+                .isInstanceOf(CursorExpiredException.class)
+                .hasCause(missing);
+        verify(elasticsearchOperations, never()).closePointInTime(anyString());
+    }
+
+    @Test
+    void searchContextMissingInAnUncategorizedFailureAlsoMeansExpired() {
+        String cursor = cursor();
+        when(elasticsearchOperations.search(any(NativeQuery.class), eq(ProductEntity.class)))
+                .thenThrow(new UncategorizedElasticsearchException("search_phase_execution_exception",
+                        new RuntimeException("No search context found for id [42]")));
+
+        assertThatThrownBy(() -> paginator.page(query(), ProductEntity.class, PARAMS, cursor, 1))
+                .isInstanceOf(CursorExpiredException.class);
+    }
+
+    @Test
+    void otherFailuresArePassedOnAndCloseANewlyOpenedPit() {
+        IllegalStateException down = new IllegalStateException("cluster unavailable");
+        when(elasticsearchOperations.search(any(NativeQuery.class), eq(ProductEntity.class))).thenThrow(down);
+
+        assertThatThrownBy(() -> paginator.page(query(), ProductEntity.class, PARAMS, null, 1)).isSameAs(down);
+        verify(elasticsearchOperations).closePointInTime("pit-1");
+    }
+
+    private String cursor() {
+        answer(null, hit("a", 10.5, 3));
+        return paginator.page(query(), ProductEntity.class, PARAMS, null, 1).getNextCursor();
+    }
+
+    private static NativeQuery query() {
+        return FilterQueryBuilder.filter().between("price", 10.0, 500.0).build();
+    }
+
+    @SafeVarargs
+    private void answer(String pitId, SearchHit<ProductEntity>... hits) {
+        @SuppressWarnings("unchecked")
+        SearchHits<ProductEntity> searchHits = mock(SearchHits.class);
+        when(searchHits.getSearchHits()).thenReturn(List.of(hits));
+        when(searchHits.getPointInTimeId()).thenReturn(pitId);
+        when(elasticsearchOperations.search(any(NativeQuery.class), eq(ProductEntity.class))).thenReturn(searchHits);
+    }
+
+    private NativeQuery lastQuery() {
+        ArgumentCaptor<NativeQuery> captor = ArgumentCaptor.forClass(NativeQuery.class);
+        verify(elasticsearchOperations, atLeastOnce()).search(captor.capture(), eq(ProductEntity.class));
+        return captor.getValue();
+    }
+
+    private static SearchHit<ProductEntity> hit(String name, Object... sortValues) {
+        ProductEntity product = new ProductEntity();
+        product.setName(name);
+        @SuppressWarnings("unchecked")
+        SearchHit<ProductEntity> hit = mock(SearchHit.class);
+        when(hit.getContent()).thenReturn(product);
+        when(hit.getSortValues()).thenReturn(new ArrayList<>(List.of(sortValues)));
+        return hit;
+    }
+
+    private static String encode(String json) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(json.getBytes(StandardCharsets.UTF_8));
+    }
+}
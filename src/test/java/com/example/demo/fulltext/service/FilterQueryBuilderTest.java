@@ -0,0 +1,50 @@
+package com.example.demo.fulltext.service;
+
+import co.elastic.clients.elasticsearch._types.SortOptions;
+import co.elastic.clients.elasticsearch._types.SortOrder;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.elasticsearch.client.elc.NativeQuery;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FilterQueryBuilderTest {
+
+    @Test
+    void fieldSortEndsWithTheIdTiebreaker() {
+        NativeQuery query = FilterQueryBuilder.filter()
+                .between("price", 10.0, 500.0)
+                .sortBy("price", SortOrder.Asc)
+                .page(2, 20)
+                .build();
+
+        assertThat(sortFields(query)).containsExactly("price", "id");
+        assertThat(query.getPageable().getOffset()).isEqualTo(40);
+    }
+
+    @Test
+    void uniqueSortsGetNoTiebreaker() {
+        NativeQuery cursor = FilterQueryBuilder.filter()
+                .sortBy("price", SortOrder.Asc)
+                .sortBy("_shard_doc", SortOrder.Asc)
+                .build();
+        NativeQuery byId = FilterQueryBuilder.filter()
+                .sortBy("id", SortOrder.Desc)
+                .build();
+
+        assertThat(sortFields(cursor)).containsExactly("price", "_shard_doc");
+        assertThat(sortFields(byId)).containsExactly("id");
+    }
+
+    @Test
+    void unsortedLookupUsesDocOrder() {
+        NativeQuery query = FilterQueryBuilder.filter().greaterThan("rating", 4.0).build();
+
+        assertThat(sortFields(query)).containsExactly("_doc");
+    }
+
+    private static List<String> sortFields(NativeQuery query) {
+        return query.getSortOptions().stream().map(SortOptions::field).map(f -> f.field()).toList();
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.demo.fulltext.service;
+
+import co.elastic.clients.elasticsearch._types.aggregations.Aggregate;
+import co.elastic.clients.elasticsearch._types.aggregations.RangeBucket;
+import com.example.demo.fulltext.dto.RangeStatsRequest;
+import com.example.demo.fulltext.dto.RangeStatsResponse;
+import com.example.demo.fulltext.model.ProductEntity;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.elasticsearch.client.elc.ElasticsearchAggregations;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.SearchHits;
+import org.springframework.data.elasticsearch.core.query.Query;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class RangeQueryServiceTest {
+
+    private final ElasticsearchOperations elasticsearchOperations = mock(ElasticsearchOperations.class);
+    private final RangeQueryService service = new RangeQueryService();
+
+    RangeQueryServiceTest() {
+        ReflectionTestUtils.setField(service, "elasticsearchOperations", elasticsearchOperations);
+    }
+
+    @Test
+    void rangeStatsFollowTheRequestedBucketOrder() {
+        // Elasticsearch sorts range buckets by from/to, so a descending request comes back reversed
+        answer(bucket("poor", 0.0, 3.0, 5), bucket("average", 3.0, 4.0, 7),
+                bucket("good", 4.0, 4.5, 3), bucket("excellent", 4.5, null, 1));
+
+        RangeStatsResponse response = service.getRangeStats("rating", List.of(
+                new RangeStatsRequest.Bucket("excellent", 4.5, null),
+                new RangeStatsRequest.Bucket("good", 4.0, 4.5),
+                new RangeStatsRequest.Bucket("average", 3.0, 4.0),
+                new RangeStatsRequest.Bucket("poor", 0.0, 3.0)));
+
+        assertThat(response.getBuckets()).extracting(RangeStatsResponse.BucketStats::getKey)
+                .containsExactly("excellent", "good", "average", "poor");
+        assertThat(response.getBuckets()).extracting(RangeStatsResponse.BucketStats::getCount)
+                .containsExactly(1L, 3L, 7L, 5L);
+    }
+
+    @Test
+    void bucketsWithoutKeysAreMatchedByTheirBounds() {
+        answer(bucket("*-100.0", null, 100.0, 4), bucket("100.0-500.0", 100.0, 500.0, 2),
+                bucket("500.0-*", 500.0, null, 0));
+
+        RangeStatsResponse response = service.getRangeStats("price", List.of(
+                new RangeStatsRequest.Bucket(null, 500.0, null),
+                new RangeStatsRequest.Bucket(null, null, 100.0),
+                new RangeStatsRequest.Bucket(null, 100.0, 500.0)));
+
+        assertThat(response.getBuckets()).extracting(RangeStatsResponse.BucketStats::getKey)
+                .containsExactly("500.0-*", "*-100.0", "100.0-500.0");
+        assertThat(response.getBuckets().get(0).getStatistics()).isNull();
+        assertThat(response.getTotalProducts()).isEqualTo(6);
+    }
+
+    private void answer(RangeBucket... buckets) {
+        long total = 0;
+        for (RangeBucket bucket : buckets) {
+            total += bucket.docCount();
+        }
+        @SuppressWarnings("unchecked")
+        SearchHits<ProductEntity> searchHits = mock(SearchHits.class);
+        when(searchHits.getTotalHits()).thenReturn(total);
+        doReturn(new ElasticsearchAggregations(Map.of("ranges",
+                Aggregate.of(a -> a.range(r -> r.buckets(b -> b.array(List.of(buckets))))))))
+                .when(searchHits).getAggregations();
+        when(elasticsearchOperations.search(any(Query.class), eq(ProductEntity.class))).thenReturn(searchHits);
+    }
+
+    private static RangeBucket bucket(String key, Double from, Double to, long count) {
+        return RangeBucket.of(b -> b
+                .key(key)
+                .from(from)
+                .to(to)
+                .docCount(count)
+                .aggregations("stats", Aggregate.of(a -> a.stats(s -> s
+                        .count(count)
+                        .min(1.0)
+                        .max(2.0)
+                        .avg(1.5)
+                        .sum(1.5 * count)))));
+    }
+}
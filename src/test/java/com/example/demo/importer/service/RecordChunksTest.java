@@ -0,0 +1,168 @@
+package com.example.demo.importer.service;
+
+import com.example.demo.importer.service.RecordChunks.Chunk;
+import com.example.demo.importer.service.RecordChunks.Format;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RecordChunksTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void ndjsonRecordSpanningAChunkEdgeStaysWhole() throws IOException {
+        Path file = write("products.ndjson", """
+                {"name":"first"}
+                {"name":"a record much longer than one chunk","description":"xxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxx"}
+                {"name":"third"}
+                """);
+
+        // 20 bytes cut the second record in the middle
+        List<Chunk> chunks = plan(file, Format.NDJSON, 20);
+
+        assertThat(records(file, Format.NDJSON, chunks)).containsExactly(
+                "{\"name\":\"first\"}",
+                "{\"name\":\"a record much longer than one chunk\",\"description\":\"xxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxx\"}",
+                "{\"name\":\"third\"}");
+        assertContiguous(chunks, Files.size(file));
+    }
+
+    @Test
+    void everyChunkSizeYieldsTheSameRecords() throws IOException {
+        StringBuilder content = new StringBuilder();
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            String record = "{\"id\":\"" + i + "\",\"name\":\"" + "n".repeat(i % 7) + "\"}";
+            expected.add(record);
+            content.append(record).append('\n');
+        }
+        Path file = write("products.ndjson", content.toString());
+
+        for (int chunkSize = 1; chunkSize <= 120; chunkSize++) {
+            List<Chunk> chunks = plan(file, Format.NDJSON, chunkSize);
+            assertThat(records(file, Format.NDJSON, chunks)).as("chunk size %d", chunkSize).isEqualTo(expected);
+            assertContiguous(chunks, Files.size(file));
+        }
+    }
+
+    @Test
+    void crlfLineEndingsAreStripped() throws IOException {
+        Path file = write("products.ndjson", "{\"name\":\"a\"}\r\n{\"name\":\"b\"}\r\n\r\n{\"name\":\"c\"}\r\n");
+
+        for (int chunkSize : new int[]{1, 5, 14, 15, 16, 1000}) {
+            assertThat(records(file, Format.NDJSON, plan(file, Format.NDJSON, chunkSize)))
+                    .as("chunk size %d", chunkSize)
+                    .containsExactly("{\"name\":\"a\"}", "{\"name\":\"b\"}", "{\"name\":\"c\"}");
+        }
+    }
+
+    @Test
+    void lastRecordWithoutFinalNewlineIsRead() throws IOException {
+        Path file = write("products.ndjson", "{\"name\":\"a\"}\n{\"name\":\"b\"}");
+
+        for (int chunkSize : new int[]{1, 13, 14, 1000}) {
+            assertThat(records(file, Format.NDJSON, plan(file, Format.NDJSON, chunkSize)))
+                    .as("chunk size %d", chunkSize)
+                    .containsExactly("{\"name\":\"a\"}", "{\"name\":\"b\"}");
+        }
+    }
+
+    @Test
+    void blankLinesAreSkipped() throws IOException {
+        Path file = write("products.ndjson", "\n  \n{\"name\":\"a\"}\n\t\n{\"name\":\"b\"}\n\n");
+
+        assertThat(records(file, Format.NDJSON, plan(file, Format.NDJSON, 1000)))
+                .containsExactly("{\"name\":\"a\"}", "{\"name\":\"b\"}");
+    }
+
+    @Test
+    void jsonArrayIsSplitOnElementBoundaries() throws IOException {
+        String first = "{\"name\":\"brackets ] } [ { and, commas\",\"tags\":[\"a\",\"b\"]}";
+        String second = "{\"name\":\"escaped \\\" quote and \\\\\",\"nested\":{\"deep\":[1,[2,3],{\"x\":\"]\"}]}}";
+        String third = "{\"name\":\"Điện thoại 😀\"}";
+        Path file = write("products.json", "  [\n  " + first + ",\n  " + second + " ,\r\n" + third + "\n]\n");
+
+        for (int chunkSize = 1; chunkSize <= 200; chunkSize += 7) {
+            List<Chunk> chunks = plan(file, Format.JSON_ARRAY, chunkSize);
+            assertThat(records(file, Format.JSON_ARRAY, chunks)).as("chunk size %d", chunkSize)
+                    .containsExactly(first, second, third);
+        }
+        assertThat(plan(file, Format.JSON_ARRAY, 1)).hasSize(3);
+    }
+
+    @Test
+    void emptyJsonArrayHasNoChunks() throws IOException {
+        Path file = write("products.json", "[ ]");
+
+        assertThat(plan(file, Format.JSON_ARRAY, 10)).isEmpty();
+    }
+
+    @Test
+    void unclosedJsonArrayIsRejected() throws IOException {
+        Path file = write("products.json", "[{\"name\":\"a\"},{\"name\":\"b\"");
+
+        assertThatThrownBy(() -> plan(file, Format.JSON_ARRAY, 10))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("not closed");
+    }
+
+    @Test
+    void formatIsDetectedFromExtensionOrFirstByte() throws IOException {
+        assertThat(detect(write("a.ndjson", "[1]"))).isEqualTo(Format.NDJSON);
+        assertThat(detect(write("a.jsonl", "{}"))).isEqualTo(Format.NDJSON);
+        assertThat(detect(write("a.json", " \n [ {} ]"))).isEqualTo(Format.JSON_ARRAY);
+        assertThat(detect(write("b.json", "{}\n{}"))).isEqualTo(Format.NDJSON);
+    }
+
+    private Path write(String name, String content) throws IOException {
+        return Files.writeString(dir.resolve(name), content, StandardCharsets.UTF_8);
+    }
+
+    private static Format detect(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file)) {
+            return RecordChunks.detect(channel, file.getFileName().toString());
+        }
+    }
+
+    private static List<Chunk> plan(Path file, Format format, long chunkSize) throws IOException {
+        List<Chunk> chunks = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(file)) {
+            RecordChunks.plan(channel, format, chunkSize, chunks::add);
+        }
+        return chunks;
+    }
+
+    // Reads each chunk the way FileImportService does: mapped on its own, records relative to its start
+    private static List<String> records(Path file, Format format, List<Chunk> chunks) throws IOException {
+        List<String> records = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(file)) {
+            for (Chunk chunk : chunks) {
+                RecordChunks.forEachRecord(channel.map(FileChannel.MapMode.READ_ONLY, chunk.start(), chunk.length()),
+                        format, (offset, bytes, length) -> records.add(new String(bytes, 0, length, StandardCharsets.UTF_8)));
+            }
+        }
+        return records;
+    }
+
+    private static void assertContiguous(List<Chunk> chunks, long size) {
+        long expectedStart = 0;
+        for (Chunk chunk : chunks) {
+            assertThat(chunk.start()).isEqualTo(expectedStart);
+            assertThat(chunk.end()).isGreaterThan(chunk.start());
+            expectedStart = chunk.end();
+        }
+        assertThat(expectedStart).isEqualTo(size);
+    }
+}